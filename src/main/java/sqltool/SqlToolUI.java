@@ -16,6 +16,7 @@ import sqltool.common.ConnectionViewer;
 import sqltool.common.MenuHandler;
 import sqltool.common.MenuManager;
 import sqltool.common.SqlToolkit;
+import sqltool.common.db.DbInfoCache;
 import sqltool.config.UserConfigEditor;
 import sqltool.query.QueryPanel;
 import sqltool.schema.*;
@@ -80,6 +81,7 @@ public class SqlToolUI extends JFrame implements MenuHandler {
 			favoriteListPanel.setItemClassName("sqltool.favorites.FavoriteSql");
 			favoriteListPanel.setRootFolderName("Favorite SQL");
 			loadDefaults();
+			DbInfoCache.LoadCache();
 			addPanelTreeListeners();
 			openSqlBBtn_actionPerformed(null);
 		} catch(Exception e) {
@@ -268,6 +270,7 @@ public class SqlToolUI extends JFrame implements MenuHandler {
 	/**File | Exit action performed*/
 	public void exitApp() {
 		ConnectionManager.ShutDown();
+		DbInfoCache.SaveCache();
 		saveDefaults();
 		SqlToolkit.userConfig.saveConfig();
 		SqlToolkit.menuManager.unregisterOwner(serverListPanel);
@@ -4,82 +4,88 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import sqltool.common.db.DbInfoCache;
+import sqltool.common.db.StatementCache;
 import sqltool.server.DbDefinition;
 
 
 /**
- * This class tries to make a database connection on a separate thread so
- * that the calling class can check the progress periodically.  If too
- * much time passes it can cancel the operation so the attempt to connect
- * doesn't hang the application.
+ * This class makes a database connection on a separate thread, and hands the
+ * result to a future.  If nobody wants the connection by the time it's made,
+ * because the attempt timed out or was cancelled, it's closed right away so
+ * it doesn't leak.
  * 
  * @author wjohnson000
  *
  */
 class ConnectionWorker implements Runnable {
 
-	private Connection conn = null;  // JDBC Connection
-	private String url;              // Database URL, vendor-specific format
-	private String user;             // User name
-	private String password;         // Password
-	private SQLException reason;     // SQLException thrown during connect attempt 
-	private boolean isDone = false;  // Flag set when the operation completes
+	private DbDefinition dbDef;                     // Database definition
+	private CompletableFuture<Connection> future;   // Receives the connection, or null
 
 
 	/**
-	 * Constructor takes the standard three parameters: URL, username, password
-	 * @param url Database URL
-	 * @param user Database user name
-	 * @param password Database password for the user
+	 * Constructor takes the database definition, and the future to complete
+	 * @param dbDef database definition
+	 * @param future future that receives the connection, or null on failure
 	 */
-	public ConnectionWorker(String url, String user, String password) {
-		this.url      = url;
-		this.user     = user;
-		this.password = password;
+	public ConnectionWorker(DbDefinition dbDef, CompletableFuture<Connection> future) {
+		this.dbDef  = dbDef;
+		this.future = future;
 	}
 
 
 	/**
 	 * The "run()" method must be defined for all "Runnable" classes.
 	 * All we do is wrap the connection attempt inside a try/catch
-	 * block, saving the exception if one is thrown.
+	 * block, saving the exception message if one is thrown.
 	 */
 	@Override
 	public void run() {
-		try {
-			conn = DriverManager.getConnection(url, user, password);
-		} catch (SQLException sqlex) {
-			reason = sqlex;
+		if (future.isDone()) {
+			return;
 		}
-		isDone = true;
-	}
 
-
-	/**
-	 * Return the database connection, or re-throw whatever SQL
-	 * exception occurred when we tried to connect.
-	 * @return
-	 * @throws SQLException
-	 */
-	public Connection getConnection() throws SQLException {
-		if (reason != null) {
-			throw reason;
+		try {
+			Connection conn = DriverManager.getConnection(dbDef.getURL(), dbDef.getUser(), dbDef.getPassword());
+			DbInfoCache.RegisterConnection(dbDef, conn);
+			if (! future.complete(conn)) {
+				try { conn.close(); } catch (Exception ex) { }
+			}
+		} catch (SQLException ex) {
+			String msg = ex.getMessage();
+			ex = ex.getNextException();
+			while (ex != null) {
+				msg += "\n  -- " + ex.getMessage().trim();
+				ex = ex.getNextException();
+			}
+			if (! future.isDone()) {
+				ConnectionManager.SetConnectionError(dbDef, msg);
+				future.complete(null);
+			}
 		}
-		return conn;
-	}
-
-
-	/**
-	 * Check to see if the "connect" operation has finished
-	 * @return
-	 */
-	public boolean isDone() {
-		return isDone;
 	}
 }
 
@@ -89,14 +95,66 @@ class ConnectionWorker implements Runnable {
  * dictated.  We'll always look for a cached connection before trying to
  * create a new one.
  * 
+ * The cached connection is shared, and used for browsing meta-data and the
+ * schema.  Anything that runs queries should borrow its own connection from
+ * the per-database pool, and release it when done, so a long-running query
+ * doesn't hold up everything else.
+ * 
  * @author wjohnson000
  */
 public class ConnectionManager {
 	// Manage a cache of connections
 	private static HashMap<DbDefinition,Connection> connCache = new HashMap<DbDefinition,Connection>();
 
+	// When each cached connection was last used or checked
+	private static HashMap<DbDefinition,Long> connChecked = new HashMap<DbDefinition,Long>();
+
+	// Manage a pool of connections for each database
+	private static HashMap<DbDefinition,ConnectionPool> poolCache = new HashMap<DbDefinition,ConnectionPool>();
+
 	// Manage a cache of error messages, specific to a connection
-	private static HashMap<DbDefinition,String> errorMsgCache = new HashMap<DbDefinition,String>();
+	private static Map<DbDefinition,String> errorMsgCache = Collections.synchronizedMap(new HashMap<DbDefinition,String>());
+
+	// Background thread that closes expired connections and keeps the rest alive
+	private static Thread reaperThread = null;
+
+	/** How often [milli-seconds] the reaper thread wakes up */
+	static final long REAPER_INTERVAL = 15L * 1000L;
+
+	/** How long [seconds] to wait for "Connection.isValid(...)" */
+	static final int VALID_TIMEOUT = 5;
+
+	/** How long [seconds] to wait for a new connection to be made */
+	static final int LOGIN_TIMEOUT = 10;
+
+	/** Maximum number of connection checks and closes running at once */
+	static final int CHECK_THREADS = 4;
+
+	// Threads that make connections, threads that check and close them, and a
+	// timer that gives up on attempts that take too long.  A connection attempt
+	// to an unreachable host can't be interrupted, so each one gets a thread of
+	// its own, and a few of them hanging never hold up the checks and closes.
+	private static ThreadPoolExecutor connectExecutor = null;
+	private static ThreadPoolExecutor checkExecutor = null;
+	private static ScheduledExecutorService timeoutTimer = null;
+
+	static {
+		ThreadFactory daemonFactory = new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "ConnectWorker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		connectExecutor = new ThreadPoolExecutor(
+			0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+			new SynchronousQueue<Runnable>(), daemonFactory);
+		checkExecutor = new ThreadPoolExecutor(
+			CHECK_THREADS, CHECK_THREADS, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), daemonFactory);
+		checkExecutor.allowCoreThreadTimeOut(true);
+		timeoutTimer = Executors.newSingleThreadScheduledExecutor(daemonFactory);
+	}
 
 
 	// Make the constructor private so nobody can instantiate one or
@@ -107,85 +165,152 @@ public class ConnectionManager {
 	/**
 	 * Get a specific database connection and optionally cache it for future
 	 * reference.  The connection parameters are supplied in the "DbDefinition"
-	 * parameter.  This method uses the "ConnectionWorker" to make the attempt
-	 * in a separate thread so the calling application won't be blocked for
-	 * more than 5 seconds.
+	 * parameter.  A cached connection that has been used recently is returned
+	 * right away; otherwise this waits on "GetConnectionAsync(...)", so the
+	 * calling application won't be blocked for more than the login timeout.
 	 */
 	public static Connection GetConnection(DbDefinition dbDef, boolean cacheIt) {
-		Thread connThread = null;
-		ConnectionWorker worker = null;
-
-		Connection conn = connCache.get(dbDef);
-		// If we have a valid connection, ensure it's still active and viable; if
-		// a "validation" query has been defined, run it to ensure that the
-		// connection is still open
+		Connection conn = GetRecentCached(dbDef);
 		if (conn != null) {
-		    ResultSet rset = null;
-			Statement stmt = null;
-			try {
-				stmt = conn.createStatement();
-				if (dbDef.getTestQuery() != null  &&  dbDef.getTestQuery().trim().length() > 0) {
-				    rset = stmt.executeQuery(dbDef.getTestQuery().trim());
-				}
-			} catch (Exception ex) {
-				SqlToolkit.appLogger.logFatal("   ConnectionManager.GetConnection.EX: " + ex);
-				DbInfoCache.ReleaseInfoModel(conn);
-				try {
-					conn.close();
-				} catch (Exception ex2) {}
-				conn = null;
-			} finally {
-                if (rset != null) try { rset.close(); } catch (Exception ex) { }
-				if (stmt != null) try { stmt.close(); } catch (Exception ex) { }
-			}
+			MarkUsed(dbDef, conn);
+			return conn;
 		}
+		return Await(GetConnectionAsync(dbDef, cacheIt));
+	}
 
-		// Create a new connection if required
-		if (conn == null) {
-			try {
-				Class.forName(dbDef.getDriver());
-				worker = new ConnectionWorker(dbDef.getURL(), dbDef.getUser(), dbDef.getPassword());
-				connThread = new Thread(worker);
-				connThread.start();	// Shutdown a database connection
-
-
-				// Wait up to 5 seconds in 1/4-second intervals for the database
-				// connection to be made
-				for (int i=0;  i<20 && !worker.isDone();  i++) {
-					try {
-						Thread.sleep(250);
-					} catch (Exception ex) { }
-				}
 
-				// If the connection hasn't been made, interrupt the thread
-				if (! worker.isDone()) {
-					connThread.interrupt();
+	/**
+	 * Get a specific database connection, without blocking the caller.  The
+	 * cached connection is checked, and if necessary a new one is made, on a
+	 * background thread.  The future gets the connection, or null if it can't
+	 * be made, in which case the reason is available from
+	 * "GetConnectionError(...)".  Cancelling the future abandons the attempt,
+	 * and the connection is closed if it's made anyway.
+	 * 
+	 * Note: the future may be completed on a background thread, so any UI
+	 * work must be handed to the EDT.
+	 */
+	public static CompletableFuture<Connection> GetConnectionAsync(final DbDefinition dbDef, final boolean cacheIt) {
+		final CompletableFuture<Connection> result = new CompletableFuture<Connection>();
+
+		Connection conn = GetRecentCached(dbDef);
+		if (conn != null) {
+			MarkUsed(dbDef, conn);
+			result.complete(conn);
+			return result;
+		}
+
+		checkExecutor.execute(new Runnable() {
+			public void run() {
+				if (result.isDone()) {
+					return;
 				}
 
-				// Get the connection from the worker; if it is null it means we
-				// timed out
-				conn = worker.getConnection();
-				if (conn == null) {	// Shutdown a database connection
-					errorMsgCache.put(dbDef, "Unable to connect to database ... operation timed out");
-				} else if (cacheIt) {
-					connCache.put(dbDef, conn);
+				// If we have a connection that hasn't been used or checked recently,
+				// ensure it's still active and viable
+				Connection conn = GetCached(dbDef);
+				if (conn != null  &&  ! IsValid(dbDef, conn)) {
+					RemoveCached(dbDef, conn);
+					conn = null;
 				}
-			} catch (SQLException ex) {
-				String msg = ex.getMessage();
-				ex = ex.getNextException();
-				while (ex != null) {
-					msg += "\n  -- " + ex.getMessage().trim();
-					ex = ex.getNextException();
+				if (conn != null) {
+					MarkUsed(dbDef, conn);
+					result.complete(conn);
+					return;
 				}
-				errorMsgCache.put(dbDef, msg);
-				conn = null;
-			} catch (ClassNotFoundException ex) {
-				errorMsgCache.put(dbDef, "Unknown driver: " + dbDef.getDriver());
-			} finally {
-				connThread = null;	// Shutdown a database connection
+
+				// Create a new connection, passing along any cancellation
+				final CompletableFuture<Connection> connect = ConnectAsync(dbDef);
+				result.whenComplete(new BiConsumer<Connection,Throwable>() {
+					public void accept(Connection newConn, Throwable ex) {
+						if (result.isCancelled()) {
+							connect.cancel(true);
+						}
+					}
+				});
+				connect.whenComplete(new BiConsumer<Connection,Throwable>() {
+					public void accept(Connection newConn, Throwable ex) {
+						if (newConn != null  &&  cacheIt) {
+							newConn = CacheConnection(dbDef, newConn);
+						}
+						if (! result.complete(newConn)  &&  newConn != null  &&  ! cacheIt) {
+							try { newConn.close(); } catch (Exception ex2) { }
+						}
+					}
+				});
 			}
+		});
+
+		return result;
+	}
+
+
+	/**
+	 * Borrow a connection from the pool for a specific database.  The caller
+	 * has it to itself until it's returned via "ReleaseConnection(...)".  If
+	 * every pooled connection is in use, wait a while for one to come back.
+	 * 
+	 * @return connection, or null if no connection is available; the reason is
+	 *         available from "GetConnectionError(...)"
+	 */
+	public static Connection BorrowConnection(DbDefinition dbDef) {
+		StartReaper();
+		return GetPool(dbDef).borrow();
+	}
+
+
+	/**
+	 * Return a borrowed connection to the pool
+	 */
+	public static void ReleaseConnection(DbDefinition dbDef, Connection conn) {
+		if (conn != null) {
+			GetPool(dbDef).release(conn);
 		}
-		return conn;
+	}
+
+
+	/**
+	 * Make a connection for one user to keep for as long as it likes, such as
+	 * a query tab.  It isn't counted against the size of the database's pool,
+	 * so it never holds up anyone borrowing a connection.  The connection is
+	 * made on a background thread; it must be closed via "CloseDedicated(...)".
+	 * 
+	 * Note: the future may be completed on a background thread, so any UI
+	 * work must be handed to the EDT.
+	 * 
+	 * @return future that gets the connection, or null if it can't be made; the
+	 *         reason is available from "GetConnectionError(...)"
+	 */
+	public static CompletableFuture<Connection> OpenDedicatedAsync(DbDefinition dbDef) {
+		return GetPool(dbDef).openDedicated();
+	}
+
+
+	/**
+	 * Close a connection made by "OpenDedicatedAsync(...)", on a background
+	 * thread, rolling back any open transaction
+	 */
+	public static void CloseDedicated(final DbDefinition dbDef, final Connection conn) {
+		if (conn != null) {
+			checkExecutor.execute(new Runnable() {
+				public void run() {
+					GetPool(dbDef).closeDedicated(conn);
+				}
+			});
+		}
+	}
+
+
+	/**
+	 * Check that a connection made by "OpenDedicatedAsync(...)" is still good
+	 * before it's used, but only if it hasn't been used or checked recently.
+	 * The check is bounded by the validation timeout.
+	 * @param lastUsed time the connection was last used or checked
+	 * @return TRUE if the connection can be used; FALSE if it should be closed
+	 *         and a new one made
+	 */
+	public static boolean CheckDedicated(DbDefinition dbDef, Connection conn, long lastUsed) {
+		return ! NeedsCheck(lastUsed)  ||  IsValid(dbDef, conn);
 	}
 
 
@@ -202,7 +327,10 @@ public class ConnectionManager {
 	 */
 	public static void ShutDown(DbDefinition dbDef) {
 		ShutDownPrivate(dbDef);
-		connCache.remove(dbDef);
+		synchronized(connCache) {
+			connCache.remove(dbDef);
+			connChecked.remove(dbDef);
+		}
 	}
 
 
@@ -210,11 +338,14 @@ public class ConnectionManager {
 	 * Close all database connections
 	 */
 	public static void ShutDown() {
-		Iterator<DbDefinition> iter = connCache.keySet().iterator();
+		Iterator<DbDefinition> iter = GetDbDefList();
 		while (iter.hasNext()) {
 			DbDefinition dbDef = iter.next();
 			ShutDownPrivate(dbDef);
-			iter.remove();
+		}
+		synchronized(connCache) {
+			connCache.clear();
+			connChecked.clear();
 		}
 	}
 
@@ -224,18 +355,304 @@ public class ConnectionManager {
 	 * being managed.
 	 */
 	public static Iterator<DbDefinition> GetDbDefList() {
-		return connCache.keySet().iterator();
+		Set<DbDefinition> dbDefs = null;
+		synchronized(connCache) {
+			dbDefs = new LinkedHashSet<DbDefinition>(connCache.keySet());
+		}
+		synchronized(poolCache) {
+			for (Map.Entry<DbDefinition,ConnectionPool> entry : poolCache.entrySet()) {
+				if (! entry.getValue().isEmpty()) {
+					dbDefs.add(entry.getKey());
+				}
+			}
+		}
+		return dbDefs.iterator();
 	}
 
 
 	/**
-	 * Internal method to shut down (close) a database connection
+	 * Make a new connection, waiting for it to finish
+	 * @return new connection, or null if the connection failed
 	 */
-	private static void ShutDownPrivate(DbDefinition dbDef) {
-		Connection conn = GetConnection(dbDef, true);
+	static Connection Connect(DbDefinition dbDef) {
+		return Await(ConnectAsync(dbDef));
+	}
+
+
+	/**
+	 * Make a new connection on a background thread.  The driver is given the
+	 * login timeout; if it ignores that, the attempt is abandoned shortly after
+	 * and its thread interrupted.
+	 * @return future that gets the new connection, or null if it failed
+	 */
+	static CompletableFuture<Connection> ConnectAsync(final DbDefinition dbDef) {
+		final CompletableFuture<Connection> future = new CompletableFuture<Connection>();
+		try {
+			Class.forName(dbDef.getDriver());
+		} catch (ClassNotFoundException ex) {
+			errorMsgCache.put(dbDef, "Unknown driver: " + dbDef.getDriver());
+			future.complete(null);
+			return future;
+		}
+
+		DriverManager.setLoginTimeout(LOGIN_TIMEOUT);
+		final Future<?> task = connectExecutor.submit(new ConnectionWorker(dbDef, future));
+		final ScheduledFuture<?> timer = timeoutTimer.schedule(new Runnable() {
+			public void run() {
+				if (! future.isDone()) {
+					errorMsgCache.put(dbDef, "Unable to connect to database ... operation timed out");
+					future.complete(null);
+				}
+			}
+		}, LOGIN_TIMEOUT + 2, TimeUnit.SECONDS);
+
+		future.whenComplete(new BiConsumer<Connection,Throwable>() {
+			public void accept(Connection conn, Throwable ex) {
+				timer.cancel(false);
+				if (conn == null) {
+					task.cancel(true);
+				}
+			}
+		});
+		return future;
+	}
+
+
+	/**
+	 * Wait for a connection future to finish.  If the wait is interrupted, the
+	 * attempt is cancelled.
+	 * @return connection, or null
+	 */
+	private static Connection Await(CompletableFuture<Connection> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+		} catch (Exception ex) {
+			SqlToolkit.appLogger.logFatal("   ConnectionManager.Await.EX: " + ex);
+		}
+		return null;
+	}
+
+
+	/**
+	 * Check that a connection is still viable.  If a "validation" query has
+	 * been defined, run it to ensure that the connection is still open;
+	 * otherwise let the driver check it.  Older drivers that don't support
+	 * "isValid(...)" just get a statement created.
+	 * @return TRUE if the connection is good; FALSE otherwise
+	 */
+	static boolean IsValid(DbDefinition dbDef, Connection conn) {
+		ResultSet rset = null;
+		Statement stmt = null;
+		try {
+			if (dbDef.getTestQuery() != null  &&  dbDef.getTestQuery().trim().length() > 0) {
+				stmt = conn.createStatement();
+				stmt.setQueryTimeout(VALID_TIMEOUT);
+				rset = stmt.executeQuery(dbDef.getTestQuery().trim());
+				return true;
+			}
+			try {
+				return conn.isValid(VALID_TIMEOUT);
+			} catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+				stmt = conn.createStatement();
+				return true;
+			}
+		} catch (Exception ex) {
+			SqlToolkit.appLogger.logFatal("   ConnectionManager.IsValid.EX: " + ex);
+			return false;
+		} finally {
+			if (rset != null) try { rset.close(); } catch (Exception ex) { }
+			if (stmt != null) try { stmt.close(); } catch (Exception ex) { }
+		}
+	}
+
+
+	/**
+	 * Return a flag indicating if a connection has gone unused long enough
+	 * that it should be checked before it's used
+	 * @param lastChecked time the connection was last used or checked
+	 * @return TRUE if it should be checked; FALSE otherwise
+	 */
+	static boolean NeedsCheck(long lastChecked) {
+		return System.currentTimeMillis() - lastChecked >= SqlToolkit.userConfig.getPoolCheckSeconds() * 1000L;
+	}
+
+
+	/**
+	 * Save the error message (reason) for a connection failure
+	 */
+	static void SetConnectionError(DbDefinition dbDef, String msg) {
+		errorMsgCache.put(dbDef, msg);
+	}
+
+
+	/**
+	 * Return the connection pool for a database, creating it if necessary
+	 */
+	private static ConnectionPool GetPool(DbDefinition dbDef) {
+		synchronized(poolCache) {
+			ConnectionPool pool = poolCache.get(dbDef);
+			if (pool == null) {
+				pool = new ConnectionPool(dbDef);
+				poolCache.put(dbDef, pool);
+			}
+			return pool;
+		}
+	}
+
+
+	/**
+	 * Return the cached connection for a database, or null
+	 */
+	private static Connection GetCached(DbDefinition dbDef) {
+		synchronized(connCache) {
+			return connCache.get(dbDef);
+		}
+	}
+
+
+	/**
+	 * Return the cached connection for a database, but only if it has been
+	 * used or checked recently enough that it needn't be checked again
+	 */
+	private static Connection GetRecentCached(DbDefinition dbDef) {
+		synchronized(connCache) {
+			Long lastChecked = connChecked.get(dbDef);
+			if (lastChecked == null  ||  NeedsCheck(lastChecked.longValue())) {
+				return null;
+			}
+			return connCache.get(dbDef);
+		}
+	}
+
+
+	/**
+	 * Record that the cached connection for a database has just been used
+	 */
+	private static void MarkUsed(DbDefinition dbDef, Connection conn) {
+		synchronized(connCache) {
+			if (connCache.get(dbDef) == conn) {
+				connChecked.put(dbDef, Long.valueOf(System.currentTimeMillis()));
+			}
+		}
+	}
+
+
+	/**
+	 * Cache a new connection for a database.  If another thread has already
+	 * cached one, keep that one and close the new one.
+	 * @return the cached connection
+	 */
+	private static Connection CacheConnection(DbDefinition dbDef, Connection conn) {
+		Connection oldConn = null;
+		synchronized(connCache) {
+			oldConn = connCache.get(dbDef);
+			if (oldConn == null) {
+				connCache.put(dbDef, conn);
+			}
+			connChecked.put(dbDef, Long.valueOf(System.currentTimeMillis()));
+		}
+		StartReaper();
+
+		if (oldConn != null) {
+			try { conn.close(); } catch (Exception ex) { }
+			return oldConn;
+		}
+		return conn;
+	}
+
+
+	/**
+	 * Remove a cached connection that has gone bad, and close it.  It's only
+	 * removed if it's still the cached connection for the database.
+	 */
+	private static void RemoveCached(DbDefinition dbDef, Connection conn) {
+		synchronized(connCache) {
+			if (connCache.get(dbDef) == conn) {
+				connCache.remove(dbDef);
+				connChecked.remove(dbDef);
+			}
+		}
 		DbInfoCache.ReleaseInfoModel(conn);
+		StatementCache.Close(conn);
 		try {
 			conn.close();
 		} catch (Exception ex) {}
 	}
-}
\ No newline at end of file
+
+
+	/**
+	 * Start the reaper thread, if it's not already running.  Every so often it
+	 * closes pooled connections that have expired, and checks idle pooled
+	 * connections that haven't been used recently, which keeps them alive and
+	 * weeds out the bad ones.  That way borrowing a connection seldom has to
+	 * check it first.
+	 * <p>
+	 * The cached connections are left alone: they're shared, so any number of
+	 * threads may be using one, and checking it -- let alone closing it if the
+	 * check fails -- would get in their way.  A cached connection is checked
+	 * when it's asked for, if it hasn't been used recently.
+	 */
+	private static synchronized void StartReaper() {
+		if (reaperThread == null) {
+			reaperThread = new Thread(new Runnable() {
+				public void run() {
+					while (true) {
+						try { Thread.sleep(REAPER_INTERVAL); } catch (Exception ex) { }
+						try {
+							ReapAndKeepAlive();
+						} catch (Exception ex) {
+							SqlToolkit.appLogger.logFatal("   ConnectionManager.Reaper.EX: " + ex);
+						}
+					}
+				}
+			}, "ConnectionReaper");
+			reaperThread.setDaemon(true);
+			reaperThread.start();
+		}
+	}
+
+
+	/**
+	 * One pass of the reaper thread
+	 */
+	private static void ReapAndKeepAlive() {
+		List<ConnectionPool> pools = null;
+		synchronized(poolCache) {
+			pools = new ArrayList<ConnectionPool>(poolCache.values());
+		}
+		for (ConnectionPool pool : pools) {
+			pool.evictExpired();
+			pool.keepAlive();
+		}
+	}
+
+
+	/**
+	 * Internal method to shut down (close) a database connection, and all
+	 * of the pooled connections
+	 */
+	private static void ShutDownPrivate(DbDefinition dbDef) {
+		Connection conn = null;
+		synchronized(connCache) {
+			conn = connCache.get(dbDef);
+		}
+		if (conn != null) {
+			DbInfoCache.ReleaseInfoModel(conn);
+			StatementCache.Close(conn);
+			try {
+				conn.close();
+			} catch (Exception ex) {}
+		}
+
+		ConnectionPool pool = null;
+		synchronized(poolCache) {
+			pool = poolCache.remove(dbDef);
+		}
+		if (pool != null) {
+			pool.close();
+		}
+	}
+}
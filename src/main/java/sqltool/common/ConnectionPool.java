@@ -0,0 +1,365 @@
+package sqltool.common;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import sqltool.common.db.StatementCache;
+import sqltool.server.DbDefinition;
+
+
+/**
+ * A bounded pool of connections for a single database definition.  Idle
+ * connections are closed once they've been idle too long, connections are
+ * retired once they reach their maximum lifetime, and a caller waits only so
+ * long for a connection when they're all in use.
+ * <p>
+ * A dedicated connection -- one a query tab keeps for itself, say -- is made
+ * through the pool too, but isn't counted against its size or lent to anyone
+ * else; the pool only keeps track of it so it's closed when the pool is.
+ *
+ * @author wjohnson000
+ *
+ */
+class ConnectionPool {
+
+	/**
+	 * A pooled connection, with the time it was created, last used and last
+	 * known to be good
+	 */
+	static class PoolEntry {
+		Connection conn;
+		long created;
+		long lastUsed;
+		long lastChecked;
+
+		PoolEntry(Connection conn) {
+			this.conn = conn;
+			this.created = System.currentTimeMillis();
+			this.lastUsed = created;
+			this.lastChecked = created;
+		}
+	}
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- dbDef: database definition for all connections in this pool
+	//   -- idle: connections available for use, most-recently-used first
+	//   -- borrowed: connections currently in use
+	//   -- dedicated: connections made for one user to keep
+	//   -- pending: number of connections being created
+	//   -- checking: number of idle connections being checked (kept alive)
+	//   -- isClosed: TRUE once the pool has been shut down
+	// =============================================================================
+	private DbDefinition dbDef;
+	private LinkedList<PoolEntry> idle = new LinkedList<PoolEntry>();
+	private Map<Connection,PoolEntry> borrowed = new IdentityHashMap<Connection,PoolEntry>();
+	private Set<Connection> dedicated = Collections.newSetFromMap(new IdentityHashMap<Connection,Boolean>());
+	private int     pending  = 0;
+	private int     checking = 0;
+	private boolean isClosed = false;
+
+	/**
+	 * Create a new, empty pool
+	 * @param dbDef database definition
+	 */
+	ConnectionPool(DbDefinition dbDef) {
+		this.dbDef = dbDef;
+	}
+
+	/**
+	 * Borrow a connection, re-using an idle one if possible, creating a new
+	 * one if the pool isn't full, and otherwise waiting for one to be returned.
+	 * @return connection, or null if none could be created or the wait timed out
+	 */
+	Connection borrow() {
+		long deadline = System.currentTimeMillis() + SqlToolkit.userConfig.getPoolWaitSeconds() * 1000L;
+
+		while (true) {
+			PoolEntry entry = null;
+			boolean   doCreate = false;
+			List<Connection> expired = new ArrayList<Connection>();
+
+			synchronized(this) {
+				while (entry == null  &&  ! doCreate) {
+					if (isClosed) {
+						ConnectionManager.SetConnectionError(dbDef, "Connection pool has been shut down");
+						return null;
+					}
+					removeExpired(expired);
+					if (idle.size() > 0) {
+						entry = idle.removeFirst();
+						borrowed.put(entry.conn, entry);
+					} else if (borrowed.size() + pending + checking < SqlToolkit.userConfig.getPoolSize()) {
+						pending++;
+						doCreate = true;
+					} else {
+						long remaining = deadline - System.currentTimeMillis();
+						if (remaining <= 0) {
+							ConnectionManager.SetConnectionError(dbDef,
+								"Unable to connect to database ... all " + borrowed.size() + " connections are in use");
+							return null;
+						}
+						try {
+							wait(remaining);
+						} catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+							ConnectionManager.SetConnectionError(dbDef, "Interrupted while waiting for a connection");
+							return null;
+						}
+					}
+				}
+			}
+			CloseAll(expired);
+
+			// Make sure an idle connection is still good before handing it out,
+			// but only if it hasn't been used or checked recently
+			if (entry != null) {
+				if (! ConnectionManager.NeedsCheck(entry.lastChecked)  ||
+						ConnectionManager.IsValid(dbDef, entry.conn)) {
+					entry.lastUsed = System.currentTimeMillis();
+					entry.lastChecked = entry.lastUsed;
+					return entry.conn;
+				}
+				discard(entry.conn);
+			} else {
+				Connection conn = ConnectionManager.Connect(dbDef);
+				synchronized(this) {
+					pending--;
+					if (conn != null) {
+						borrowed.put(conn, new PoolEntry(conn));
+					}
+					notifyAll();
+				}
+				return conn;
+			}
+		}
+	}
+
+	/**
+	 * Return a connection to the pool.  Any open transaction is rolled back, and
+	 * auto-commit turned back on, so the next borrower gets a clean connection.
+	 * @param conn connection previously borrowed from this pool
+	 */
+	void release(Connection conn) {
+		boolean isOK = true;
+		try {
+			if (conn.isClosed()) {
+				isOK = false;
+			} else if (! conn.getAutoCommit()) {
+				conn.rollback();
+				conn.setAutoCommit(true);
+			}
+		} catch (Exception ex) {
+			isOK = false;
+		}
+
+		long lifetime = SqlToolkit.userConfig.getPoolLifetimeSeconds() * 1000L;
+		synchronized(this) {
+			PoolEntry entry = borrowed.remove(conn);
+			if (entry != null  &&  isOK  &&  ! isClosed  &&  System.currentTimeMillis() - entry.created < lifetime) {
+				entry.lastUsed = System.currentTimeMillis();
+				entry.lastChecked = entry.lastUsed;
+				idle.addFirst(entry);
+				conn = null;
+			}
+			notifyAll();
+		}
+		if (conn != null) {
+			CloseOne(conn);
+		}
+	}
+
+	/**
+	 * Remove a borrowed connection that has gone bad, closing it
+	 * @param conn connection previously borrowed from this pool
+	 */
+	void discard(Connection conn) {
+		synchronized(this) {
+			borrowed.remove(conn);
+			notifyAll();
+		}
+		CloseOne(conn);
+	}
+
+	/**
+	 * Make a dedicated connection, on a background thread.  Cancelling the
+	 * future abandons the attempt, and the connection is closed if it's made
+	 * anyway.
+	 * @return future that gets the connection, or null if it failed
+	 */
+	CompletableFuture<Connection> openDedicated() {
+		final CompletableFuture<Connection> result = new CompletableFuture<Connection>();
+		final CompletableFuture<Connection> connect = ConnectionManager.ConnectAsync(dbDef);
+		result.whenComplete(new BiConsumer<Connection,Throwable>() {
+			public void accept(Connection conn, Throwable ex) {
+				if (result.isCancelled()) {
+					connect.cancel(true);
+				}
+			}
+		});
+		connect.whenComplete(new BiConsumer<Connection,Throwable>() {
+			public void accept(Connection conn, Throwable ex) {
+				if (conn != null) {
+					synchronized(ConnectionPool.this) {
+						if (isClosed) {
+							ConnectionManager.SetConnectionError(dbDef, "Connection pool has been shut down");
+						} else {
+							dedicated.add(conn);
+						}
+					}
+				}
+				if (! result.complete(conn)  &&  conn != null) {
+					closeDedicated(conn);
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Close a dedicated connection.  Any open transaction is rolled back first,
+	 * since some drivers commit it on close.
+	 * @param conn connection made by "openDedicated()"
+	 */
+	void closeDedicated(Connection conn) {
+		synchronized(this) {
+			dedicated.remove(conn);
+		}
+		try {
+			if (! conn.isClosed()  &&  ! conn.getAutoCommit()) {
+				conn.rollback();
+			}
+		} catch (Exception ex) { }
+		CloseOne(conn);
+	}
+
+	/**
+	 * Close every idle connection that has passed its idle time or lifetime
+	 */
+	void evictExpired() {
+		List<Connection> expired = new ArrayList<Connection>();
+		synchronized(this) {
+			removeExpired(expired);
+		}
+		CloseAll(expired);
+	}
+
+	/**
+	 * Check every idle connection that hasn't been used or checked recently,
+	 * which also keeps it alive.  The connections being checked are taken out
+	 * of the idle list, so nobody can borrow one in the meantime; the good ones
+	 * are put back, and the bad ones closed.
+	 */
+	void keepAlive() {
+		List<PoolEntry> toCheck = new ArrayList<PoolEntry>();
+		synchronized(this) {
+			for (Iterator<PoolEntry> iter=idle.iterator();  iter.hasNext(); ) {
+				PoolEntry entry = iter.next();
+				if (ConnectionManager.NeedsCheck(entry.lastChecked)) {
+					toCheck.add(entry);
+					iter.remove();
+				}
+			}
+			checking += toCheck.size();
+		}
+
+		for (PoolEntry entry : toCheck) {
+			boolean isOK = ConnectionManager.IsValid(dbDef, entry.conn);
+			synchronized(this) {
+				checking--;
+				if (isOK  &&  ! isClosed) {
+					entry.lastChecked = System.currentTimeMillis();
+					idle.addLast(entry);
+				} else {
+					isOK = false;
+				}
+				notifyAll();
+			}
+			if (! isOK) {
+				CloseOne(entry.conn);
+			}
+		}
+	}
+
+	/**
+	 * Shut down the pool, closing all connections, including those in use
+	 */
+	void close() {
+		List<Connection> all = new ArrayList<Connection>();
+		synchronized(this) {
+			isClosed = true;
+			for (PoolEntry entry : idle) {
+				all.add(entry.conn);
+			}
+			all.addAll(borrowed.keySet());
+			all.addAll(dedicated);
+			idle.clear();
+			borrowed.clear();
+			dedicated.clear();
+			notifyAll();
+		}
+		CloseAll(all);
+	}
+
+	/**
+	 * @return number of connections, idle and in use
+	 */
+	synchronized int size() {
+		return idle.size() + borrowed.size();
+	}
+
+	/**
+	 * @return TRUE if this pool has no connections and none are being created
+	 */
+	synchronized boolean isEmpty() {
+		return idle.size() + borrowed.size() + dedicated.size() + pending + checking == 0;
+	}
+
+	/**
+	 * Move expired idle connections to a list, so they can be closed outside of
+	 * the lock.  Must be called while holding the lock.
+	 * @param expired list to receive the expired connections
+	 */
+	private void removeExpired(List<Connection> expired) {
+		long now = System.currentTimeMillis();
+		long idleTime = SqlToolkit.userConfig.getPoolIdleSeconds() * 1000L;
+		long lifetime = SqlToolkit.userConfig.getPoolLifetimeSeconds() * 1000L;
+		for (Iterator<PoolEntry> iter=idle.iterator();  iter.hasNext(); ) {
+			PoolEntry entry = iter.next();
+			if (now - entry.lastUsed >= idleTime  ||  now - entry.created >= lifetime) {
+				expired.add(entry.conn);
+				iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Close a list of connections, ignoring any errors
+	 * @param conns connections to close
+	 */
+	private static void CloseAll(List<Connection> conns) {
+		for (Connection conn : conns) {
+			CloseOne(conn);
+		}
+	}
+
+	/**
+	 * Close a connection, and any statements cached for it, ignoring any errors
+	 * @param conn connection to close
+	 */
+	private static void CloseOne(Connection conn) {
+		StatementCache.Close(conn);
+		try {
+			conn.close();
+		} catch (Exception ex) { }
+	}
+}
@@ -0,0 +1,232 @@
+package sqltool.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * Split a SQL script into statements as it's read, so a script of any size
+ * can be run without holding it in memory.  Statements end with the SQL
+ * delimiter, and may span any number of lines.  A delimiter doesn't count
+ * if it's inside a string or quoted name, a comment, or a block that starts
+ * and ends with the body delimiter -- the body of a stored procedure, say,
+ * which has delimiters of its own.
+ * <p>
+ * Comments ahead of a statement are dropped, and a "statement" with nothing
+ * but comments and white-space isn't returned.  The last statement doesn't
+ * need a delimiter.
+ *
+ * @author wjohnson000
+ */
+public class SqlScriptReader implements Closeable {
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- in: script being read
+	//   -- sqlDelim: statement delimiter
+	//   -- bodyDelim: delimiter at both ends of a block that may contain
+	//      statement delimiters, or null
+	//   -- buff, pos, limit, eof: characters read but not yet used
+	//   -- lineNum: current line number, starting at 1
+	//   -- startLine: line number where the last statement started
+	// =============================================================================
+	private Reader  in;
+	private String  sqlDelim;
+	private String  bodyDelim;
+	private char[]  buff = new char[1 << 16];
+	private int     pos = 0;
+	private int     limit = 0;
+	private boolean eof = false;
+	private int     lineNum = 1;
+	private int     startLine = 0;
+
+
+	/**
+	 * Constructor takes the script and its delimiters
+	 * @param in script; ideally buffered
+	 * @param sqlDelim statement delimiter
+	 * @param bodyDelim body delimiter, or null or empty if there's none
+	 */
+	public SqlScriptReader(Reader in, String sqlDelim, String bodyDelim) {
+		this.in        = in;
+		this.sqlDelim  = (sqlDelim == null  ||  sqlDelim.isEmpty()) ? ";" : sqlDelim;
+		this.bodyDelim = (bodyDelim == null  ||  bodyDelim.isEmpty()) ? null : bodyDelim;
+	}
+
+	/**
+	 * @return line number where the last statement returned started
+	 */
+	public int getLineNumber() {
+		return startLine;
+	}
+
+	/**
+	 * Return the next statement, without its delimiter
+	 * @return statement, or null at the end of the script
+	 * @throws IOException
+	 */
+	public String nextStatement() throws IOException {
+		StringBuilder stmt = new StringBuilder(256);
+		boolean hasCode = false;
+		boolean inLineComment = false;
+		boolean inBlockComment = false;
+		boolean inBody = false;
+		char    quote = 0;
+
+		while (fill(1)) {
+			char ch = buff[pos];
+
+			if (inLineComment) {
+				inLineComment = (ch != '\n');
+				appendIf(stmt, hasCode, 1);
+			} else if (inBlockComment) {
+				if (matches("*/")) {
+					inBlockComment = false;
+					appendIf(stmt, hasCode, 2);
+				} else {
+					appendIf(stmt, hasCode, 1);
+				}
+			} else if (quote != 0) {
+				if (ch == quote  &&  fill(2)  &&  buff[pos+1] == quote) {
+					append(stmt, 2);
+				} else {
+					quote = (ch == quote) ? 0 : quote;
+					append(stmt, 1);
+				}
+			} else if (inBody) {
+				if (matches(bodyDelim)) {
+					inBody = false;
+					append(stmt, bodyDelim.length());
+				} else {
+					append(stmt, 1);
+				}
+			} else if (matches("--")) {
+				inLineComment = true;
+				appendIf(stmt, hasCode, 2);
+			} else if (matches("/*")) {
+				inBlockComment = true;
+				appendIf(stmt, hasCode, 2);
+			} else if (matches(sqlDelim)) {
+				skip(sqlDelim.length());
+				if (hasCode) {
+					return trimEnd(stmt);
+				}
+				stmt.setLength(0);
+			} else {
+				if (! hasCode  &&  ! Character.isWhitespace(ch)) {
+					hasCode = true;
+					startLine = lineNum;
+				}
+				if (bodyDelim != null  &&  matches(bodyDelim)) {
+					inBody = true;
+					append(stmt, bodyDelim.length());
+				} else {
+					if (ch == '\''  ||  ch == '"') {
+						quote = ch;
+					}
+					appendIf(stmt, hasCode, 1);
+				}
+			}
+		}
+
+		return hasCode ? trimEnd(stmt) : null;
+	}
+
+	/**
+	 * Close the script
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Make sure there are at least so many characters ready to use, unless
+	 * the script ends first
+	 * @param need number of characters needed
+	 * @return TRUE if they're there
+	 */
+	private boolean fill(int need) throws IOException {
+		if (limit - pos >= need) {
+			return true;
+		}
+
+		if (pos > 0) {
+			System.arraycopy(buff, pos, buff, 0, limit-pos);
+			limit -= pos;
+			pos = 0;
+		}
+		while (limit < need  &&  ! eof) {
+			int count = in.read(buff, limit, buff.length-limit);
+			if (count < 0) {
+				eof = true;
+			} else {
+				limit += count;
+			}
+		}
+		return limit >= need;
+	}
+
+	/**
+	 * @return TRUE if the next characters are the given token
+	 */
+	private boolean matches(String token) throws IOException {
+		if (! fill(token.length())) {
+			return false;
+		}
+		for (int i=0;  i<token.length();  i++) {
+			if (buff[pos+i] != token.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Use up some characters, adding them to the statement
+	 */
+	private void append(StringBuilder stmt, int count) {
+		for (int i=0;  i<count;  i++) {
+			char ch = buff[pos++];
+			stmt.append(ch);
+			if (ch == '\n') {
+				lineNum++;
+			}
+		}
+	}
+
+	/**
+	 * Use up some characters, adding them to the statement only if the
+	 * statement has started
+	 */
+	private void appendIf(StringBuilder stmt, boolean hasCode, int count) {
+		if (hasCode) {
+			append(stmt, count);
+		} else {
+			skip(count);
+		}
+	}
+
+	/**
+	 * Use up some characters
+	 */
+	private void skip(int count) {
+		for (int i=0;  i<count;  i++) {
+			if (buff[pos++] == '\n') {
+				lineNum++;
+			}
+		}
+	}
+
+	/**
+	 * @return the statement without any trailing white-space
+	 */
+	private static String trimEnd(StringBuilder stmt) {
+		int len = stmt.length();
+		while (len > 0  &&  Character.isWhitespace(stmt.charAt(len-1))) {
+			len--;
+		}
+		return stmt.substring(0, len);
+	}
+}
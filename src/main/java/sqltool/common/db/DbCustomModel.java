@@ -3,6 +3,9 @@ package sqltool.common.db;
 import java.sql.Connection;
 import java.util.Map;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -20,8 +23,14 @@ public class DbCustomModel {
 	/** */
 	Map<String,DbRawDataType> registeredDataTypes;
 
-	/** Cache any sort of stuff that needs to be cached */
-	Map<String,Object> objectCache;
+	/** Cache any sort of stuff that needs to be cached; shared by all models */
+	static final ObjectCache objectCache = new ObjectCache();
+
+	/** Used to give each model its own part of the cache */
+	private static final AtomicInteger modelCount = new AtomicInteger();
+
+	/** Prefix of this model's cache keys and groups */
+	String cacheOwner = "model" + modelCount.incrementAndGet() + ".";
 	
 
 	/**
@@ -39,7 +48,22 @@ public class DbCustomModel {
 	 * Clean the cache, forcing us to re-read everything from the database
 	 */
 	public void resetCache() {
-		objectCache = new LinkedHashMap<String,Object>();
+		objectCache.invalidateAll(cacheOwner);
+	}
+
+	/**
+	 * Clean the cache of everything for one dataType, forcing us to re-read
+	 * it from the database
+	 */
+	public void resetCache(String datatypeName) {
+		objectCache.invalidate(cacheOwner + datatypeName);
+	}
+
+	/**
+	 * Return the cache shared by all models, for its statistics
+	 */
+	public static ObjectCache GetObjectCache() {
+		return objectCache;
 	}
 
 	/**
@@ -86,7 +110,7 @@ public class DbCustomModel {
 		if (res == null) {
 			DbRawDataType rdt = (DbRawDataType)registeredDataTypes.get(datatypeName);
 			res = rdt.getEntries(catalog, schema);
-			objectCache.put(key, res);
+			objectCache.put(key, cacheOwner + datatypeName, res);
 		}
 		return res;
 	}
@@ -100,11 +124,68 @@ public class DbCustomModel {
 		if (res == null) {
 			DbRawDataType rdt = (DbRawDataType)registeredDataTypes.get(datatypeName);
 			res = rdt.getSource(catalog, schema, entry);
-			objectCache.put(key, res);
+			objectCache.put(key, cacheOwner + datatypeName, res);
 		}
 		return res;
 	}
 
+	/**
+	 * Get the SOURCE for every entry given a catalog (or schema) and dataType,
+	 * handing each one over as soon as it's available.  The data type's bulk
+	 * queries are used if it has them, and their results are cached; any entry
+	 * they miss is then retrieved on its own.
+	 */
+	public void getSources(String catalog, String schema, String datatypeName, DbRawDataType.SourceHandler handler) {
+		Set<String> pending = getBulkSources(catalog, schema, datatypeName, handler);
+		for (String entry : pending) {
+			handler.handleSource(entry, getSource(catalog, schema, datatypeName, entry));
+		}
+	}
+
+	/**
+	 * Get the SOURCE for every entry given a catalog (or schema) and dataType
+	 * that the data type's bulk queries can retrieve, caching each one and
+	 * handing it over as soon as it's available
+	 * @return entries the bulk queries missed, in entry order; these must be
+	 *         retrieved on their own
+	 */
+	public Set<String> getBulkSources(final String catalog, final String schema, final String datatypeName, final DbRawDataType.SourceHandler handler) {
+		final Set<String> pending = new LinkedHashSet<String>();
+		String[] entries = getEntries(catalog, schema, datatypeName);
+		if (entries == null) {
+			return pending;
+		}
+		for (String entry : entries) {
+			pending.add(entry);
+		}
+
+		DbRawDataType rdt = registeredDataTypes.get(datatypeName);
+		rdt.getSources(catalog, schema, new DbRawDataType.SourceHandler() {
+			public void handleSource(String entry, String source) {
+				if (pending.remove(entry)) {
+					objectCache.put(getKey(catalog, schema, datatypeName, entry, "source"), cacheOwner + datatypeName, source);
+					handler.handleSource(entry, source);
+				}
+			}
+		});
+		return pending;
+	}
+
+	/**
+	 * Create a model for the same database as this one, but using another
+	 * connection, so work can be done in parallel.  It shares this model's
+	 * cache entries.
+	 * @param otherConn database connection
+	 * @return new model, or null if one can't be created
+	 */
+	public DbCustomModel copyForConnection(Connection otherConn) {
+		DbCustomModel copy = CustomModelFactory.getCustomModel(otherConn);
+		if (copy != null) {
+			copy.cacheOwner = cacheOwner;
+		}
+		return copy;
+	}
+
 	/**
 	 * Get the CREATE sql for an entry given a catalog (or schema) and dataType
 	 */
@@ -116,7 +197,7 @@ public class DbCustomModel {
 			if (res == null) {
 				DbRawDataType rdt = (DbRawDataType)registeredDataTypes.get(datatypeName);
 				res = rdt.getCreate(catalog, schema, entry);
-				objectCache.put(key, res);
+				objectCache.put(key, cacheOwner + datatypeName, res);
 			}
 		}
 		return res;
@@ -133,7 +214,7 @@ public class DbCustomModel {
 			if (res == null) {
 				DbRawDataType rdt = (DbRawDataType)registeredDataTypes.get(datatypeName);
 				res = rdt.getDrop(catalog, schema, entry);
-				objectCache.put(key, res);
+				objectCache.put(key, cacheOwner + datatypeName, res);
 			}
 		}
 		return res;
@@ -143,7 +224,7 @@ public class DbCustomModel {
 	 * Generate a key that can be used to get objects from the cache ...
 	 */
 	private String getKey(String catalog, String schema, String datatypeName, String entryName, String action) {
-		return catalog + "." + schema + "." + datatypeName + "." + entryName + "." + action;
+		return cacheOwner + catalog + "." + schema + "." + datatypeName + "." + entryName + "." + action;
 	}
 }
 
@@ -1,30 +1,67 @@
 package sqltool.common.db;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import sqltool.common.SqlToolkit;
+import sqltool.server.DbDefinition;
 
 
 /**
  * Cache "DbInfoModel" stuff: this is fairly expensive to retrieve using
- * DatabaseMetaData, but rarely changes.
- * 
+ * DatabaseMetaData, but rarely changes.  Models may be requested from a
+ * background thread, so access to the cache is synchronized -- but only long
+ * enough to look a model up.  A model is built, or moved to a new connection,
+ * holding a lock of its own, so a slow database only holds up requests for
+ * that same database.
+ * <p>
+ * Models are kept by database definition -- its URL and user -- rather than
+ * by connection, so a dropped connection doesn't lose them: the next
+ * connection to the same database picks up the same model.  The models are
+ * saved to a file in the user's home directory on shut-down and read back on
+ * start-up, and each one is checked against the database the first time it's
+ * given a connection.  Connections that weren't made by the connection
+ * manager are cached by connection, as before, and aren't saved.
+ *
  * @author wjohnson000
  */
 public class DbInfoCache {
-	
+
+	/** Version of the on-disk file; a file with any other version is ignored */
+	static final int CACHE_VERSION = 1;
+
+	/** Name of the on-disk file, in the user's home directory */
+	static final String CACHE_FILE = ".sql-tool-metadata";
+
 	private static DbInfoCache onlyInstance = new DbInfoCache();
-	private Map<Connection,DbInfoModel> myCache = new HashMap<Connection,DbInfoModel>();
-	
+	private Map<String,DbInfoModel> myCache;
+	private Map<Connection,String> connKeys;
+	private Map<Connection,DbInfoModel> connCache;
+	private Map<Object,Object> keyLocks;
+
 	/**
 	 * Private constructor to enforce the "singleton" pattern
 	 */
 	private DbInfoCache() {
-		myCache = new HashMap<Connection,DbInfoModel>();
+		myCache   = new HashMap<String,DbInfoModel>();
+		connKeys  = new WeakHashMap<Connection,String>();
+		connCache = new HashMap<Connection,DbInfoModel>();
+		keyLocks  = new HashMap<Object,Object>();
 	}
-	
+
 	/**
 	 * Retrieve the "DbInfoModel" associated with this connection ...
 	 * @param conn JDBC connection, already established
@@ -34,28 +71,207 @@ public class DbInfoCache {
 		SqlToolkit.appLogger.logDebug("DbInfoCache.GetInfoModel: " + conn);
 		return onlyInstance.getInfoModel(conn);
 	}
-	
+
+	/**
+	 * A new connection has been made to a database; remember which database,
+	 * so its model can be found by database definition
+	 * @param dbDef database definition
+	 * @param conn JDBC connection, just established
+	 */
+	public static synchronized void RegisterConnection(DbDefinition dbDef, Connection conn) {
+		onlyInstance.connKeys.put(conn, GetKey(dbDef));
+	}
+
 	/**
 	 * A database is being closed or invalidated or refreshed, and we need
-	 * to clear out whatever we have for the connection 
+	 * to clear out whatever we have for the connection.  A model kept by
+	 * database definition stays, for the next connection to pick up.
 	 * @param conn JDBC connection, already established
 	 */
-	public static void ReleaseInfoModel(Connection conn) {
+	public static synchronized void ReleaseInfoModel(Connection conn) {
 		SqlToolkit.appLogger.logDebug("DbInfoCache.ReleaseInfoModel: " + conn);
-		onlyInstance.myCache.remove(conn);
+		onlyInstance.connKeys.remove(conn);
+		onlyInstance.connCache.remove(conn);
+		onlyInstance.keyLocks.remove(conn);
 	}
-	
+
 	/**
-	 * Retrieve the "DbInfoModel" associated with this connection ...
+	 * Read the models saved by the last session, on a background thread.  A
+	 * model that has already been built for this session, because it was
+	 * asked for before the file was read, is kept rather than the saved one.
+	 */
+	public static void LoadCache() {
+		Thread loader = new Thread(new Runnable() {
+			public void run() {
+				Map<String,DbInfoModel> saved = ReadCache(GetCacheFile());
+				synchronized(DbInfoCache.class) {
+					for (Map.Entry<String,DbInfoModel> entry : saved.entrySet()) {
+						if (! onlyInstance.myCache.containsKey(entry.getKey())) {
+							onlyInstance.myCache.put(entry.getKey(), entry.getValue());
+						}
+					}
+				}
+			}
+		}, "DbInfoCacheLoader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	/**
+	 * Save the models, to be read back by the next session
+	 */
+	public static void SaveCache() {
+		Map<String,DbInfoModel> models = null;
+		synchronized(DbInfoCache.class) {
+			models = new HashMap<String,DbInfoModel>(onlyInstance.myCache);
+		}
+		SaveCache(GetCacheFile(), models);
+	}
+
+	/**
+	 * Retrieve the "DbInfoModel" associated with this connection ...  If it
+	 * has to be built, or moved to this connection, that's done holding only
+	 * the lock for its database, or connection.
 	 * @param conn JDBC connection, already established
 	 * @return Fully or partially-retrieved "DbInfoModel" for this connection
 	 */
 	private DbInfoModel getInfoModel(Connection conn) {
-		DbInfoModel dbModel = (DbInfoModel)myCache.get(conn);
-		if (dbModel == null) {
-			dbModel = new DbInfoModel(conn);
-			myCache.put(conn, dbModel);
+		String key;
+		Object keyLock;
+		synchronized(DbInfoCache.class) {
+			key = connKeys.get(conn);
+			keyLock = keyLocks.get((key == null) ? conn : key);
+			if (keyLock == null) {
+				keyLock = new Object();
+				keyLocks.put((key == null) ? conn : key, keyLock);
+			}
 		}
-		return dbModel;
+
+		synchronized(keyLock) {
+			DbInfoModel dbModel = null;
+			synchronized(DbInfoCache.class) {
+				dbModel = (key == null) ? connCache.get(conn) : myCache.get(key);
+			}
+
+			if (dbModel == null) {
+				dbModel = new DbInfoModel(conn);
+				synchronized(DbInfoCache.class) {
+					if (key == null) {
+						connCache.put(conn, dbModel);
+					} else {
+						myCache.put(key, dbModel);
+					}
+				}
+			} else if (key != null  &&  dbModel.getConnection() != conn  &&  ! IsOpen(dbModel.getConnection())) {
+				dbModel.attachConnection(conn);
+			}
+			return dbModel;
+		}
+	}
+
+	/**
+	 * A model only moves to a new connection once its own has been closed;
+	 * a pooled connection to the same database just shares it
+	 * @return TRUE if the connection is still open
+	 */
+	private static boolean IsOpen(Connection conn) {
+		try {
+			return conn != null  &&  ! conn.isClosed();
+		} catch (Exception ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read the saved models; any problem with the file and we start with
+	 * an empty cache
+	 * @param file on-disk cache file
+	 * @return saved models, by key
+	 */
+	private static Map<String,DbInfoModel> ReadCache(File file) {
+		Map<String,DbInfoModel> saved = new HashMap<String,DbInfoModel>();
+		if (! file.exists()) {
+			return saved;
+		}
+
+		long then = System.currentTimeMillis();
+		DataInputStream dis = null;
+		try {
+			dis = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 1 << 16)));
+			MetaDataFile in = new MetaDataFile(dis);
+			if (in.readInt() != CACHE_VERSION) {
+				SqlToolkit.appLogger.logDebug("DbInfoCache.ReadCache: old version, ignored");
+				return saved;
+			}
+
+			int count = in.readInt();
+			for (int i=0;  i<count;  i++) {
+				String key = in.readString();
+				saved.put(key, new DbInfoModel(in));
+			}
+			SqlToolkit.appLogger.logDebug("DbInfoCache.ReadCache: " + count + " models in " +
+					(System.currentTimeMillis() - then) + " ms");
+		} catch (Exception ex) {
+			SqlToolkit.appLogger.logFatal("DbInfoCache.ReadCache.EX: " + ex);
+			saved.clear();
+		} finally {
+			try { if (dis != null) dis.close(); } catch (Exception ex) { }
+		}
+		return saved;
+	}
+
+	/**
+	 * Save the models.  They're written to a temporary file that then replaces
+	 * the old one, so a failure part-way doesn't leave a broken file.
+	 * @param file on-disk cache file
+	 * @param models models to save, by key
+	 */
+	private static void SaveCache(File file, Map<String,DbInfoModel> models) {
+		List<String> keys = new ArrayList<String>();
+		for (Map.Entry<String,DbInfoModel> entry : models.entrySet()) {
+			if (entry.getValue().isValid()) {
+				keys.add(entry.getKey());
+			}
+		}
+
+		File tempFile = new File(file.getPath() + ".tmp");
+		DataOutputStream dos = null;
+		try {
+			dos = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile), 1 << 16)));
+			MetaDataFile out = new MetaDataFile(dos);
+			out.writeInt(CACHE_VERSION);
+			out.writeInt(keys.size());
+			for (String key : keys) {
+				out.writeString(key);
+				models.get(key).writeCache(out);
+			}
+			dos.close();
+			dos = null;
+
+			file.delete();
+			if (! tempFile.renameTo(file)) {
+				SqlToolkit.appLogger.logFatal("DbInfoCache.SaveCache: unable to rename " + tempFile);
+			}
+		} catch (Exception ex) {
+			SqlToolkit.appLogger.logFatal("DbInfoCache.SaveCache.EX: " + ex);
+		} finally {
+			try { if (dos != null) dos.close(); } catch (Exception ex) { }
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * @return key for the models of a database
+	 */
+	private static String GetKey(DbDefinition dbDef) {
+		return dbDef.getURL() + "|" + dbDef.getUser();
+	}
+
+	/**
+	 * @return on-disk cache file
+	 */
+	private static File GetCacheFile() {
+		String userHome = System.getProperty("user.home", ".");
+		return new File(userHome, CACHE_FILE);
 	}
 }
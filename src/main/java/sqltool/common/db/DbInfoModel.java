@@ -3,10 +3,16 @@ package sqltool.common.db;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import sqltool.common.SqlToolkit;
 
@@ -43,6 +49,20 @@ public class DbInfoModel {
 	public static final List<Map<String,String>> INVALID_PRIMARY_KEY = new ArrayList<Map<String,String>>();
 	public static final List<Map<String,String>> INVALID_INDEX       = new ArrayList<Map<String,String>>();
 	public static final List<Map<String,String>> INVALID_PRIVILEGE   = new ArrayList<Map<String,String>>();
+
+	/** Suffixes of the "schemaDetails" keys for each kind of table detail */
+	static final String DETAIL_PRIMARY_KEY = ".pk";
+	static final String DETAIL_INDEX       = ".index";
+	static final String DETAIL_PRIVILEGE   = ".priv";
+
+	// All models share a single background thread for pre-fetching schema details
+	private static final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runner) {
+			Thread thread = new Thread(runner, "DbInfoPrefetch");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 	
 	private Connection conn;
 	
@@ -65,7 +85,10 @@ public class DbInfoModel {
 
 	private Map<String,List<Map<String,String>>> schemaDetails;
 	private Map<String,SchemaStructure> schemaStructure;
+	private Set<String> prefetched;
 	private DbCustomModel customModel;
+	private long     loadTime;
+
 	
 	
 	// Simple GET-ter methods for each piece of data being managed
@@ -92,6 +115,54 @@ public class DbInfoModel {
 		refreshData(conn);
 	}
 	
+	/**
+	 * Create a model from the on-disk meta-data cache.  It has no connection
+	 * until one is attached, at which point it's checked to see if it's still
+	 * good.
+	 * 
+	 * @param in meta-data cache file
+	 */
+	DbInfoModel(MetaDataFile in) throws java.io.IOException {
+		conn        = null;
+		customModel = null;
+		loadTime    = in.readLong();
+		dbName      = in.readString();
+		dbVersion   = in.readString();
+		dbDriver    = in.readString();
+		dbURL       = in.readString();
+		dbUser      = in.readString();
+		catalogTerm = in.readString();
+		schemaTerm  = in.readString();
+		keywordList      = in.readStrings();
+		numericFuncList  = in.readStrings();
+		stringFuncList   = in.readStrings();
+		systemFuncList   = in.readStrings();
+		dateTimeFuncList = in.readStrings();
+		schemaList       = in.readStrings();
+		catalogList      = in.readStrings();
+		
+		schemaDetails = Collections.synchronizedMap(new TreeMap<String,List<Map<String,String>>>());
+		int count = in.readInt();
+		for (int i=0;  i<count;  i++) {
+			String key = in.readString();
+			schemaDetails.put(key, in.readDetails());
+		}
+		
+		schemaStructure = new TreeMap<String,SchemaStructure>();
+		count = in.readInt();
+		for (int i=0;  i<count;  i++) {
+			SchemaStructure schemaStruct = new SchemaStructure();
+			schemaStructure.put(in.readString(), schemaStruct);
+			schemaStruct.tableStruct     = readStructure(in, new DbTableSet());
+			schemaStruct.viewStruct      = readStructure(in, new DbTableSet());
+			schemaStruct.synonymStruct   = readStructure(in, new DbTableSet());
+			schemaStruct.procedureStruct = readStructure(in, new DbProcedureSet());
+		}
+		
+		prefetched = Collections.synchronizedSet(new HashSet<String>(Arrays.asList(in.readStrings())));
+		isValid = true;
+	}
+	
 	/**
 	 * If we have reason to believe the database structure has changed underneath us,
 	 * this allows us to force a refresh of the data
@@ -100,6 +171,7 @@ public class DbInfoModel {
 		SqlToolkit.appLogger.logDebug("DbInfoModel.refreshData: " + conn);
 		isValid     = false;
 		this.conn   = conn;
+		loadTime    = System.currentTimeMillis();
 		dbName      = "";
 		dbVersion   = "";
 		dbDriver    = "";
@@ -112,8 +184,12 @@ public class DbInfoModel {
 		dateTimeFuncList = new String[0];
 		schemaList       = new String[0];
 		catalogList      = new String[0];
-		schemaDetails    = new TreeMap<String,List<Map<String,String>>>();
+		schemaDetails    = Collections.synchronizedMap(new TreeMap<String,List<Map<String,String>>>());
 		schemaStructure  = new TreeMap<String,SchemaStructure>();
+		prefetched       = Collections.synchronizedSet(new HashSet<String>());
+		if (customModel != null) {
+			customModel.resetCache();
+		}
 		customModel      = null;
 		
 		if (conn != null) {
@@ -137,7 +213,7 @@ public class DbInfoModel {
 	 * Retrieve data based on the schema name and key (TABLE, VIEW or SYNONYM);
 	 * we rely on lazy-instantiation to ensure that we only get what we need
 	 */
-	public DbStructure getDbStructure(String catalog, String schema, String mode) {
+	public synchronized DbStructure getDbStructure(String catalog, String schema, String mode) {
 		if (! isValid) {
 			return null;
 		}
@@ -186,7 +262,7 @@ public class DbInfoModel {
 	 * and an entry name (i.e., table name); this "lazy instantiation" assures
 	 * us that we don't retrieve the details until we need them ...
 	 */
-	public void populateDetails(String catalog, String schema, String mode, String entry) {
+	public synchronized void populateDetails(String catalog, String schema, String mode, String entry) {
 		if (! isValid) {
 			return;
 		}
@@ -215,13 +291,121 @@ public class DbInfoModel {
 	}
 	
 	
+	/**
+	 * Start pulling the details of every table and view in a schema, in the
+	 * background, so they're at hand when the user browses or scripts them.
+	 * Rather than going to the database once per table for each kind of
+	 * detail, we make one call per kind for the whole schema and split the
+	 * rows up by table.  Each schema is only pre-fetched once.
+	 * 
+	 * @param catalog catalog name, could be null
+	 * @param schema schema name, could be null
+	 */
+	public void prefetchSchema(final String catalog, final String schema) {
+		if (! isValid  ||  ! prefetched.add("key." + catalog + "." + schema)) {
+			return;
+		}
+		
+		prefetchExecutor.execute(new Runnable() {
+			public void run() {
+				loadSchema(catalog, schema);
+			}
+		});
+	}
+	
+	
+	/**
+	 * Pull the column details, and where the driver allows it the primary keys,
+	 * indexes and privileges, of every table and view in a schema
+	 * 
+	 * @param catalog catalog name, could be null
+	 * @param schema schema name, could be null
+	 */
+	void loadSchema(String catalog, String schema) {
+		long then = System.currentTimeMillis();
+		DbStructure tableStruct = getDbStructure(catalog, schema, MODE_TABLE);
+		DbStructure viewStruct  = getDbStructure(catalog, schema, MODE_VIEW);
+		if (tableStruct == null  ||  viewStruct == null) {
+			return;
+		}
+		
+		// The columns of all tables and views come back in a single query
+		ResultSet rset = null;
+		try {
+			DatabaseMetaData dbmd = conn.getMetaData();
+			rset = dbmd.getColumns(catalog, schema, null, null);
+			String[] colName = getColumnNames(rset);
+			Map<String,List<Map<String,String>>> details = partitionResults(rset, colName);
+			tableStruct.addEntries(colName, details);
+			viewStruct.addEntries(colName, details);
+		} catch (SQLException sqlex) {
+			SqlToolkit.appLogger.logDebug("   DbInfoModel.loadSchema.EX: " + sqlex);
+		} finally {
+			try { if (rset != null) rset.close(); } catch (Exception ex) { }
+		}
+		
+		List<String> names = new ArrayList<String>(tableStruct.getNameCount() + viewStruct.getNameCount());
+		names.addAll(Arrays.asList(tableStruct.getNames()));
+		names.addAll(Arrays.asList(viewStruct.getNames()));
+		loadDetails(catalog, schema, DETAIL_PRIMARY_KEY, names);
+		loadDetails(catalog, schema, DETAIL_INDEX, names);
+		loadDetails(catalog, schema, DETAIL_PRIVILEGE, names);
+		SqlToolkit.appLogger.logDebug("   DbInfoModel, pre-fetched " + names.size() + " entries for: key." +
+				catalog + "." + schema + " in " + (System.currentTimeMillis() - then) + " ms");
+	}
+	
+	
+	/**
+	 * Pull one kind of table detail for a whole schema, by passing a null table
+	 * name, and split the rows up by table.  Not all drivers allow this: some
+	 * throw an exception and some return nothing, and in either case we leave
+	 * the details to be pulled one table at a time.
+	 * 
+	 * @param catalog catalog name, could be null
+	 * @param schema schema name, could be null
+	 * @param detail kind of detail: primary key, index or privilege
+	 * @param names table and view names
+	 */
+	private void loadDetails(String catalog, String schema, String detail, List<String> names) {
+		ResultSet rset = null;
+		try {
+			DatabaseMetaData dbmd = conn.getMetaData();
+			if (DETAIL_PRIMARY_KEY.equals(detail)) {
+				rset = dbmd.getPrimaryKeys(catalog, schema, null);
+			} else if (DETAIL_INDEX.equals(detail)) {
+				rset = dbmd.getIndexInfo(catalog, schema, null, false, true);
+			} else {
+				rset = dbmd.getTablePrivileges(catalog, schema, null);
+			}
+			
+			Map<String,List<Map<String,String>>> details = partitionResults(rset, getColumnNames(rset));
+			if (details.isEmpty()) {
+				return;
+			}
+			synchronized(schemaDetails) {
+				for (String name : names) {
+					String key = "key." + catalog + "." + schema + "." + name + detail;
+					if (! schemaDetails.containsKey(key)) {
+						List<Map<String,String>> res = details.get(name);
+						schemaDetails.put(key, (res == null) ? new ArrayList<Map<String,String>>(0) : res);
+					}
+				}
+			}
+		} catch (SQLException sqlex) {
+			SqlToolkit.appLogger.logDebug("   DbInfoModel.loadDetails" + detail + ".EX: " + sqlex);
+		} finally {
+			try { if (rset != null) rset.close(); } catch (Exception ex) { }
+		}
+	}
+	
+	
 	/**
 	 * Retrieve a list of primary keys for a given catalog, schema, table
 	 * @param rset
 	 * @return
 	 */
 	public List<Map<String,String>> getPrimaryKeys(String catalog, String schema, String entry) {
-		String key = "key." + catalog + "." + schema + "." + entry + ".pk";
+		String key = "key." + catalog + "." + schema + "." + entry + DETAIL_PRIMARY_KEY;
 		SqlToolkit.appLogger.logDebug("   DbInfoModel, primary-key for: " + key);
 
 		List<Map<String,String>> res = schemaDetails.get(key);
@@ -248,7 +432,7 @@ public class DbInfoModel {
 	 * @return
 	 */
 	public List<Map<String,String>> getIndexInfo(String catalog, String schema, String entry) {
-		String key = "key." + catalog + "." + schema + "." + entry + ".index";
+		String key = "key." + catalog + "." + schema + "." + entry + DETAIL_INDEX;
 		SqlToolkit.appLogger.logDebug("   DbInfoModel, index for: " + key);
 
 		List<Map<String,String>> res = schemaDetails.get(key);
@@ -275,7 +459,7 @@ public class DbInfoModel {
 	 * @return
 	 */
 	public List<Map<String,String>> getTablePrivilege(String catalog, String schema, String entry) {
-		String key = "key." + catalog + "." + schema + "." + entry + ".priv";
+		String key = "key." + catalog + "." + schema + "." + entry + DETAIL_PRIVILEGE;
 		SqlToolkit.appLogger.logDebug("   DbInfoModel, privilege for: " + key);
 
 		List<Map<String,String>> res = schemaDetails.get(key);
@@ -295,6 +479,87 @@ public class DbInfoModel {
 		return res;
 	}
 
+	/**
+	 * Hand the model a new connection to the same database: this one came from
+	 * the on-disk cache, or the connection it had was dropped.  If the cached
+	 * meta-data is too old, or the database, driver or user no longer match
+	 * it, it's all refreshed; otherwise it's kept as-is.
+	 * 
+	 * @param conn new connection
+	 */
+	synchronized void attachConnection(Connection conn) {
+		String oldIdentity = getIdentity();
+		long   maxAge = SqlToolkit.userConfig.getMetaCacheHours() * 3600L * 1000L;
+		this.conn = conn;
+		
+		isValid = false;
+		if (System.currentTimeMillis() - loadTime <= maxAge) {
+			retrieveDbIdentity();
+		}
+		if (isValid  &&  oldIdentity.equals(getIdentity())) {
+			if (customModel != null) {
+				customModel.resetCache();
+			}
+			customModel = CustomModelFactory.getCustomModel(conn);
+			SqlToolkit.appLogger.logDebug("DbInfoModel.attachConnection, kept: " + dbURL);
+		} else {
+			refreshData(conn);
+		}
+	}
+	
+	/**
+	 * Write everything to the on-disk meta-data cache.  Details from failed
+	 * operations are left out, so they're tried again next time.
+	 * 
+	 * @param out meta-data cache file
+	 */
+	synchronized void writeCache(MetaDataFile out) throws java.io.IOException {
+		out.writeLong(loadTime);
+		out.writeString(dbName);
+		out.writeString(dbVersion);
+		out.writeString(dbDriver);
+		out.writeString(dbURL);
+		out.writeString(dbUser);
+		out.writeString(catalogTerm);
+		out.writeString(schemaTerm);
+		out.writeStrings(keywordList);
+		out.writeStrings(numericFuncList);
+		out.writeStrings(stringFuncList);
+		out.writeStrings(systemFuncList);
+		out.writeStrings(dateTimeFuncList);
+		out.writeStrings(schemaList);
+		out.writeStrings(catalogList);
+		
+		synchronized(schemaDetails) {
+			List<String> keys = new ArrayList<String>(schemaDetails.size());
+			for (Map.Entry<String,List<Map<String,String>>> entry : schemaDetails.entrySet()) {
+				List<Map<String,String>> res = entry.getValue();
+				if (res != INVALID_PRIMARY_KEY  &&  res != INVALID_INDEX  &&  res != INVALID_PRIVILEGE) {
+					keys.add(entry.getKey());
+				}
+			}
+			out.writeInt(keys.size());
+			for (String key : keys) {
+				out.writeString(key);
+				out.writeDetails(schemaDetails.get(key));
+			}
+		}
+		
+		out.writeInt(schemaStructure.size());
+		for (Map.Entry<String,SchemaStructure> entry : schemaStructure.entrySet()) {
+			SchemaStructure schemaStruct = entry.getValue();
+			out.writeString(entry.getKey());
+			writeStructure(out, schemaStruct.tableStruct);
+			writeStructure(out, schemaStruct.viewStruct);
+			writeStructure(out, schemaStruct.synonymStruct);
+			writeStructure(out, schemaStruct.procedureStruct);
+		}
+		
+		synchronized(prefetched) {
+			out.writeStrings(prefetched.toArray(new String[prefetched.size()]));
+		}
+	}
+
 	/**
 	 * Retrieve flag indicating whether or not we have a "Custom" model
 	 */
@@ -430,4 +695,83 @@ public class DbInfoModel {
 		}
 		return detailList;
 	}
+	
+	/**
+	 * Retrieve the column names of a "ResultSet"
+	 */
+	private String[] getColumnNames(ResultSet rset) throws SQLException {
+		ResultSetMetaData rsmd = rset.getMetaData();
+		String[] colName = new String[rsmd.getColumnCount()];
+		for (int i=0;  i<colName.length;  i++) {
+			colName[i] = rsmd.getColumnName(i+1);
+		}
+		return colName;
+	}
+	
+	/**
+	 * Retrieve the details of a query covering many tables, split up by the
+	 * value of the "TABLE_NAME" column
+	 * 
+	 * @param rset The "ResultSet" returned from the query
+	 * @param colName The column names
+	 * @return a Map of table name to a List of "Map" instances that contain
+	 * all of the meta data for that table
+	 */
+	private Map<String,List<Map<String,String>>> partitionResults(ResultSet rset, String[] colName)
+	throws SQLException {
+		Map<String,List<Map<String,String>>> details = new HashMap<String,List<Map<String,String>>>();
+		String tableCol = null;
+		for (int i=0;  i<colName.length;  i++) {
+			if ("TABLE_NAME".equalsIgnoreCase(colName[i])) {
+				tableCol = colName[i];
+			}
+		}
+		if (tableCol == null) {
+			return details;
+		}
+		
+		while (rset.next()) {
+			HashMap<String,String> hmTemp = new HashMap<String,String>();
+			for (int i=0;  i<colName.length;  i++) {
+				hmTemp.put(colName[i], rset.getString(i+1));
+			}
+			List<Map<String,String>> detailList = details.get(hmTemp.get(tableCol));
+			if (detailList == null) {
+				detailList = new ArrayList<Map<String,String>>(10);
+				details.put(hmTemp.get(tableCol), detailList);
+			}
+			detailList.add(hmTemp);
+		}
+		return details;
+	}
+	
+	/**
+	 * Everything that has to match for cached meta-data to still be good
+	 */
+	private String getIdentity() {
+		return dbName + "|" + dbVersion + "|" + dbDriver + "|" + dbURL + "|" + dbUser;
+	}
+	
+	/**
+	 * Write a structure, which may not have been created yet, to the on-disk
+	 * meta-data cache
+	 */
+	private void writeStructure(MetaDataFile out, DbStructure dbStruct) throws java.io.IOException {
+		out.writeInt(dbStruct == null ? 0 : 1);
+		if (dbStruct != null) {
+			dbStruct.writeCache(out);
+		}
+	}
+	
+	/**
+	 * Read a structure from the on-disk meta-data cache
+	 * @return the structure, or null if it hadn't been created
+	 */
+	private DbStructure readStructure(MetaDataFile in, DbStructure dbStruct) throws java.io.IOException {
+		if (in.readInt() == 0) {
+			return null;
+		}
+		dbStruct.readCache(in);
+		return dbStruct;
+	}
 }
@@ -35,6 +35,12 @@ public class DbProcedureSet extends DbStructure {
 		setNames(conn, catalog, schema, null);
 	}
 
+	/**
+	 * Create an empty instance, to be filled in from the on-disk meta-data cache
+	 */
+	DbProcedureSet() {
+	}
+
 	/**
 	 * @return the column header name for this field
 	 */
@@ -11,6 +11,17 @@ import java.sql.Connection;
  */
 public interface DbRawDataType {
 
+	/**
+	 * Receive the source definitions from "getSources(...)", one entry at a time
+	 */
+	public interface SourceHandler {
+		/**
+		 * @param entry specific entry
+		 * @param source source definition
+		 */
+		public void handleSource(String entry, String source);
+	}
+
 	/**
 	 * @return A "String" representation/label for this data element
 	 */
@@ -45,6 +56,20 @@ public interface DbRawDataType {
 	 */
 	public String   getSource(String catalog, String schema, String entry);
 
+	/**
+	 * Return the source definitions for every entry of this type, with a few
+	 * set-based queries rather than one "getSource(...)" call per entry.  Each
+	 * definition is handed to the handler as soon as it's complete, in entry
+	 * order, so the whole schema is never held in memory.  An entry may be
+	 * missing if the bulk queries find nothing for it.
+	 * @param catalog active catalog/database
+	 * @param schema active schema
+	 * @param handler receives each entry and its source definition
+	 * @return TRUE if the sources were returned, FALSE if this type doesn't
+	 *         support bulk extraction
+	 */
+	public boolean  getSources(String catalog, String schema, SourceHandler handler);
+
 	/**
 	 * Return a string that represents the SQL to create a new entry
 	 * @param catalog active catalog/database
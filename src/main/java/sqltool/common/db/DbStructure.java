@@ -2,6 +2,7 @@ package sqltool.common.db;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -111,7 +112,7 @@ public abstract class DbStructure {
 	 * @param name key into list
 	 * @return list of hash-maps
 	 */
-	public List<Map<String,String>> getEntry(String name) {
+	public synchronized List<Map<String,String>> getEntry(String name) {
 		return entries.get(name);
 	}
 	
@@ -123,7 +124,7 @@ public abstract class DbStructure {
 	 * @param schema the schema name in which to search
 	 * @param entryName the entry name [table/view] name to check
 	 */
-	public void populateEntry(Connection conn, String catalog, String schema, String entryName) {
+	public synchronized void populateEntry(Connection conn, String catalog, String schema, String entryName) {
 		ResultSet rset = null;
 		
 		// If the details are already present, do nothing
@@ -165,4 +166,60 @@ public abstract class DbStructure {
 			try { if (rset != null) rset.close(); } catch (Exception ex) { }
 		}
 	}
+	
+	/**
+	 * Add the entry details for many entries at once, from a single query that
+	 * covered the whole schema.  Every one of our entries that isn't already
+	 * present is set, to an empty list if the query had nothing for it, so
+	 * we won't go back to the database for it later.
+	 * 
+	 * @param colNames names of the detail columns
+	 * @param details entry details, keyed by entry name
+	 */
+	synchronized void addEntries(String[] colNames, Map<String,List<Map<String,String>>> details) {
+		if (columns.length == 0) {
+			columns = colNames;
+		}
+		
+		int count = 0;
+		for (String name : names) {
+			if (! entries.containsKey(name)) {
+				List<Map<String,String>> detailList = details.get(name);
+				entries.put(name, (detailList == null) ? new ArrayList<Map<String,String>>(0) : detailList);
+				count++;
+			}
+		}
+		SqlToolkit.appLogger.logDebug("DbStructure.addEntries, count: " + count);
+	}
+	
+	/**
+	 * Write the names and entry details to the on-disk meta-data cache
+	 * 
+	 * @param out meta-data cache file
+	 */
+	synchronized void writeCache(MetaDataFile out) throws java.io.IOException {
+		out.writeStrings(names.toArray(new String[names.size()]));
+		out.writeStrings(columns);
+		out.writeInt(entries.size());
+		for (Map.Entry<String,List<Map<String,String>>> entry : entries.entrySet()) {
+			out.writeString(entry.getKey());
+			out.writeDetails(entry.getValue());
+		}
+	}
+	
+	/**
+	 * Read the names and entry details from the on-disk meta-data cache
+	 * 
+	 * @param in meta-data cache file
+	 */
+	void readCache(MetaDataFile in) throws java.io.IOException {
+		names   = new ArrayList<String>(Arrays.asList(in.readStrings()));
+		columns = in.readStrings();
+		entries = new TreeMap<String,List<Map<String,String>>>();
+		int count = in.readInt();
+		for (int i=0;  i<count;  i++) {
+			String name = in.readString();
+			entries.put(name, in.readDetails());
+		}
+	}
 }
@@ -25,6 +25,12 @@ public class DbTableSet extends DbStructure {
 	public DbTableSet(Connection conn, String catalog, String schema, String type) {
 		setNames(conn, catalog, schema, type);
 	}
+
+	/**
+	 * Create an empty instance, to be filled in from the on-disk meta-data cache
+	 */
+	DbTableSet() {
+	}
 	
 	/**
 	 * @return the column header name for this field
@@ -0,0 +1,102 @@
+package sqltool.common.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Run a schema-wide meta-data query whose rows are sorted by their first
+ * column, and hand each run of rows with the same first column to a handler
+ * as soon as it's complete, so the custom models can stream the sources of a
+ * whole schema rather than holding all of them in memory.
+ * <p>
+ * The rows are fetched {@link #FETCH_SIZE} at a time.  The fetch size has to
+ * be set before the query runs, and some drivers -- Postgres in particular --
+ * only use a cursor, rather than reading the whole result, when auto-commit
+ * is off; for those, auto-commit is turned off while the query runs.
+ *
+ * @author wjohnson000
+ */
+public class GroupedQuery {
+
+	/** Number of rows fetched from the database at a time */
+	public static final int FETCH_SIZE = 500;
+
+	/**
+	 * Receive the rows of a grouped query, one group at a time
+	 */
+	public interface GroupHandler {
+		/**
+		 * @param key value of the first column, shared by the group
+		 * @param rows rows of the group, without the first column
+		 */
+		public void handleGroup(String key, List<String[]> rows);
+	}
+
+	/**
+	 * Run a grouped query as a prepared statement from the connection's
+	 * statement cache
+	 * @param conn database connection
+	 * @param query query to execute, with a "?" for each parameter
+	 * @param needsCursor TRUE if auto-commit must be off for the driver to
+	 *        fetch the rows a few at a time
+	 * @param handler receives each group of rows
+	 * @param params parameter values
+	 * @throws SQLException
+	 */
+	public static void Run(Connection conn, String query, boolean needsCursor, GroupHandler handler, String... params) throws SQLException {
+		PreparedStatement stmt = null;
+		ResultSet rset = null;
+		boolean resetAutoCommit = false;
+
+		try {
+			if (needsCursor  &&  conn.getAutoCommit()) {
+				conn.setAutoCommit(false);
+				resetAutoCommit = true;
+			}
+			stmt = StatementCache.Borrow(conn, query);
+			stmt.setFetchSize(FETCH_SIZE);
+			for (int i=0;  i<params.length;  i++) {
+				stmt.setString(i+1, params[i]);
+			}
+			rset = stmt.executeQuery();
+			int count = rset.getMetaData().getColumnCount();
+
+			String key = null;
+			List<String[]> rows = new ArrayList<String[]>();
+			while (rset.next()) {
+				String rowKey = rset.getString(1);
+				if (key != null  &&  ! key.equals(rowKey)) {
+					handler.handleGroup(key, rows);
+					rows = new ArrayList<String[]>();
+				}
+				key = rowKey;
+
+				String[] row = new String[count-1];
+				for (int i=1;  i<count;  i++) {
+					row[i-1] = rset.getString(i+1);
+				}
+				rows.add(row);
+			}
+			if (key != null) {
+				handler.handleGroup(key, rows);
+			}
+		} finally {
+			if (rset != null) try { rset.close(); } catch (Exception ex) { }
+			StatementCache.Release(conn, query, stmt);
+			if (resetAutoCommit) {
+				try { conn.rollback(); } catch (Exception ex) { }
+				try { conn.setAutoCommit(true); } catch (Exception ex) { }
+			}
+		}
+	}
+
+	/**
+	 * Private constructor, so the class can't be instantiated.
+	 */
+	private GroupedQuery() { }
+}
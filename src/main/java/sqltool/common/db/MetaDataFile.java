@@ -0,0 +1,163 @@
+package sqltool.common.db;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Read and write the pieces of a {@link DbInfoModel} for the on-disk
+ * meta-data cache.  Meta-data is very repetitive -- the same column names,
+ * type names and schema names appear on every row -- so each distinct string
+ * is written out once, and after that only its position in a dictionary.
+ * The stream itself is gzip-ed by {@link DbInfoCache}.
+ *
+ * @author wjohnson000
+ *
+ */
+class MetaDataFile {
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** String codes: a null string, or a string not seen before */
+	static final int STRING_NULL = -1;
+	static final int STRING_NEW  = -2;
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- out: stream being written, or null if we're reading
+	//   -- in: stream being read, or null if we're writing
+	//   -- writeDict: position of each string written so far
+	//   -- readDict: strings read so far, in order
+	// =============================================================================
+	private DataOutputStream out = null;
+	private DataInputStream  in  = null;
+	private Map<String,Integer> writeDict = new HashMap<String,Integer>();
+	private List<String>        readDict  = new ArrayList<String>();
+
+	/**
+	 * Create a writer
+	 * @param out stream to write
+	 */
+	MetaDataFile(DataOutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Create a reader
+	 * @param in stream to read
+	 */
+	MetaDataFile(DataInputStream in) {
+		this.in = in;
+	}
+
+	void writeInt(int value) throws IOException {
+		out.writeInt(value);
+	}
+
+	int readInt() throws IOException {
+		return in.readInt();
+	}
+
+	void writeLong(long value) throws IOException {
+		out.writeLong(value);
+	}
+
+	long readLong() throws IOException {
+		return in.readLong();
+	}
+
+	/**
+	 * Write a string, or just its dictionary position if it's been written
+	 * before
+	 */
+	void writeString(String value) throws IOException {
+		if (value == null) {
+			out.writeInt(STRING_NULL);
+			return;
+		}
+
+		Integer ndx = writeDict.get(value);
+		if (ndx != null) {
+			out.writeInt(ndx.intValue());
+		} else {
+			byte[] utf = value.getBytes(UTF8);
+			out.writeInt(STRING_NEW);
+			out.writeInt(utf.length);
+			out.write(utf);
+			writeDict.put(value, Integer.valueOf(writeDict.size()));
+		}
+	}
+
+	String readString() throws IOException {
+		int code = in.readInt();
+		if (code == STRING_NULL) {
+			return null;
+		} else if (code == STRING_NEW) {
+			byte[] utf = new byte[in.readInt()];
+			in.readFully(utf);
+			String value = new String(utf, UTF8);
+			readDict.add(value);
+			return value;
+		} else if (code >= 0  &&  code < readDict.size()) {
+			return readDict.get(code);
+		} else {
+			throw new IOException("Bad string code: " + code);
+		}
+	}
+
+	void writeStrings(String[] values) throws IOException {
+		out.writeInt(values == null ? -1 : values.length);
+		if (values != null) {
+			for (String value : values) {
+				writeString(value);
+			}
+		}
+	}
+
+	String[] readStrings() throws IOException {
+		int count = in.readInt();
+		if (count < 0) {
+			return null;
+		}
+		String[] values = new String[count];
+		for (int i=0;  i<count;  i++) {
+			values[i] = readString();
+		}
+		return values;
+	}
+
+	/**
+	 * Write a list of detail rows, as returned from a DatabaseMetaData query
+	 */
+	void writeDetails(List<Map<String,String>> details) throws IOException {
+		out.writeInt(details.size());
+		for (Map<String,String> detail : details) {
+			out.writeInt(detail.size());
+			for (Map.Entry<String,String> entry : detail.entrySet()) {
+				writeString(entry.getKey());
+				writeString(entry.getValue());
+			}
+		}
+	}
+
+	List<Map<String,String>> readDetails() throws IOException {
+		int count = in.readInt();
+		List<Map<String,String>> details = new ArrayList<Map<String,String>>(count);
+		for (int i=0;  i<count;  i++) {
+			int size = in.readInt();
+			HashMap<String,String> hmTemp = new HashMap<String,String>();
+			for (int j=0;  j<size;  j++) {
+				String key = readString();
+				hmTemp.put(key, readString());
+			}
+			details.add(hmTemp);
+		}
+		return details;
+	}
+}
@@ -0,0 +1,188 @@
+package sqltool.common.db;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import sqltool.common.SqlToolkit;
+
+
+/**
+ * A bounded cache for the entry lists and scripts generated by the custom
+ * models.  Entries are kept in least-recently-used order, and the oldest are
+ * evicted once there are too many of them or their estimated size passes the
+ * limit.  Every entry also expires a fixed time after it was added, so a
+ * script that has since changed in the database is eventually re-read.  Each
+ * entry belongs to a group -- a model's data type -- so all of the entries for
+ * one data type can be dropped at once.
+ * <p>
+ * A single instance is shared by all custom models, so the memory it uses
+ * doesn't grow with the number of databases visited in a session.
+ *
+ * @author wjohnson000
+ *
+ */
+public class ObjectCache {
+
+	/** Maximum number of entries, whatever their size */
+	static final int MAX_ENTRIES = 10000;
+
+	/**
+	 * A cached value, the group it belongs to, its estimated size and when
+	 * it expires
+	 */
+	static class Entry {
+		Object value;
+		String group;
+		long   weight;
+		long   expires;
+	}
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- entries: cached entries, least-recently-used first
+	//   -- weight: estimated size [bytes] of all entries
+	//   -- hits, misses, evictions, expirations: statistics
+	// =============================================================================
+	private LinkedHashMap<String,Entry> entries = new LinkedHashMap<String,Entry>(256, 0.75f, true);
+	private long weight = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long expirations = 0;
+
+	/**
+	 * Return a cached value, if it's there and hasn't expired
+	 * @param key cache key
+	 * @return value, or null
+	 */
+	public synchronized Object get(String key) {
+		Entry entry = entries.get(key);
+		if (entry != null  &&  entry.expires < System.currentTimeMillis()) {
+			removeEntry(key);
+			expirations++;
+			entry = null;
+		}
+
+		if (entry == null) {
+			misses++;
+			return null;
+		} else {
+			hits++;
+			return entry.value;
+		}
+	}
+
+	/**
+	 * Add a value to the cache, evicting the least-recently-used entries if
+	 * the cache is now too big.  The limits are taken from the user
+	 * configuration, so a change takes effect right away.
+	 * @param key cache key
+	 * @param group group the value belongs to
+	 * @param value value; a null value isn't cached
+	 */
+	public synchronized void put(String key, String group, Object value) {
+		removeEntry(key);
+		if (value == null) {
+			return;
+		}
+
+		Entry entry = new Entry();
+		entry.value   = value;
+		entry.group   = group;
+		entry.weight  = EstimateWeight(value);
+		entry.expires = System.currentTimeMillis() + SqlToolkit.userConfig.getCustomCacheMinutes() * 60L * 1000L;
+		entries.put(key, entry);
+		weight += entry.weight;
+
+		long maxWeight = SqlToolkit.userConfig.getCustomCacheMB() * 1024L * 1024L;
+		Iterator<Map.Entry<String,Entry>> iter = entries.entrySet().iterator();
+		while (entries.size() > 1  &&  (entries.size() > MAX_ENTRIES  ||  weight > maxWeight)) {
+			Entry eldest = iter.next().getValue();
+			iter.remove();
+			weight -= eldest.weight;
+			evictions++;
+		}
+	}
+
+	/**
+	 * Drop every entry in a group
+	 * @param group group name
+	 */
+	public synchronized void invalidate(String group) {
+		int count = 0;
+		Iterator<Entry> iter = entries.values().iterator();
+		while (iter.hasNext()) {
+			Entry entry = iter.next();
+			if (group.equals(entry.group)) {
+				iter.remove();
+				weight -= entry.weight;
+				count++;
+			}
+		}
+		SqlToolkit.appLogger.logDebug("ObjectCache.invalidate: " + group + ", count=" + count + ", " + getStats());
+	}
+
+	/**
+	 * Drop every entry in all groups starting with a prefix
+	 * @param prefix group prefix
+	 */
+	public synchronized void invalidateAll(String prefix) {
+		Iterator<Entry> iter = entries.values().iterator();
+		while (iter.hasNext()) {
+			Entry entry = iter.next();
+			if (entry.group.startsWith(prefix)) {
+				iter.remove();
+				weight -= entry.weight;
+			}
+		}
+	}
+
+	public synchronized int  getSize()        { return entries.size(); }
+	public synchronized long getWeight()      { return weight; }
+	public synchronized long getHits()        { return hits; }
+	public synchronized long getMisses()      { return misses; }
+	public synchronized long getEvictions()   { return evictions; }
+	public synchronized long getExpirations() { return expirations; }
+
+	/**
+	 * @return summary of the cache statistics
+	 */
+	public synchronized String getStats() {
+		long total = hits + misses;
+		return "entries=" + entries.size() + ", kb=" + (weight / 1024) +
+			", hits=" + hits + ", misses=" + misses +
+			", hit-rate=" + (total == 0 ? 0 : (100 * hits / total)) + "%" +
+			", evictions=" + evictions + ", expirations=" + expirations;
+	}
+
+	/**
+	 * Remove an entry, if it's there
+	 */
+	private void removeEntry(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			weight -= entry.weight;
+		}
+	}
+
+	/**
+	 * Rough estimate of the heap used by a cached value: a string, or an
+	 * array of strings
+	 * @param value cached value
+	 * @return estimated number of bytes
+	 */
+	static long EstimateWeight(Object value) {
+		if (value instanceof String) {
+			return 48 + 2L * ((String)value).length();
+		} else if (value instanceof Object[]) {
+			long total = 16;
+			for (Object item : (Object[])value) {
+				total += 8 + ((item == null) ? 0 : EstimateWeight(item));
+			}
+			return total;
+		} else {
+			return 64;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package sqltool.common.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Cache the prepared statements used by the custom models' meta-data queries,
+ * per connection, so browsing a schema re-uses statements the database has
+ * already parsed rather than sending new SQL text for every click.  Only the
+ * most recently used statements are kept for each connection; the rest are
+ * closed.
+ * <p>
+ * A statement is lent out by "Borrow(...)" and taken out of the cache until
+ * it's handed back by "Release(...)", so two threads never share one.  When a
+ * connection is closed, "Close(...)" closes its statements.
+ *
+ * @author wjohnson000
+ */
+public class StatementCache {
+
+	/** Maximum number of statements kept for each connection */
+	static final int MAX_STATEMENTS = 32;
+
+	/** Cached statements, by connection, then SQL, least-recently-used first */
+	private static Map<Connection,LinkedHashMap<String,PreparedStatement>> stmtCache =
+			new HashMap<Connection,LinkedHashMap<String,PreparedStatement>>();
+
+	/**
+	 * Return a prepared statement for the given SQL, from the cache if there
+	 * is one, otherwise a new one.  It must be handed back via "Release(...)".
+	 * @param conn database connection
+	 * @param sql SQL text, with "?" for each parameter
+	 * @return prepared statement
+	 * @throws SQLException
+	 */
+	public static PreparedStatement Borrow(Connection conn, String sql) throws SQLException {
+		PreparedStatement stmt = null;
+		synchronized(stmtCache) {
+			LinkedHashMap<String,PreparedStatement> stmts = stmtCache.get(conn);
+			if (stmts != null) {
+				stmt = stmts.remove(sql);
+			}
+		}
+
+		if (stmt != null) {
+			try {
+				if (! stmt.isClosed()) {
+					stmt.clearParameters();
+					return stmt;
+				}
+			} catch (Exception ex) { }
+			try { stmt.close(); } catch (Exception ex) { }
+		}
+		return conn.prepareStatement(sql);
+	}
+
+	/**
+	 * Hand back a statement, to be re-used.  If the cache for the connection
+	 * is full, the least-recently-used statement is closed.
+	 * @param conn database connection
+	 * @param sql SQL text the statement was prepared with
+	 * @param stmt prepared statement, or null
+	 */
+	public static void Release(Connection conn, String sql, PreparedStatement stmt) {
+		if (stmt == null) {
+			return;
+		}
+
+		List<PreparedStatement> toClose = new ArrayList<PreparedStatement>(2);
+		synchronized(stmtCache) {
+			LinkedHashMap<String,PreparedStatement> stmts = stmtCache.get(conn);
+			if (stmts == null) {
+				stmts = new LinkedHashMap<String,PreparedStatement>(MAX_STATEMENTS * 2, 0.75f, true);
+				stmtCache.put(conn, stmts);
+			}
+
+			PreparedStatement oldStmt = stmts.put(sql, stmt);
+			if (oldStmt != null) {
+				toClose.add(oldStmt);
+			}
+			while (stmts.size() > MAX_STATEMENTS) {
+				String eldest = stmts.keySet().iterator().next();
+				toClose.add(stmts.remove(eldest));
+			}
+		}
+
+		for (PreparedStatement closeStmt : toClose) {
+			try { closeStmt.close(); } catch (Exception ex) { }
+		}
+	}
+
+	/**
+	 * A connection is being closed: close all of its cached statements
+	 * @param conn database connection
+	 */
+	public static void Close(Connection conn) {
+		LinkedHashMap<String,PreparedStatement> stmts = null;
+		synchronized(stmtCache) {
+			stmts = stmtCache.remove(conn);
+		}
+
+		if (stmts != null) {
+			for (PreparedStatement stmt : stmts.values()) {
+				try { stmt.close(); } catch (Exception ex) { }
+			}
+		}
+	}
+
+	/**
+	 * Private constructor, so the class can't be instantiated.
+	 */
+	private StatementCache() { }
+}
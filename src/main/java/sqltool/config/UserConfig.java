@@ -22,6 +22,18 @@ public class UserConfig extends BaseConfig {
     public static final String PARAM_BODY_DELIM   = "body.delimiter";
 	public static final String PARAM_LOG_LEVEL    = "log.level";
 	public static final String PARAM_LOG_FILE     = "log.file";
+	public static final String PARAM_POOL_SIZE    = "pool.size";
+	public static final String PARAM_POOL_IDLE    = "pool.idle.seconds";
+	public static final String PARAM_POOL_LIFE    = "pool.lifetime.seconds";
+	public static final String PARAM_POOL_WAIT    = "pool.wait.seconds";
+	public static final String PARAM_POOL_CHECK   = "pool.check.seconds";
+	public static final String PARAM_RESULT_HEAP  = "result.heap.mb";
+	public static final String PARAM_META_CACHE   = "metadata.cache.hours";
+	public static final String PARAM_CUSTOM_CACHE = "custom.cache.mb";
+	public static final String PARAM_CUSTOM_TTL   = "custom.cache.minutes";
+	public static final String PARAM_BATCH_SIZE   = "script.batch.size";
+	public static final String PARAM_COMMIT_EVERY = "script.commit.statements";
+	public static final String PARAM_MULTI_CONNS  = "multi.parallel.connections";
 
 	public static final String FONT_QUERY_EDITOR  = "query.editor.font";
 	public static final String FONT_QUERY_RESULT  = "query.result.font";
@@ -59,6 +71,42 @@ public class UserConfig extends BaseConfig {
 		if (getLogFile() == null) {
 			setLogFile("");
 		}
+		if (getPoolSize() == 0) {
+			setPoolSize(4);
+		}
+		if (getPoolIdleSeconds() == 0) {
+			setPoolIdleSeconds(600);
+		}
+		if (getPoolLifetimeSeconds() == 0) {
+			setPoolLifetimeSeconds(3600);
+		}
+		if (getPoolWaitSeconds() == 0) {
+			setPoolWaitSeconds(10);
+		}
+		if (getPoolCheckSeconds() == 0) {
+			setPoolCheckSeconds(30);
+		}
+		if (getResultHeapMB() == 0) {
+			setResultHeapMB(256);
+		}
+		if (getMetaCacheHours() == 0) {
+			setMetaCacheHours(24);
+		}
+		if (getCustomCacheMB() == 0) {
+			setCustomCacheMB(32);
+		}
+		if (getCustomCacheMinutes() == 0) {
+			setCustomCacheMinutes(30);
+		}
+		if (getScriptBatchSize() == 0) {
+			setScriptBatchSize(100);
+		}
+		if (getScriptCommitStatements() == 0) {
+			setScriptCommitStatements(1000);
+		}
+		if (getMultiConnections() == 0) {
+			setMultiConnections(1);
+		}
 	}
 	
 	/**
@@ -184,5 +232,150 @@ public class UserConfig extends BaseConfig {
 		setStringValue(PARAM_LOG_FILE, val);
 		notifyAll(PARAM_LOG_FILE);
 	}
+	
+	/**
+	 * Manage the maximum number of pooled connections per database, default
+	 * to 4
+	 * @param alias
+	 */
+	public int getPoolSize() {
+		return getIntValue(PARAM_POOL_SIZE);
+	}
+	
+	public void setPoolSize(int val) {
+		setIntValue(PARAM_POOL_SIZE, Math.max(val, 1));
+		notifyAll(PARAM_POOL_SIZE);
+	}
+	
+	/**
+	 * Manage how long a pooled connection may sit idle before it's closed,
+	 * default to 10 minutes
+	 * @param alias
+	 */
+	public int getPoolIdleSeconds() {
+		return getIntValue(PARAM_POOL_IDLE);
+	}
+	
+	public void setPoolIdleSeconds(int val) {
+		setIntValue(PARAM_POOL_IDLE, val);
+		notifyAll(PARAM_POOL_IDLE);
+	}
+	
+	/**
+	 * Manage the maximum lifetime of a pooled connection, default to one hour
+	 * @param alias
+	 */
+	public int getPoolLifetimeSeconds() {
+		return getIntValue(PARAM_POOL_LIFE);
+	}
+	
+	public void setPoolLifetimeSeconds(int val) {
+		setIntValue(PARAM_POOL_LIFE, val);
+		notifyAll(PARAM_POOL_LIFE);
+	}
+	
+	/**
+	 * Manage how long to wait for a pooled connection when they are all in
+	 * use, default to 10 seconds
+	 * @param alias
+	 */
+	public int getPoolWaitSeconds() {
+		return getIntValue(PARAM_POOL_WAIT);
+	}
+	
+	public void setPoolWaitSeconds(int val) {
+		setIntValue(PARAM_POOL_WAIT, val);
+		notifyAll(PARAM_POOL_WAIT);
+	}
+	
+	/**
+	 * Manage how long a connection may go unused before it's checked again,
+	 * default to 30 seconds
+	 * @param alias
+	 */
+	public int getPoolCheckSeconds() {
+		return getIntValue(PARAM_POOL_CHECK);
+	}
+	
+	public void setPoolCheckSeconds(int val) {
+		setIntValue(PARAM_POOL_CHECK, val);
+		notifyAll(PARAM_POOL_CHECK);
+	}
+	
+	/**
+	 * Manage how much heap [in MB] the rows of a single query result may use
+	 * before they start spilling to a temporary file, default to 256 MB
+	 * @param alias
+	 */
+	public int getResultHeapMB() {
+		return getIntValue(PARAM_RESULT_HEAP);
+	}
+	
+	public void setResultHeapMB(int val) {
+		setIntValue(PARAM_RESULT_HEAP, Math.max(val, 1));
+		notifyAll(PARAM_RESULT_HEAP);
+	}
+	
+	public int getMetaCacheHours() {
+		return getIntValue(PARAM_META_CACHE);
+	}
+	
+	public void setMetaCacheHours(int val) {
+		setIntValue(PARAM_META_CACHE, Math.max(val, 1));
+		notifyAll(PARAM_META_CACHE);
+	}
+	
+	public int getCustomCacheMB() {
+		return getIntValue(PARAM_CUSTOM_CACHE);
+	}
+	
+	public void setCustomCacheMB(int val) {
+		setIntValue(PARAM_CUSTOM_CACHE, Math.max(val, 1));
+		notifyAll(PARAM_CUSTOM_CACHE);
+	}
+	
+	public int getCustomCacheMinutes() {
+		return getIntValue(PARAM_CUSTOM_TTL);
+	}
+	
+	public void setCustomCacheMinutes(int val) {
+		setIntValue(PARAM_CUSTOM_TTL, Math.max(val, 1));
+		notifyAll(PARAM_CUSTOM_TTL);
+	}
+
+	/**
+	 * Manage how statements run from a file are sent -- this many in each
+	 * batch -- and committed -- after about this many statements
+	 */
+	public int getScriptBatchSize() {
+		return getIntValue(PARAM_BATCH_SIZE);
+	}
+
+	public void setScriptBatchSize(int val) {
+		setIntValue(PARAM_BATCH_SIZE, Math.max(val, 1));
+		notifyAll(PARAM_BATCH_SIZE);
+	}
+
+	public int getScriptCommitStatements() {
+		return getIntValue(PARAM_COMMIT_EVERY);
+	}
+
+	public void setScriptCommitStatements(int val) {
+		setIntValue(PARAM_COMMIT_EVERY, Math.max(val, 1));
+		notifyAll(PARAM_COMMIT_EVERY);
+	}
+
+	/**
+	 * Manage the number of pooled connections multiple queries are run on at
+	 * once; one (1) runs them one after another on the tab's connection
+	 */
+	public int getMultiConnections() {
+		return getIntValue(PARAM_MULTI_CONNS);
+	}
+
+	public void setMultiConnections(int val) {
+		setIntValue(PARAM_MULTI_CONNS, Math.max(val, 1));
+		notifyAll(PARAM_MULTI_CONNS);
+	}
 
 }
@@ -0,0 +1,166 @@
+package sqltool.query;
+
+
+/**
+ * A case-insensitive set of words [keywords, function names] that can be
+ * checked against a range of characters, so the lexer can classify a token
+ * without first turning it into an upper-case String.  The words are kept in
+ * an open-addressing hash table, folded to upper-case when they are added.
+ * Only ASCII letters are folded, which is all that an SQL token can hold.
+ * A set is never changed once it's built, so the lexer can safely use it
+ * from a background thread; adding words creates a new set.
+ *
+ * @author wjohnson000
+ *
+ */
+class KeywordSet {
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- words: hash table of upper-case words, null for an empty slot
+	//   -- hashes: hash code of the word in each slot
+	//   -- size: number of words in the set
+	// =============================================================================
+	private char[][] words  = new char[256][];
+	private int[]    hashes = new int[256];
+	private int      size   = 0;
+
+	/**
+	 * Create a set holding the given words
+	 * @param wordList words to add
+	 */
+	KeywordSet(String[] wordList) {
+		addAll(wordList);
+	}
+
+	/**
+	 * Create a set holding the words of an existing set plus some new ones
+	 * @param base existing set
+	 * @param wordList words to add
+	 */
+	KeywordSet(KeywordSet base, String[] wordList) {
+		words  = base.words.clone();
+		hashes = base.hashes.clone();
+		size   = base.size;
+		addAll(wordList);
+	}
+
+	/**
+	 * Add a list of words; null or empty words are ignored, as are words that
+	 * are already in the set
+	 * @param wordList words to add
+	 */
+	private void addAll(String[] wordList) {
+		if (wordList != null) {
+			for (int i=0;  i<wordList.length;  i++) {
+				if (wordList[i] != null) {
+					add(wordList[i].trim());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return number of words in the set
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Check if a range of characters matches a word in the set, ignoring case
+	 * @param text array holding the characters
+	 * @param start start of the range
+	 * @param len length of the range
+	 * @return TRUE if the characters match a word; FALSE otherwise
+	 */
+	boolean contains(char[] text, int start, int len) {
+		int hash = Hash(text, start, len);
+		int mask = words.length - 1;
+		for (int slot=hash & mask;  words[slot] != null;  slot=(slot+1) & mask) {
+			if (hashes[slot] == hash  &&  Matches(words[slot], text, start, len)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add a single word, growing the table so it's never more than half full
+	 * @param word word to add
+	 */
+	private void add(String word) {
+		if (word.length() == 0) {
+			return;
+		}
+
+		char[] chars = new char[word.length()];
+		for (int i=0;  i<chars.length;  i++) {
+			chars[i] = Fold(word.charAt(i));
+		}
+		if (contains(chars, 0, chars.length)) {
+			return;
+		}
+
+		if ((size+1) * 2 > words.length) {
+			char[][] oldWords = words;
+			int[] oldHashes = hashes;
+			words  = new char[oldWords.length*2][];
+			hashes = new int[oldWords.length*2];
+			for (int i=0;  i<oldWords.length;  i++) {
+				if (oldWords[i] != null) {
+					insert(oldWords[i], oldHashes[i]);
+				}
+			}
+		}
+		insert(chars, Hash(chars, 0, chars.length));
+		size++;
+	}
+
+	/**
+	 * Put a word into the first free slot for its hash code
+	 */
+	private void insert(char[] chars, int hash) {
+		int mask = words.length - 1;
+		int slot = hash & mask;
+		while (words[slot] != null) {
+			slot = (slot+1) & mask;
+		}
+		words[slot]  = chars;
+		hashes[slot] = hash;
+	}
+
+	/**
+	 * Case-insensitive hash code of a range of characters, with the bits
+	 * spread out a bit so similar words don't cluster in the table
+	 */
+	private static int Hash(char[] text, int start, int len) {
+		int hash = 0;
+		for (int i=start;  i<start+len;  i++) {
+			hash = 31*hash + Fold(text[i]);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Compare an upper-case word to a range of characters, ignoring case
+	 */
+	private static boolean Matches(char[] word, char[] text, int start, int len) {
+		if (word.length != len) {
+			return false;
+		}
+		for (int i=0;  i<len;  i++) {
+			if (word[i] != Fold(text[start+i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fold a lower-case ASCII letter to upper-case
+	 */
+	private static char Fold(char ch) {
+		return (ch >= 'a'  &&  ch <= 'z') ? (char)(ch - ('a'-'A')) : ch;
+	}
+}
@@ -0,0 +1,230 @@
+package sqltool.query;
+
+
+/**
+ * The length of every line in a document, kept up-to-date as the text is edited
+ * so the line count and the longest line are always at hand.  The lengths are
+ * held in a gap buffer, so inserting or removing lines near the last edit only
+ * touches those lines.  A count of how many lines have each length gives the
+ * maximum length directly, and we remember one line with that length; only if
+ * that line shrinks or goes away do we have to look for another.  Lines of
+ * "COUNT_LIMIT" characters or more are only counted, not by length, so one very
+ * long line doesn't cost a huge count table; if the longest of them shrinks or
+ * goes away, the new maximum is found by looking at every line.
+ *
+ * @author wjohnson000
+ *
+ */
+class LineIndex {
+
+	/** Lines this long, or longer, aren't counted by length */
+	static final int COUNT_LIMIT = 4096;
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- lengths: line lengths, with a gap between "gapStart" and "gapEnd"
+	//   -- counts: number of lines of each length, up to "COUNT_LIMIT"
+	//   -- longLines: number of lines of "COUNT_LIMIT" or more
+	//   -- maxLength: length of the longest line
+	//   -- longest: a line whose length is "maxLength", or -1 if not known
+	// =============================================================================
+	private int[] lengths  = new int[64];
+	private int   gapStart = 0;
+	private int   gapEnd   = 64;
+	private int[] counts   = new int[128];
+	private int   longLines = 0;
+	private int   maxLength = 0;
+	private int   longest   = -1;
+
+	/**
+	 * Create an index for an empty document, which has a single empty line
+	 */
+	LineIndex() {
+		insert(0, 0);
+	}
+
+	/**
+	 * @return number of lines
+	 */
+	int size() {
+		return lengths.length - (gapEnd - gapStart);
+	}
+
+	/**
+	 * @return length of the longest line
+	 */
+	int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * Return the length of a line
+	 * @param line line number, starting at zero
+	 * @return line length
+	 */
+	int getLength(int line) {
+		return (line < gapStart) ? lengths[line] : lengths[line + gapEnd - gapStart];
+	}
+
+	/**
+	 * Return a line whose length is the longest; if we don't know of one, look
+	 * for the first line with that length
+	 * @return line number
+	 */
+	int getLongest() {
+		if (longest < 0) {
+			for (int i=0;  i<size()  &&  longest<0;  i++) {
+				if (getLength(i) == maxLength) {
+					longest = i;
+				}
+			}
+		}
+		return longest;
+	}
+
+	/**
+	 * Change the length of a line
+	 * @param line line number
+	 * @param length new length
+	 */
+	void set(int line, int length) {
+		int ndx = (line < gapStart) ? line : line + gapEnd - gapStart;
+		int oldLength = lengths[ndx];
+		lengths[ndx] = length;
+		removeCount(oldLength);
+		findMaxLength();
+		addCount(length);
+		if (length == maxLength) {
+			longest = line;
+		}
+		checkLongest();
+	}
+
+	/**
+	 * Insert a new line
+	 * @param line line number of the new line; this line and all after it move down
+	 * @param length length of the new line
+	 */
+	void insert(int line, int length) {
+		moveGap(line);
+		if (gapStart == gapEnd) {
+			int[] newLengths = new int[lengths.length * 2];
+			int tail = lengths.length - gapEnd;
+			System.arraycopy(lengths, 0, newLengths, 0, gapStart);
+			System.arraycopy(lengths, gapEnd, newLengths, newLengths.length-tail, tail);
+			gapEnd = newLengths.length - tail;
+			lengths = newLengths;
+		}
+		lengths[gapStart++] = length;
+		addCount(length);
+
+		if (longest >= line) {
+			longest++;
+		}
+		if (length == maxLength) {
+			longest = line;
+		}
+	}
+
+	/**
+	 * Remove some lines
+	 * @param line first line to remove
+	 * @param count number of lines to remove
+	 */
+	void remove(int line, int count) {
+		moveGap(line);
+		for (int i=0;  i<count;  i++) {
+			removeCount(lengths[gapEnd++]);
+		}
+		findMaxLength();
+
+		if (longest >= line+count) {
+			longest -= count;
+		} else if (longest >= line) {
+			longest = -1;
+		}
+		checkLongest();
+	}
+
+	/**
+	 * Move the gap so that it starts at the given line
+	 */
+	private void moveGap(int line) {
+		if (line < gapStart) {
+			int count = gapStart - line;
+			System.arraycopy(lengths, line, lengths, gapEnd-count, count);
+			gapStart -= count;
+			gapEnd   -= count;
+		} else if (line > gapStart) {
+			int count = line - gapStart;
+			System.arraycopy(lengths, gapEnd, lengths, gapStart, count);
+			gapStart += count;
+			gapEnd   += count;
+		}
+	}
+
+	/**
+	 * Count one more line of the given length
+	 */
+	private void addCount(int length) {
+		if (length >= COUNT_LIMIT) {
+			longLines++;
+		} else {
+			if (length >= counts.length) {
+				int[] newCounts = new int[Math.min(COUNT_LIMIT, Math.max(counts.length*2, length+1))];
+				System.arraycopy(counts, 0, newCounts, 0, counts.length);
+				counts = newCounts;
+			}
+			counts[length]++;
+		}
+		maxLength = Math.max(maxLength, length);
+	}
+
+	/**
+	 * Count one less line of the given length.  If it was the longest of the
+	 * long lines, the maximum length is no longer known until the next call
+	 * to "findMaxLength()".
+	 */
+	private void removeCount(int length) {
+		if (length >= COUNT_LIMIT) {
+			longLines--;
+			if (length == maxLength) {
+				maxLength = -1;
+			}
+		} else {
+			counts[length]--;
+		}
+	}
+
+	/**
+	 * Bring the maximum length up-to-date after lines have been removed: from
+	 * the counts if there are no long lines, otherwise by looking at every line
+	 * if the longest one went away
+	 */
+	private void findMaxLength() {
+		if (longLines == 0) {
+			if (maxLength < 0  ||  maxLength >= counts.length) {
+				maxLength = counts.length - 1;
+			}
+			while (maxLength > 0  &&  counts[maxLength] == 0) {
+				maxLength--;
+			}
+		} else if (maxLength < 0) {
+			for (int i=0;  i<gapStart;  i++) {
+				maxLength = Math.max(maxLength, lengths[i]);
+			}
+			for (int i=gapEnd;  i<lengths.length;  i++) {
+				maxLength = Math.max(maxLength, lengths[i]);
+			}
+		}
+	}
+
+	/**
+	 * Forget the longest line if it's no longer the longest
+	 */
+	private void checkLongest() {
+		if (longest >= 0  &&  getLength(longest) != maxLength) {
+			longest = -1;
+		}
+	}
+}
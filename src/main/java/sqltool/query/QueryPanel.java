@@ -30,8 +30,9 @@ import java.nio.file.Paths;
 import java.sql.Clob;
 import java.sql.Connection;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Observable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 import javax.swing.*;
 import javax.swing.event.CaretEvent;
@@ -49,6 +50,7 @@ import sqltool.common.ConnectionManager;
 import sqltool.common.FindDialog;
 import sqltool.common.MenuHandler;
 import sqltool.common.MenuManager;
+import sqltool.common.SqlScriptReader;
 import sqltool.common.SqlToolkit;
 import sqltool.common.db.DbInfoCache;
 import sqltool.common.db.DbInfoModel;
@@ -57,6 +59,7 @@ import sqltool.server.DbDefinition;
 import sqltool.swing.extra.SqlTextPane;
 import sqltool.swing.extra.renderer.ClobRenderer;
 import sqltool.swing.extra.renderer.DecimalRenderer;
+import sqltool.table.ResultExporter;
 import sqltool.table.RowTable;
 import sqltool.table.RowTableModel;
 import sqltool.table.RowTableModelFactory;
@@ -95,6 +98,7 @@ public class QueryPanel extends TabParentPanel {
     static final String MENU_RUN_QUERY      = "run query  [F7]";
     static final String MENU_RUN_MULTI      = "run multiple  [F9]";
     static final String MENU_RUN_FROM_FILE  = "run from file ...";
+    static final String MENU_EXPORT_QUERY   = "export query to file ...";
     static final String MENU_SAVE_QUERY     = "save query ...";
     static final String MENU_SAVE_RESULTS   = "save results ...";
     static final String MENU_ROW_SELECTION  = "row selection";
@@ -118,6 +122,12 @@ public class QueryPanel extends TabParentPanel {
     //	  sqlDoc:  sql query document, with pretty colors
     //	  resultTableModel:  model associated with the "resultTable" instance
     //	  sqlModelFactory:  factory that builds the "resultTableModel" instance
+    //	  tabConn:  this panel's own, dedicated connection
+    //	  tabConnDef:  database definition that "tabConn" belongs to
+    //	  tabConnUsed:  time "tabConn" was last handed out or checked
+    //	  tabConnect:  dedicated connection being made, if any
+    //	  tabConnectDef:  database definition that "tabConnect" is for
+    //	  pendingConnect:  connection being made for the selected database, if any
     //	============================================================================
     private int           currentQuery = 0;
     private int           paneLocationSave = 0;
@@ -129,6 +139,12 @@ public class QueryPanel extends TabParentPanel {
     private SqlDocument   sqlDoc = null;
     private RowTableModel resultTableModel = new RowTableModel();
     private RowTableModelFactory sqlModelFactory = new RowTableModelFactory();
+    private Connection    tabConn = null;
+    private DbDefinition  tabConnDef = null;
+    private long          tabConnUsed = 0;
+    private CompletableFuture<Connection> tabConnect = null;
+    private DbDefinition  tabConnectDef = null;
+    private CompletableFuture<Connection> pendingConnect = null;
 
     //	============================================================================
     //	UI components
@@ -458,6 +474,14 @@ public class QueryPanel extends TabParentPanel {
      * Clean-up things when the panel is going away
      */
     public void pleaseCleanUp() {
+        if (pendingConnect != null) {
+            pendingConnect.cancel(true);
+            pendingConnect = null;
+        }
+        if (sqlModelFactory.isActive()) {
+            sqlModelFactory.getOut();
+        }
+        releaseTabConnection();
         SqlToolkit.userConfig.deleteObserver(this);
         SqlToolkit.menuManager.unregisterOwner(this);
 
@@ -518,6 +542,7 @@ public class QueryPanel extends TabParentPanel {
             SqlToolkit.menuManager.addMenu(this, MenuManager.POPUP_MENU, MENU_RUN_QUERY);
             SqlToolkit.menuManager.addMenu(this, MenuManager.POPUP_MENU, MENU_RUN_MULTI);
             SqlToolkit.menuManager.addMenu(this, MenuManager.POPUP_MENU, MENU_RUN_FROM_FILE);
+            SqlToolkit.menuManager.addMenu(this, MenuManager.POPUP_MENU, MENU_EXPORT_QUERY);
             SqlToolkit.menuManager.addMenu(this, MenuManager.POPUP_MENU, MENU_SAVE_QUERY);
             SqlToolkit.menuManager.addSeparator(this, MenuManager.POPUP_MENU);
             SqlToolkit.menuManager.addMenu(this, MenuManager.POPUP_MENU, MENU_CONN_COMMITON, menuBG, true);
@@ -536,6 +561,7 @@ public class QueryPanel extends TabParentPanel {
             SqlToolkit.menuManager.addMenu(this, MenuManager.MAIN_MENU_EDIT, MENU_RUN_QUERY);
             SqlToolkit.menuManager.addMenu(this, MenuManager.MAIN_MENU_EDIT, MENU_RUN_MULTI);
             SqlToolkit.menuManager.addMenu(this, MenuManager.MAIN_MENU_EDIT, MENU_RUN_FROM_FILE);
+            SqlToolkit.menuManager.addMenu(this, MenuManager.MAIN_MENU_EDIT, MENU_EXPORT_QUERY);
             SqlToolkit.menuManager.addMenu(this, MenuManager.MAIN_MENU_EDIT, MENU_SAVE_QUERY);
             SqlToolkit.menuManager.addSeparator(this, MenuManager.MAIN_MENU_EDIT);
             SqlToolkit.menuManager.addMenu(this, MenuManager.MAIN_MENU_EDIT, MENU_CONN_COMMITON, menuBG, true);
@@ -585,6 +611,129 @@ public class QueryPanel extends TabParentPanel {
     }
 
 
+    /**
+     * Return this panel's own connection to the current database.  The panel
+     * keeps it, so a transaction carries across queries, until a different
+     * database is selected or the panel goes away.  It's a dedicated connection,
+     * so it doesn't use up the pool that other work borrows from.
+     * <p>
+     * The connection is made in the background, never on the EDT: if it isn't
+     * ready yet this starts it, if necessary, and returns null, and
+     * "getTabConnectionError()" says why.  The connection isn't switched while
+     * a query is still running on it.
+     * <p>
+     * A connection that hasn't been used for a while is checked first, since
+     * the server may have dropped it; if it's no good, a new one is started.
+     * @return connection, or null if none is available yet
+     */
+    private Connection getTabConnection() {
+        if (tabConn != null) {
+            boolean isClosed = true;
+            try {
+                isClosed = tabConn.isClosed();
+            } catch (Exception ex) { }
+            if (tabConnDef != dbDef  ||  isClosed) {
+                if (sqlModelFactory != null  &&  sqlModelFactory.isActive()) {
+                    return null;
+                }
+                releaseTabConnection();
+            } else if ((sqlModelFactory == null  ||  ! sqlModelFactory.isActive())  &&
+                    ! ConnectionManager.CheckDedicated(tabConnDef, tabConn, tabConnUsed)) {
+                releaseTabConnection();
+            }
+        }
+        if (tabConn == null) {
+            startTabConnection();
+        } else {
+            tabConnUsed = System.currentTimeMillis();
+        }
+        return tabConn;
+    }
+
+    /**
+     * @return why "getTabConnection()" returned null
+     */
+    private String getTabConnectionError() {
+        if (tabConnect != null  &&  tabConnectDef == dbDef) {
+            return "Connecting to the database ... please try again in a moment";
+        } else if (tabConn != null  &&  sqlModelFactory.isActive()) {
+            return "Please wait until the current query finishes ...";
+        }
+        return ConnectionManager.GetConnectionError(dbDef);
+    }
+
+    /**
+     * Start making this panel's connection to the current database, in the
+     * background, unless it's already there or on its way
+     */
+    private void startTabConnection() {
+        if (dbDef == null  ||  (tabConn != null  &&  tabConnDef == dbDef)  ||
+                (tabConnect != null  &&  tabConnectDef == dbDef)) {
+            return;
+        }
+        if (tabConnect != null) {
+            tabConnect.cancel(true);
+        }
+
+        final DbDefinition connectDef = dbDef;
+        final boolean autoCommit = autoCommitCB.isSelected();
+        final CompletableFuture<Connection> connect = ConnectionManager.OpenDedicatedAsync(connectDef);
+        tabConnect    = connect;
+        tabConnectDef = connectDef;
+        connect.whenComplete(new BiConsumer<Connection,Throwable>() {
+            public void accept(final Connection conn, Throwable ex) {
+                if (conn == null) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            if (tabConnect == connect) {
+                                tabConnect    = null;
+                                tabConnectDef = null;
+                            }
+                        }
+                    });
+                    return;
+                }
+
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (Exception sqlex) { }
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (tabConnect != connect  ||  tabConn != null) {
+                            ConnectionManager.CloseDedicated(connectDef, conn);
+                            return;
+                        }
+                        tabConnect    = null;
+                        tabConnectDef = null;
+                        tabConn       = conn;
+                        tabConnDef    = connectDef;
+                        tabConnUsed   = System.currentTimeMillis();
+                        if (autoCommit != autoCommitCB.isSelected()) {
+                            setAutoCommitParams(autoCommitCB.isSelected(), true, false, false);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Close this panel's connection, in the background, or stop making it
+     */
+    private void releaseTabConnection() {
+        if (tabConnect != null) {
+            tabConnect.cancel(true);
+            tabConnect    = null;
+            tabConnectDef = null;
+        }
+        if (tabConn != null) {
+            ConnectionManager.CloseDedicated(tabConnDef, tabConn);
+            tabConn    = null;
+            tabConnDef = null;
+        }
+    }
+
+
     /**
      * Set the initial "auto-commit" values based on what the current
      * database setting is.
@@ -592,15 +741,16 @@ public class QueryPanel extends TabParentPanel {
     protected void setAutoCommitFromDB() {
         dbDef = (DbDefinition) serverListCB.getSelectedItem();
         if (dbDef != null) {
-            Connection conn = ConnectionManager.GetConnection(dbDef, true);
-            if (conn != null) {
-                boolean autoOn = true;
+            // A new connection always starts with auto-commit on, so there's no
+            // need to wait for one just to ask
+            boolean autoOn = true;
+            if (tabConn != null  &&  tabConnDef == dbDef) {
                 try {
-                    autoOn = conn.getAutoCommit();
+                    autoOn = tabConn.getAutoCommit();
                 } catch (Exception sqlex) {
                 }
-                setAutoCommitParams(autoOn, false, true, true);
             }
+            setAutoCommitParams(autoOn, false, true, true);
         }
     }
 
@@ -611,7 +761,7 @@ public class QueryPanel extends TabParentPanel {
     protected void commitTransaction() {
         dbDef = (DbDefinition) serverListCB.getSelectedItem();
         if (dbDef != null) {
-            Connection conn = ConnectionManager.GetConnection(dbDef, true);
+            Connection conn = getTabConnection();
             if (conn != null) {
                 try {
                     conn.commit();
@@ -632,7 +782,7 @@ public class QueryPanel extends TabParentPanel {
     protected void rollbackTransaction() {
         dbDef = (DbDefinition) serverListCB.getSelectedItem();
         if (dbDef != null) {
-            Connection conn = ConnectionManager.GetConnection(dbDef, true);
+            Connection conn = getTabConnection();
             if (conn != null) {
                 try {
                     conn.rollback();
@@ -663,7 +813,7 @@ public class QueryPanel extends TabParentPanel {
         if (updDB) {
             dbDef = (DbDefinition) serverListCB.getSelectedItem();
             if (dbDef != null) {
-                Connection conn = ConnectionManager.GetConnection(dbDef, true);
+                Connection conn = getTabConnection();
                 if (conn != null) {
                     try {
                         conn.setAutoCommit(autoCommit);
@@ -720,6 +870,8 @@ public class QueryPanel extends TabParentPanel {
                 greenBtnPush(true);
             } else if (mi.getText().equalsIgnoreCase(MENU_RUN_FROM_FILE)) {
                 runFromFile();
+            } else if (mi.getText().equalsIgnoreCase(MENU_EXPORT_QUERY)) {
+                exportQuery();
             } else if (mi.getText().equalsIgnoreCase(MENU_SAVE_QUERY)) {
                 saveRequested();
             } else if (mi.getText().equalsIgnoreCase(MENU_SAVE_RESULTS)) {
@@ -1034,15 +1186,17 @@ public class QueryPanel extends TabParentPanel {
             }
 
             // Print out an appropriate message if the connection is bad
-            Connection conn = ConnectionManager.GetConnection(dbDef, true);
+            Connection conn = getTabConnection();
             if (conn == null) {
-                messageArea.setText(ConnectionManager.GetConnectionError(dbDef));
+                messageArea.setText(getTabConnectionError());
                 tabbedPane.setSelectedComponent(messagePane);
                 redBtnPush(false);
                 return;
             }
 
             // Have the "factory" kick off the retrieval process
+            sqlModelFactory.setFetchMode(dbDef.getFetchSize(), dbDef.isStreamResults());
+            sqlModelFactory.setParallelMode(dbDef, SqlToolkit.userConfig.getMultiConnections());
             resultTableModel = sqlModelFactory.createModelData(conn, query, sqlDelim, doMulti);
             resultTable.setModel(resultTableModel);
             if (isQueryResultsSplit) {
@@ -1074,7 +1228,8 @@ public class QueryPanel extends TabParentPanel {
     }
 
     /**
-     * Run all of the queries from a file, batching them 100 statements at a time.
+     * Run all of the statements from a file, reading them as they're run.  They're
+     * split on the SQL delimiter and sent in batches; see {@link SqlScriptReader}.
      */
     private void runFromFile() {
         if (sqlModelFactory.isActive()) {
@@ -1082,6 +1237,19 @@ public class QueryPanel extends TabParentPanel {
             return;
         }
 
+        // The script commits as it goes, so it mustn't run inside an open transaction
+        if (tabConn != null  &&  tabConnDef == serverListCB.getSelectedItem()) {
+            try {
+                if (! tabConn.getAutoCommit()) {
+                    JOptionPane.showMessageDialog(this, "Auto-commit is off, so there may be an open transaction.\n" +
+                            "Please commit or roll back, and turn auto-commit on, before running a script.", "",
+                            JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+            } catch (Exception sqlex) {
+            }
+        }
+
         FileDialog fd = new FileDialog(SqlToolkit.getParentFrame(this), "Find Class File ...", FileDialog.LOAD);
         if (prevDir != null) {
             fd.setDirectory(prevDir);
@@ -1094,7 +1262,6 @@ public class QueryPanel extends TabParentPanel {
             prevDir = path;
             Path fpath = Paths.get(path, file);
             try {
-                List<String> queries = Files.readAllLines(fpath, StandardCharsets.UTF_8);
                 dbDef = (DbDefinition) serverListCB.getSelectedItem();
                 if (dbDef == null) {
                     JOptionPane.showMessageDialog(this, "No database server defined", "",
@@ -1104,15 +1271,18 @@ public class QueryPanel extends TabParentPanel {
                     return;
                 }
 
-                Connection conn = ConnectionManager.GetConnection(dbDef, true);
+                Connection conn = getTabConnection();
                 if (conn == null) {
-                    messageArea.setText(ConnectionManager.GetConnectionError(dbDef));
+                    messageArea.setText(getTabConnectionError());
                     tabbedPane.setSelectedComponent(messagePane);
                     redBtnPush(false);
                     return;
                 }
 
-                resultTableModel = sqlModelFactory.createModelData(conn, queries);
+                SqlScriptReader script = new SqlScriptReader(
+                        Files.newBufferedReader(fpath, StandardCharsets.UTF_8),
+                        SqlToolkit.userConfig.getSqlDelim(), SqlToolkit.userConfig.getBodyDelim());
+                resultTableModel = sqlModelFactory.createModelData(conn, script);
                 resultTable.setModel(resultTableModel);
                 if (isQueryResultsSplit) {
                     tabbedPane.setSelectedComponent(resultPane);
@@ -1127,6 +1297,59 @@ public class QueryPanel extends TabParentPanel {
         }
     }
 
+    /**
+     * Run the current query, writing the results straight to a file rather than
+     * loading them into the results table.  The file name picks the format: see
+     * {@link ResultExporter#ForFile}.
+     */
+    private void exportQuery() {
+        if (sqlModelFactory.isActive()) {
+            JOptionPane.showMessageDialog(this, "Please wait until the current query finishes ...");
+            return;
+        }
+
+        dbDef = (DbDefinition) serverListCB.getSelectedItem();
+        if (dbDef == null) {
+            JOptionPane.showMessageDialog(this, "No database server defined", "",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        String query = queryEditor.getSelectedText();
+        if (query == null || query.length() < 4) {
+            query = sqlDoc.getQueryAtIndex(queryEditor.getCaretPosition(), SqlToolkit.userConfig.getSqlDelim());
+        }
+        if (query == null  ||  query.trim().length() < 4) {
+            messageArea.setText("Please select query to export, or put cursor in query ...");
+            tabbedPane.setSelectedComponent(messagePane);
+            return;
+        }
+
+        String path = getFilePathSave("Export Query To [.csv, .tsv, .jsonl, plus .gz] ...");
+        if (path == null) {
+            return;
+        }
+
+        Connection conn = getTabConnection();
+        if (conn == null) {
+            messageArea.setText(getTabConnectionError());
+            tabbedPane.setSelectedComponent(messagePane);
+            return;
+        }
+
+        messageArea.setText("");
+        ResultExporter exporter = ResultExporter.ForFile(new File(path),
+                SqlToolkit.userConfig.getFieldDelim(), SqlToolkit.userConfig.getFieldQuote());
+        sqlModelFactory.setFetchMode(dbDef.getFetchSize(), dbDef.isStreamResults());
+        resultTableModel = sqlModelFactory.exportModelData(conn, query, exporter);
+        resultTable.setModel(resultTableModel);
+        greenBtn.setEnabled(false);
+        yellowBtn.setEnabled(true);
+        redBtn.setEnabled(true);
+
+        monitorQuery();
+    }
+
     /**
      * Pause a query
      */
@@ -1154,7 +1377,7 @@ public class QueryPanel extends TabParentPanel {
         if (prompt) {
             answer = JOptionPane.showConfirmDialog(
                     this,
-                    resultTableModel.getRowCount() + " records returned:\nReally, really halt?",
+                    resultTableModel.getLoadedRowCount() + " records returned:\nReally, really halt?",
                     "Cease and Desist", JOptionPane.YES_NO_OPTION);
         }
 
@@ -1186,6 +1409,14 @@ public class QueryPanel extends TabParentPanel {
             public void run() {
                 while (sqlModelFactory.isActive()) {
                     try { Thread.sleep(250); } catch (Exception ex) {}
+                    final String progress = sqlModelFactory.getProgress();
+                    if (progress != null) {
+                        SwingUtilities.invokeLater(new Runnable() {
+                            public void run() {
+                                messageArea.setText(progress);
+                            }
+                        });
+                    }
                 }
                 redBtnPush(false);
 
@@ -1201,7 +1432,7 @@ public class QueryPanel extends TabParentPanel {
                 }
 
                 // Check to see if there was an error returned
-                int    rowCnt  = resultTableModel.getRowCount();   
+                int    rowCnt  = resultTableModel.getLoadedRowCount();   
                 String message = "Rows returned: " + rowCnt;
                 message += "\n\nTime: " + (System.currentTimeMillis() - nnow) + " milliseconds";
                 message += sqlModelFactory.getMessage();
@@ -1236,23 +1467,54 @@ public class QueryPanel extends TabParentPanel {
      */
     private void checkDbSelect(ActionEvent ae) {
         dbDef = (DbDefinition)serverListCB.getSelectedItem();
+        if (pendingConnect != null) {
+            pendingConnect.cancel(true);
+            pendingConnect = null;
+        }
         if (dbDef == null) {
             JOptionPane.showMessageDialog(this, "No database server defined", "",
                     JOptionPane.WARNING_MESSAGE);
+            setCursor(null);
+            return;
         }
 
-        // Make a connection to the database and get the basic metadata
-        Cursor saveCursor = getCursor();
+        // Make a connection to the database and get the basic metadata in the
+        // background; only the latest selection gets to update the panel
         setCursor(new Cursor(Cursor.WAIT_CURSOR));
-        Connection conn = ConnectionManager.GetConnection(dbDef, true);
-        DbInfoModel dbModel = DbInfoCache.GetInfoModel(conn);
-        setCursor(saveCursor);
+        final DbDefinition selectDef = dbDef;
+        final CompletableFuture<Connection> connect = ConnectionManager.GetConnectionAsync(dbDef, true);
+        pendingConnect = connect;
+        connect.whenComplete(new BiConsumer<Connection,Throwable>() {
+            public void accept(final Connection conn, Throwable ex) {
+                if (connect.isCancelled()) {
+                    return;
+                }
+                final DbInfoModel dbModel = (conn == null) ? null : DbInfoCache.GetInfoModel(conn);
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (pendingConnect != connect) {
+                            return;
+                        }
+                        pendingConnect = null;
+                        setCursor(null);
+                        showDbSelect(selectDef, conn, dbModel);
+                    }
+                });
+            }
+        });
+    }
 
-        // If we have no connection display an error message; otherwise get
-        // a list of all functions and keywords for help in making our SQL
-        // query text pretty
+    /**
+     * The connection for a newly-selected database is ready.  If we have no
+     * connection display an error message; otherwise get a list of all functions
+     * and keywords for help in making our SQL query text pretty
+     * @param selectDef database that was selected
+     * @param conn connection, or null
+     * @param dbModel database meta-data, or null
+     */
+    private void showDbSelect(DbDefinition selectDef, Connection conn, DbInfoModel dbModel) {
         if (conn == null) {
-            messageArea.setText(ConnectionManager.GetConnectionError(dbDef));
+            messageArea.setText(ConnectionManager.GetConnectionError(selectDef));
             tabbedPane.setSelectedComponent(messagePane);
         } else if (dbModel != null) {
             sqlDoc.setDefaultKeywords();
@@ -1263,6 +1525,9 @@ public class QueryPanel extends TabParentPanel {
             sqlDoc.addFunctions(dbModel.getSystemFuncList());
             setAutoCommitFromDB();
         }
+        if (conn != null) {
+            startTabConnection();
+        }
     }
 
     /**
@@ -2,8 +2,15 @@ package sqltool.query;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
 import javax.swing.text.*;
 import javax.swing.event.DocumentEvent;
 
@@ -20,6 +27,12 @@ public class SqlDocument extends DefaultStyledDocument {
     
     static final long serialVersionUID = 8306837094897482045L;
 
+    /** Maximum number of re-styled lines per trip to the event-dispatch thread */
+    static final int APPLY_LINES = 500;
+
+    /** Maximum number of lines copied from the text at a time for the lexer */
+    static final int LEX_LINES = 1000;
+
 
 //  =============================================================================
 //  DEFAULT keywords and function names for SQL
@@ -76,12 +89,23 @@ public class SqlDocument extends DefaultStyledDocument {
 
 
 //  =============================================================================
-//  Helper enumeration and class, to assist with the SQL parsing effort
+//  Helper enumerations and classes, to assist with the SQL parsing effort
 //  =============================================================================
     enum TextType {
         COMMENT, KEYWORD, FUNCTION, NUMERIC, CHARACTER, WHITE_SPACE, OTHER
     };
 
+    /**
+     * Lexer state at a line boundary: either nothing is pending, or the line
+     * starts in the middle of a "/* ... *&#47;" comment or a quoted string
+     */
+    enum LexState {
+        NORMAL, COMMENT, SINGLE_QUOTE, DOUBLE_QUOTE
+    };
+
+    /**
+     * A token; the start position is relative to the start of its line
+     */
     class SqlChunk {
         int      startPos;
         int      length;
@@ -94,21 +118,99 @@ public class SqlDocument extends DefaultStyledDocument {
         }
     }
 
+    /**
+     * The tokens for a single line of text, along with the lexer state at the
+     * start and end of the line, and the line length [not counting the "\n"].
+     * A line is never changed once the lexer has built it.
+     */
+    class SqlLine {
+        LexState startState;
+        LexState endState;
+        int      length;
+        int      generation;
+        ArrayList<SqlChunk> chunks = new ArrayList<SqlChunk>(8);
+
+        public SqlLine(LexState startState) {
+            this.startState = startState;
+        }
+
+        void add(int startPos, int length, TextType type) {
+            chunks.add(new SqlChunk(startPos, length, type));
+        }
+
+        boolean isSameAs(SqlLine that) {
+            if (that == null  ||  length != that.length  ||  chunks.size() != that.chunks.size()) {
+                return false;
+            }
+            for (int i=0;  i<chunks.size();  i++) {
+                SqlChunk chunk1 = chunks.get(i);
+                SqlChunk chunk2 = that.chunks.get(i);
+                if (chunk1.startPos != chunk2.startPos  ||  chunk1.length != chunk2.length  ||  chunk1.type != chunk2.type) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The result of a background lexer pass over a snapshot of the text: the
+     * new lines, starting at line "first", with a null for each line that
+     * didn't need to be re-built
+     */
+    class LexResult {
+        int version;
+        int first;
+        ArrayList<SqlLine> update = new ArrayList<SqlLine>();
+    }
+
+//  =============================================================================
+//  All documents share a single background thread for the lexer
+//  =============================================================================
+    private static final ExecutorService lexExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runner) {
+            Thread thread = new Thread(runner, "SqlLexer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
 //  =============================================================================
 //  Instance variables:
-//  -- lineCount: number of lines in this document
-//  -- maxLine: longest line in the text
-//  -- keywordList: list of keywords associated with the current database
-//  -- functionList: list of function names associated with the current database
-//  -- styleMap: associate position in text with a particular style
+//  -- lineIndex: length of every line, updated as the text is edited
+//  -- keywords: set of keywords associated with the current database
+//  -- functions: set of function names associated with the current database
+//  -- lines: tokens and lexer state for each line, in step with the lines
+//     [paragraph elements] of the document; an edited line is null until
+//     the lexer gets to it
+//  -- version: incremented every time the text [or keyword list] changes
+//  -- generation: incremented when the keyword list changes, so every line
+//     is re-built
+//  -- dirtyFrom, dirtyTo: first and last lines that need to be re-built, or -1
+//  -- lexPending: TRUE if a lexer pass has been queued but not yet started
+//  -- stmtDelim, stmtVersion: delimiter and text version that the statement
+//     boundaries were calculated for
+//  -- stmtEnds: offset just past the delimiter that ends each statement
+//  -- stmtFirst: offset of the first non-blank, non-comment character of each
+//     statement, or -1 if there isn't one; the last entry is for the text
+//     after the final delimiter
 //  =============================================================================
-    private int       lineCount = 1;
     private boolean   adjustDone = true;
     private boolean   bulkLoad   = false;
-    private String    maxLine = "";
-    private String[]  keywordList;
-    private String[]  functionList;
-    private ArrayList<SqlChunk> chunks = new ArrayList<SqlChunk>(10);
+    private LineIndex lineIndex = new LineIndex();
+    private volatile KeywordSet keywords;
+    private volatile KeywordSet functions;
+    private ArrayList<SqlLine> lines = new ArrayList<SqlLine>(100);
+    private volatile int version = 0;
+    private int       generation = 0;
+    private int       dirtyFrom  = -1;
+    private int       dirtyTo    = -1;
+    private AtomicBoolean lexPending = new AtomicBoolean(false);
+    private String    stmtDelim = null;
+    private int       stmtVersion = -1;
+    private int       stmtCount = 0;
+    private int[]     stmtEnds  = new int[16];
+    private int[]     stmtFirst = new int[16];
 
     JTextPane         myPane;
 
@@ -124,25 +226,26 @@ public class SqlDocument extends DefaultStyledDocument {
     public SqlDocument() {
         Style redStyle = addStyle("Red", null);
         StyleConstants.setForeground(redStyle, Color.red);
-        
+
         Style greenStyle = addStyle("Green", null);
         StyleConstants.setForeground(greenStyle, new Color(47, 155, 47));
-        
+
         Style blueStyle = addStyle("Blue", null);
         StyleConstants.setForeground(blueStyle, Color.blue);
-        
+
         Style blueBoldStyle = addStyle("BlueBold", blueStyle);
         StyleConstants.setBold(blueBoldStyle, true);
-        
+
         Style blackStyle = addStyle("Black", null);
         StyleConstants.setForeground(blackStyle, Color.black);
-        
+
         Style magentaStyle = addStyle("Magenta", null);
         StyleConstants.setForeground(magentaStyle, new Color(150, 35, 230));  // Color.magenta);
 
         Style currentQueryStyle = addStyle("Current", null);
         StyleConstants.setBackground(currentQueryStyle, new Color(255, 255, 204));
-        
+
+        lines.add(new SqlLine(LexState.NORMAL));
         setDefaultKeywords();
     }
 
@@ -151,44 +254,82 @@ public class SqlDocument extends DefaultStyledDocument {
     }
 
     /**
-     * Method that handles insertion of new text: call the parent method
-     * to handle the actual insertion, and then make the colors pretty
-     * 
-     * @param offs offset into current text where new text is added
-     * @param str new text to insert
-     * @param as Attributes associated with the new text
-     * 
+     * Method that handles insertion of new text: after the parent method has
+     * updated the line structure, flag the edited line [and any new lines] as
+     * needing to be re-colored.  This is called with the write lock held.
+     *
+     * @param chng description of the change
+     * @param attr Attributes associated with the new text
      */
-    public void insertString(int offs, String str, AttributeSet as)
-            throws BadLocationException {
-        super.insertString(offs, str, as);
-        setPrettyColors();
+    protected void insertUpdate(DefaultDocumentEvent chng, AttributeSet attr) {
+        Element root = getDefaultRootElement();
+        int oldCount = root.getElementCount();
+        super.insertUpdate(chng, attr);
+
+        int line = root.getElementIndex(chng.getOffset());
+        int added = root.getElementCount() - oldCount;
+        if (added > 0) {
+            lines.addAll(line+1, Collections.<SqlLine>nCopies(added, null));
+            if (dirtyTo > line) {
+                dirtyTo += added;
+            }
+        }
+        lineIndex.set(line, getLineLength(line));
+        for (int i=1;  i<=added;  i++) {
+            lineIndex.insert(line+i, getLineLength(line+i));
+        }
+        lineChanged(line, line+added);
     }
-    
+
 
     /**
-     * Method that handles deleting of old text: call the parent method
-     * to handle the actual deletion, and then make the colors pretty
-     * 
-     * @param offs offset into current text where new text is added
-     * @param str new text to insert
-     * 
+     * Method that handles deleting of old text: after the parent method has
+     * updated the line structure, flag the edited line as needing to be
+     * re-colored.  This is called with the write lock held.
+     *
+     * @param chng description of the change
      */
-    public void remove(int offs, int len)
-            throws BadLocationException {
-        super.remove(offs, len);
-        setPrettyColors();
+    protected void removeUpdate(DefaultDocumentEvent chng) {
+        Element root = getDefaultRootElement();
+        int oldCount = root.getElementCount();
+        int line = root.getElementIndex(chng.getOffset());
+        super.removeUpdate(chng);
+
+        int removed = oldCount - root.getElementCount();
+        if (removed > 0) {
+            lines.subList(line+1, line+1+removed).clear();
+            lineIndex.remove(line+1, removed);
+            if (dirtyTo > line+removed) {
+                dirtyTo -= removed;
+            } else if (dirtyTo > line) {
+                dirtyTo = line;
+            }
+        }
+        lineChanged(line, line);
     }
-    
+
+
+    /**
+     * Once the text has actually been removed, update the length of the line
+     * where the text was removed.  This is called with the write lock held.
+     *
+     * @param chng description of the change
+     */
+    protected void postRemoveUpdate(DefaultDocumentEvent chng) {
+        super.postRemoveUpdate(chng);
+        int line = getDefaultRootElement().getElementIndex(chng.getOffset());
+        lineIndex.set(line, getLineLength(line));
+    }
+
 
     /**
      * Use the default set of keywords
      */
     public void setDefaultKeywords() {
-        keywordList  = DEFAULT_KEYWORD_LIST;
-        functionList = DEFAULT_FUNCTION_LIST;
+        keywords  = new KeywordSet(DEFAULT_KEYWORD_LIST);
+        functions = new KeywordSet(DEFAULT_FUNCTION_LIST);
     }
-    
+
 
     /**
      * Apply a new set of keywords, as defined by the database ...
@@ -197,15 +338,8 @@ public class SqlDocument extends DefaultStyledDocument {
      */
     public void addKeywords(String[] addList) {
         if (addList != null  &&  addList.length > 0) {
-            String[] temp = new String[keywordList.length + addList.length];
-            for (int i=0;  i<keywordList.length;  i++) {
-                temp[i] = keywordList[i];
-            }
-            for (int i=0;  i<addList.length;  i++) {
-                temp[i+keywordList.length] = addList[i];
-            }
-            keywordList = temp;
-            setPrettyColors();
+            keywords = new KeywordSet(keywords, addList);
+            recolorAll();
         }
     }
 
@@ -217,24 +351,17 @@ public class SqlDocument extends DefaultStyledDocument {
      */
     public void addFunctions(String[] addList) {
         if (addList != null  &&  addList.length > 0) {
-            String[] temp = new String[functionList.length + addList.length];
-            for (int i=0;  i<functionList.length;  i++) {
-                temp[i] = functionList[i];
-            }
-            for (int i=0;  i<addList.length;  i++) {
-                temp[i+functionList.length] = addList[i];
-            }
-            functionList = temp;
-            setPrettyColors();
+            functions = new KeywordSet(functions, addList);
+            recolorAll();
         }
     }
-    
+
 
     /**
      * Check to see if the document is in a "safe" state for determining the
      * line count and longest line.  A "safe" state is anything other than
      * when we are in the midst of processing (coloring) the text.
-     * 
+     *
      * @return TRUE if we are "safe", FALSE otherwise
     */
     public boolean isSafeToProcess() {
@@ -243,13 +370,13 @@ public class SqlDocument extends DefaultStyledDocument {
 
 
     /**
-     * get the number of lines of text in this document.  Currently a "\n" or
-     * "\r" is considered as a line break character. 
-     * 
+     * get the number of lines of text in this document.  Currently a "\n" is
+     * considered as a line break character.
+     *
      * @return the number of lines of text in the document.
      */
     public int getLineCount() {
-        return lineCount;
+        return lineIndex.size();
     }
 
 
@@ -257,11 +384,16 @@ public class SqlDocument extends DefaultStyledDocument {
      * Get the longest line of text, based strictly on number of characters,
      * not counting the "\n" or "\r" character.  The containing component can
      * then determine the length of the line based on its font characteristics.
-     * 
+     *
      * @return the longest line of text in the document.
      */
     public String getLongestLine() {
-        return maxLine;
+        try {
+            int start = getDefaultRootElement().getElement(lineIndex.getLongest()).getStartOffset();
+            return getText(start, lineIndex.getMaxLength());
+        } catch (Exception ex) {
+            return "";
+        }
     }
 
 
@@ -271,7 +403,7 @@ public class SqlDocument extends DefaultStyledDocument {
      * colors until everything is done.  This sets a flag that will prevent
      * the text from being styled.  The user needs to call the companion
      * method, "finishBulkLoad()" once all of the text is set.
-     * 
+     *
      *  SqlDocument myDoc = new SqlDocument();
      *  myDoc.startBulkLoad();
      *  myDocEditor.setText(someText); // a JTextPane containing the doc
@@ -288,327 +420,623 @@ public class SqlDocument extends DefaultStyledDocument {
      */
     public void finishBulkLoad() {
         bulkLoad = false;
-        setPrettyColors();
+        recolorAll();
     }
 
 
     /**
-     * Return the query given a text index and a delimiter ...
+     * Return the query given a text index and a delimiter ...  The statement
+     * boundaries are calculated once for each version of the text, so this
+     * is a binary search for the statement that holds the index.  Delimiters
+     * inside of comments or strings are ignored, and comments are stripped
+     * from the query that is returned.  If the index is in the blank space
+     * ahead of a statement, an empty query is returned.
      */
     public String getQueryAtIndex(int ndx, String delim) {
+        // The lines must all be lexed before their code can be pulled out
+        finishColors();
+        if (delim == null  ||  delim.length() == 0) {
+            return getCodeText(0, getLength()).trim();
+        }
+        if (stmtVersion != version  ||  ! delim.equals(stmtDelim)) {
+            setStatements(delim);
+        }
+
+        // Find the first statement whose delimiter ends at or after the index,
+        // with a little leeway for an index just past the delimiter
+        int lo = 0;
+        int hi = stmtCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (stmtEnds[mid] + delim.length() - 1 < ndx) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
 
-        StringBuffer query = new StringBuffer(512);
-        Style comment = getStyle("Green");
-        boolean onlyOne = true;
+        // If there's nothing after the last delimiter, and there is only one
+        // statement, that's the one the user wants
+        int stmt = lo;
+        if (stmt == stmtCount  &&  stmtFirst[stmt] < 0) {
+            if (stmtCount != 1) {
+                return "";
+            }
+            stmt = 0;
+        } else if (stmtFirst[stmt] < 0  ||  stmtFirst[stmt] > ndx+1) {
+            return "";
+        }
 
+        int start = (stmt == 0) ? 0 : stmtEnds[stmt-1];
+        int end   = (stmt == stmtCount) ? getLength() : stmtEnds[stmt];
+        return getCodeText(start, end).trim();
+    }
+
+
+    /**
+     * Calculate the statement boundaries for the current text.  This walks the
+     * tokens, looking for the delimiter in anything other than a comment or
+     * string, and noting where each statement's first real character is.
+     *
+     * @param delim statement delimiter
+     */
+    private void setStatements(String delim) {
+        Segment seg = new Segment();
         try {
-            char[] text = this.getText(0, getLength()).trim().toCharArray();
-            for (int pos1=0;  pos1<text.length;  pos1++) {
-                Style tmpStyle = getStyleAtPos(pos1);
-                if (tmpStyle == null  ||  tmpStyle != comment) {
-                    query.append(text[pos1]);
+            getText(0, getLength(), seg);
+        } catch (BadLocationException ex) {
+            return;
+        }
+        char[] text = seg.array;
+        int    base = seg.offset;
+
+        Element root = getDefaultRootElement();
+        int count = 0;
+        int first = -1;
+        int skipTo = 0;
+        for (int i=0;  i<lines.size();  i++) {
+            int lineStart = root.getElement(i).getStartOffset();
+            for (SqlChunk chunk : lines.get(i).chunks) {
+                int start = Math.max(lineStart + chunk.startPos, skipTo);
+                int end   = lineStart + chunk.startPos + chunk.length;
+                if (start >= end  ||  chunk.type == TextType.COMMENT) {
+                    continue;
                 }
-                if (pos1 > ndx  &&  query.toString().trim().length() == 0) {
-                    return query.toString().trim();
-                } else if (query.indexOf(delim) > 0) {
-                    if (ndx <= pos1+delim.length()) {
-                        return query.toString().trim();
-                    } else if (onlyOne  &&  pos1 == text.length-1) {
-                        return query.toString().trim();
+                int pos = start;
+                while (pos < end) {
+                    if (first < 0  &&  chunk.type != TextType.WHITE_SPACE) {
+                        first = pos;
+                    }
+                    if (chunk.type == TextType.CHARACTER) {
+                        break;
+                    } else if (isDelimAt(text, base, pos, delim)) {
+                        if (count+1 >= stmtEnds.length) {
+                            stmtEnds  = Arrays.copyOf(stmtEnds, stmtEnds.length*2);
+                            stmtFirst = Arrays.copyOf(stmtFirst, stmtFirst.length*2);
+                        }
+                        skipTo = pos + delim.length();
+                        stmtEnds[count]  = skipTo;
+                        stmtFirst[count] = first;
+                        count++;
+                        first = -1;
+                        pos = skipTo;
                     } else {
-                        onlyOne = false;
-                        query = new StringBuffer(512);
+                        pos++;
                     }
                 }
             }
-        } catch (Exception ex) {
         }
 
-        return query.toString();
+        stmtFirst[count] = first;
+        stmtCount   = count;
+        stmtDelim   = delim;
+        stmtVersion = version;
+    }
+
+
+    /**
+     * Check if the delimiter appears at a given position in the text
+     */
+    private boolean isDelimAt(char[] text, int base, int pos, String delim) {
+        if (pos + delim.length() > getLength()) {
+            return false;
+        }
+        for (int i=0;  i<delim.length();  i++) {
+            if (text[base+pos+i] != delim.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Return the text in a range, minus any comments
+     *
+     * @param start start of the range
+     * @param end end of the range
+     * @return text, without comments
+     */
+    private String getCodeText(int start, int end) {
+        StringBuilder code = new StringBuilder(end-start);
+        Element root = getDefaultRootElement();
+        try {
+            int firstLine = root.getElementIndex(start);
+            int lastLine  = root.getElementIndex(Math.max(start, end-1));
+            for (int i=firstLine;  i<=lastLine  &&  i<lines.size();  i++) {
+                int lineStart = root.getElement(i).getStartOffset();
+                SqlLine line = lines.get(i);
+                if (line == null  ||  line.chunks == null) {
+                    // Not lexed yet [during a bulk load]: take the line as-is
+                    int lineEnd = Math.min(root.getElement(i).getEndOffset(), end);
+                    code.append(getText(Math.max(lineStart, start), lineEnd-Math.max(lineStart, start)));
+                    continue;
+                }
+                for (SqlChunk chunk : line.chunks) {
+                    int chunkStart = Math.max(lineStart + chunk.startPos, start);
+                    int chunkEnd   = Math.min(lineStart + chunk.startPos + chunk.length, end);
+                    if (chunkStart < chunkEnd  &&  chunk.type != TextType.COMMENT) {
+                        code.append(getText(chunkStart, chunkEnd-chunkStart));
+                    }
+                }
+            }
+        } catch (BadLocationException ex) {
+        }
+        return code.toString();
     }
 
 
     /**
-     * Add color to the text:
+     * Flag a line [and any new lines after it] as having been edited, and queue
+     * up a lexer pass to re-color them.  This is called with the write lock held.
+     *
+     * @param line line that was edited
+     * @param lastLine last of the new lines, or "line" if there are none
+     */
+    private void lineChanged(int line, int lastLine) {
+        lines.set(line, null);
+        version++;
+        if (dirtyFrom < 0  ||  line < dirtyFrom) {
+            dirtyFrom = line;
+        }
+        dirtyTo = Math.max(dirtyTo, lastLine);
+        if (! bulkLoad) {
+            scheduleColors();
+        }
+    }
+
+
+    /**
+     * Re-color all of the text, after the keywords have changed or a bulk load
+     * is done:
      *   -- RED for strings
      *   -- GREEN for comments
      *   -- PURPLE-ish for numeric constants
      *   -- BLUE for keywords
      *   -- BLUE-BOLD for function names
-     * 
+     *
      * If we are in the midst of a bulk load, don't do anything.  The application is
      * responsible for telling us when the bulk load is done, at which point we'll
      * color the text.
      */
-    private void setPrettyColors() {
-        if (bulkLoad  ||  ! isSafeToProcess()) {
-            return;
+    private void recolorAll() {
+        try {
+            this.writeLock();
+            generation++;
+            version++;
+            dirtyFrom = 0;
+            dirtyTo   = lines.size() - 1;
+        } finally {
+            this.writeUnlock();
         }
+        if (! bulkLoad) {
+            scheduleColors();
+        }
+    }
 
-        int caretPosition = 0;
-        if (myPane != null) {
-            caretPosition = myPane.getCaretPosition();
-            myPane.setDocument(new DefaultStyledDocument());
+
+    /**
+     * Queue up a lexer pass on the background thread, unless one is already
+     * waiting to start.  The results are applied on the event-dispatch thread,
+     * but only if the text hasn't changed in the meantime; if it has, there's
+     * another pass coming that will pick up those changes.
+     */
+    private void scheduleColors() {
+        if (lexPending.compareAndSet(false, true)) {
+            lexExecutor.execute(new Runnable() {
+                public void run() {
+                    lexPending.set(false);
+                    try {
+                        final LexResult result = lexDirtyLines();
+                        if (result != null  &&  result.version == version) {
+                            SwingUtilities.invokeLater(new Runnable() {
+                                public void run() {
+                                    applyColors(result, 0, APPLY_LINES);
+                                }
+                            });
+                        }
+                    } catch (Exception ex) {
+                        SqlToolkit.appLogger.logDebug("Unable to color the SQL text: " + ex.getMessage());
+                    }
+                }
+            });
         }
+    }
+
+
+    /**
+     * Bring the colors [and tokens] up-to-date right now, on this thread, if
+     * there are any edited lines that the lexer hasn't gotten to yet
+     */
+    private void finishColors() {
+        if (dirtyFrom >= 0) {
+            LexResult result = lexDirtyLines();
+            if (result != null) {
+                applyColors(result, 0, Integer.MAX_VALUE);
+            }
+        }
+    }
 
-        SqlToolkit.appLogger.logDebug(">>>Enter 'setPrettyColors' ... " + Thread.currentThread());
+
+    /**
+     * Tokenize every edited line, plus any lines that follow whose lexer state
+     * at the start of the line has changed.  The text and lines are copied, with
+     * the read lock held, "LEX_LINES" lines at a time, and all of the work is
+     * done on the copy, so it's safe to run in the background while the text is
+     * being edited.  Copying a slice at a time means an edit near the top of a
+     * large document only copies as far as the lexer gets before it re-syncs;
+     * if the text changes between slices, the pass is dropped, since there's
+     * another one coming.
+     *
+     * @return lines that were re-built, or null if nothing needs re-building
+     */
+    private LexResult lexDirtyLines() {
         long nnow = System.currentTimeMillis();
-        adjustDone = false;
-        lineCount = 1;
-        maxLine  = "";
-        chunks   = new ArrayList<SqlChunk>(100);
+        LexResult  result = new LexResult();
+        LexState   state;
+        int        lastDirty;
+        int        gen;
+        KeywordSet kwSet;
+        KeywordSet fnSet;
 
-        // Turn the text into a character array ... just for fun ...
-        char[] text = new char[0];
         try {
-            text = this.getText(0, getLength()).toCharArray();
-        } catch (Exception ex) { }
-
-        // Pass one:
-        //   count the number of lines & calculate the length of the longest one
-        StringBuffer curLine = new StringBuffer(120);
-        for (int pos1=0;  pos1<text.length;  pos1++) {
-            boolean endOfLine = text[pos1] == '\n' || text[pos1] == '\r';
-            boolean endOfText = (pos1 == text.length - 1);
-
-            // Calculate the longest line in the text
-            if (endOfLine  ||  endOfText) {
-                if (endOfLine) {
-                    lineCount++;
+            this.readLock();
+            if (dirtyFrom < 0) {
+                return null;
+            }
+            result.version = version;
+            result.first   = dirtyFrom;
+            lastDirty = Math.min(dirtyTo, lines.size()-1);
+            gen   = generation;
+            kwSet = keywords;
+            fnSet = functions;
+            state = (dirtyFrom == 0) ? LexState.NORMAL : lines.get(dirtyFrom-1).endState;
+        } finally {
+            this.readUnlock();
+        }
+
+        int     next = result.first;
+        boolean done = false;
+        while (! done) {
+            char[]    text;
+            SqlLine[] oldLines;
+            try {
+                this.readLock();
+                if (version != result.version) {
+                    return null;
                 }
-                if (curLine.length() > maxLine.length()) {
-                    maxLine = curLine.toString();
+                int count = Math.min(LEX_LINES, lines.size()-next);
+                if (count <= 0) {
+                    break;
                 }
-                curLine = new StringBuffer(120);
-            } else {
-                curLine.append(text[pos1]);
+                Element root = getDefaultRootElement();
+                int start = root.getElement(next).getStartOffset();
+                int end = Math.min(root.getElement(next+count-1).getEndOffset(), getLength());
+                Segment seg = new Segment();
+                getText(start, end-start, seg);
+                text = Arrays.copyOfRange(seg.array, seg.offset, seg.offset+seg.count);
+                oldLines = lines.subList(next, next+count).toArray(new SqlLine[0]);
+            } catch (BadLocationException ex) {
+                return null;
+            } finally {
+                this.readUnlock();
             }
-        }
 
-        // Pass two:
-        //   chunk of the text and set the pretty colors
-        setCharacterAttributes(0, getLength(), getStyle("Black"), true);
-        int startPos = 0;
-        int tokenLen = 0;
-        while (startPos < text.length) {
-            tokenLen = this.getCommentLen(text, startPos);
-            if (tokenLen > 0) {
-                chunks.add(new SqlChunk(startPos, tokenLen, TextType.COMMENT));
-            } else {
-                tokenLen = this.getWhitespaceLen(text, startPos);
-                if (tokenLen > 0) {
-                    chunks.add(new SqlChunk(startPos, tokenLen, TextType.WHITE_SPACE));
+            // Every line in the slice ends with a "\n", except for the last line
+            // of the text; once we are past the edited lines, stop when a line
+            // starts in the same state that it did before
+            int pos = 0;
+            for (int i=0;  i<oldLines.length;  i++) {
+                SqlLine oldLine = oldLines[i];
+                if (next+i > lastDirty  &&  oldLine.startState == state) {
+                    done = true;
+                    break;
+                }
+
+                int end = pos;
+                while (end < text.length  &&  text[end] != '\n') {
+                    end++;
+                }
+                if (end < text.length) {
+                    end++;
+                }
+
+                if (oldLine == null  ||  oldLine.generation != gen  ||  oldLine.startState != state) {
+                    SqlLine newLine = lexLine(text, pos, end, state, kwSet, fnSet);
+                    newLine.generation = gen;
+                    result.update.add(newLine);
+                    state = newLine.endState;
                 } else {
-                    tokenLen = this.getStringLen(text, startPos);
-                    if (tokenLen > 0) {
-                        chunks.add(new SqlChunk(startPos, tokenLen, TextType.CHARACTER));
-                    } else {
-                        tokenLen = this.getAlphaNumericLen(text, startPos);
-                        if (tokenLen > 0) {
-                            String token = String.valueOf(text, startPos, tokenLen);
-                            if (isAKeyword(token, 0)) {
-                                chunks.add(new SqlChunk(startPos, tokenLen, TextType.KEYWORD));
-                            } else if (isAFunction(token, 0)) {
-                                chunks.add(new SqlChunk(startPos, tokenLen, TextType.FUNCTION));
-                            } else if (isANumber(token, 0)) {
-                                chunks.add(new SqlChunk(startPos, tokenLen, TextType.NUMERIC));
-                            } else {
-                                chunks.add(new SqlChunk(startPos, tokenLen, TextType.OTHER));
-                            }
-                        } else {
-                            tokenLen = 1;
-                            chunks.add(new SqlChunk(startPos, 1, TextType.OTHER));
-                        }
-                    }
+                    result.update.add(null);
+                    state = oldLine.endState;
                 }
+                pos = end;
             }
-            startPos += tokenLen;
+            next += oldLines.length;
         }
 
-        // We are *really* done, so fire an event to notify our listeners that
-        // it's safe to do any subsequent processing.
+        SqlToolkit.appLogger.logDebug("...Lexed " + result.update.size() + " lines ... " + (System.currentTimeMillis()-nnow) + " ms");
+        return result;
+    }
+
+
+    /**
+     * Apply the results of a lexer pass, if the text hasn't changed since the
+     * pass was started.  Only the lines whose tokens are different are re-styled.
+     * A large result is applied a slice at a time, with the rest put back on
+     * the event queue, so the editor keeps responding; if the text changes in
+     * the meantime the rest is dropped, and the next pass picks it up.
+     *
+     * @param result new lines from the lexer
+     * @param from first entry in the result to apply
+     * @param maxLines maximum number of lines to re-style right now
+     */
+    private void applyColors(final LexResult result, int from, int maxLines) {
+        Element root = getDefaultRootElement();
         try {
             this.writeLock();
-            SqlToolkit.appLogger.logDebug("...Check1 'setPrettyColors' ... " + (System.currentTimeMillis()-nnow) + " ms");
-            nnow = System.currentTimeMillis();
+            if (result.version != version) {
+                return;
+            }
 
-            applyStyle();
-            SqlToolkit.appLogger.logDebug("...Check2 'setPrettyColors' ... " + (System.currentTimeMillis()-nnow) + " ms");
-            nnow = System.currentTimeMillis();
-        } finally {
-            if (myPane != null) {
-                myPane.setDocument(this);
-                myPane.setCaretPosition(caretPosition);
+            adjustDone = false;
+            int count = 0;
+            int ndx = from;
+            for ( ;  ndx<result.update.size()  &&  count<maxLines;  ndx++) {
+                SqlLine newLine = result.update.get(ndx);
+                if (newLine != null) {
+                    SqlLine oldLine = lines.set(result.first+ndx, newLine);
+                    if (! newLine.isSameAs(oldLine)) {
+                        Element elem = root.getElement(result.first+ndx);
+                        int lineStart = elem.getStartOffset();
+                        int lineEnd = Math.min(elem.getEndOffset(), getLength());
+                        if (lineEnd > lineStart) {
+                            setCharacterAttributes(lineStart, lineEnd-lineStart, getStyle("Black"), true);
+                        }
+                        applyStyle(lineStart, newLine);
+                        count++;
+                    }
+                }
             }
 
-            adjustDone = true;
-            this.fireChangedUpdate(new DefaultDocumentEvent(0, getLength(), DocumentEvent.EventType.CHANGE));
+            if (ndx < result.update.size()) {
+                final int next = ndx;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        applyColors(result, next, APPLY_LINES);
+                    }
+                });
+            } else {
+                dirtyFrom = -1;
+                dirtyTo   = -1;
+                int start = root.getElement(result.first).getStartOffset();
+                int last = result.first + Math.max(result.update.size()-1, 0);
+                int end = Math.min(root.getElement(last).getEndOffset(), getLength());
+                fireStyleChanged(start, Math.max(start, end));
+            }
+        } finally {
             this.writeUnlock();
         }
-        
-        SqlToolkit.appLogger.logDebug("<<<Exit 'setPrettyColors' ... " + (System.currentTimeMillis()-nnow) + " ms");
     }
 
 
     /**
-     * Pull a "comment" from the beginning of the text, if present
+     * We are *really* done, so fire an event to notify our listeners that
+     * it's safe to do any subsequent processing.  This is called with the
+     * write lock held.
+     *
+     * @param start start of the text that was re-styled
+     * @param end end of the text that was re-styled
      */
-    private int getCommentLen(char[] text, int startPos) {
-        // Check for single-line comment [starts with "--" and runs to end-of-line]
-        int commentLen = 0;
-        if (startPos+2 <= text.length) {
-            if (text[startPos] == '-'  &&  text[startPos+1] == '-') {
-                commentLen = 2;
-                boolean again = true;
-                for (int i=startPos+2;  again && i<text.length;  i++) {
-                    if (text[i] == '\n'  ||  text[i] == '\r') {
-                        again = false;
-                    } else {
-                        commentLen++;
-                    }
-                }
+    private void fireStyleChanged(int start, int end) {
+        adjustDone = true;
+        this.fireChangedUpdate(new DefaultDocumentEvent(start, end-start, DocumentEvent.EventType.CHANGE));
+    }
 
-            // Check for multi-line comment [starts with "/*" and ends with "*/"]
-            } else if (text[startPos] == '/'  &&  text[startPos+1] == '*') {
-                boolean again = true;
-                char    prev = 'Z';
-                commentLen = 2;
-                for (int i=startPos+2;  again && i<text.length;  i++) {
-                    commentLen++;
-                    if (prev == '*'  &&  text[i] == '/') {
-                        again = false;
-                    }
-                    prev = text[i];
-                }
-            }
-        }
 
-        // Return the comment length ... if present
-        return commentLen;
+    /**
+     * Return the length of a line, not counting the "\n" at the end
+     *
+     * @param line line number
+     * @return line length
+     */
+    private int getLineLength(int line) {
+        Element elem = getDefaultRootElement().getElement(line);
+        return elem.getEndOffset() - elem.getStartOffset() - 1;
     }
 
 
     /**
-     * Pull the "whitespace" from the beginning of the text, if present
+     * Tokenize a single line of text.  The text includes the "\n" at the end
+     * of the line, if there is one.  A comment or string that isn't closed
+     * by the end of the line carries over, as the end state, to the next line.
+     *
+     * @param text array holding the text
+     * @param start start of the line in the array
+     * @param end end of the line in the array
+     * @param state lexer state at the start of the line
+     * @param kwSet keywords
+     * @param fnSet function names
+     * @return tokens for the line
      */
-    private int getWhitespaceLen(char[] text, int startPos) {
-        int whitespaceLen = 0;
-        if (startPos < text.length) {
-            if (isWhitespace(text[startPos])) {
-                boolean again = true;
-                for (int i=startPos;  again && i<text.length;  i++) {
-                    if (isWhitespace(text[i])) {
-                        whitespaceLen++;
-                    } else {
-                        again = false;
-                    }
+    private SqlLine lexLine(char[] text, int start, int end, LexState state, KeywordSet kwSet, KeywordSet fnSet) {
+        SqlLine line = new SqlLine(state);
+        line.length = end - start;
+        while (line.length > 0  &&  (text[start+line.length-1] == '\n'  ||  text[start+line.length-1] == '\r')) {
+            line.length--;
+        }
+
+        int pos = start;
+        while (pos < end) {
+            // Finish off a multi-line comment
+            if (state == LexState.COMMENT) {
+                int close = findCommentEnd(text, pos, end);
+                int stop = (close < 0) ? end : close;
+                line.add(pos-start, stop-pos, TextType.COMMENT);
+                state = (close < 0) ? LexState.COMMENT : LexState.NORMAL;
+                pos = stop;
+
+            // Finish off a string, the closing quote is *not* colored
+            } else if (state == LexState.SINGLE_QUOTE  ||  state == LexState.DOUBLE_QUOTE) {
+                char quote = (state == LexState.SINGLE_QUOTE) ? '\'' : '"';
+                int close = findQuoteEnd(text, pos, end, quote);
+                int stop = (close < 0) ? end : close;
+                if (stop > pos) {
+                    line.add(pos-start, stop-pos, TextType.CHARACTER);
+                }
+                if (close >= 0) {
+                    line.add(close-start, 1, TextType.OTHER);
+                    state = LexState.NORMAL;
+                    stop++;
                 }
+                pos = stop;
+
+            // Start of a single-line comment [starts with "--" and runs to end-of-line]
+            } else if (pos+1 < end  &&  text[pos] == '-'  &&  text[pos+1] == '-') {
+                int stop = pos + 2;
+                while (stop < end  &&  text[stop] != '\n'  &&  text[stop] != '\r') {
+                    stop++;
+                }
+                line.add(pos-start, stop-pos, TextType.COMMENT);
+                pos = stop;
+
+            // Start of a multi-line comment [starts with "/*" and ends with "*/"]
+            } else if (pos+1 < end  &&  text[pos] == '/'  &&  text[pos+1] == '*') {
+                int close = findCommentEnd(text, pos+2, end);
+                int stop = (close < 0) ? end : close;
+                line.add(pos-start, stop-pos, TextType.COMMENT);
+                state = (close < 0) ? LexState.COMMENT : LexState.NORMAL;
+                pos = stop;
+
+            // Start of a string, the opening quote is *not* colored
+            } else if (text[pos] == '\''  ||  text[pos] == '"') {
+                line.add(pos-start, 1, TextType.OTHER);
+                state = (text[pos] == '\'') ? LexState.SINGLE_QUOTE : LexState.DOUBLE_QUOTE;
+                pos++;
+
+            } else if (isWhitespace(text[pos])) {
+                int stop = pos + 1;
+                while (stop < end  &&  isWhitespace(text[stop])) {
+                    stop++;
+                }
+                line.add(pos-start, stop-pos, TextType.WHITE_SPACE);
+                pos = stop;
+
+            // An alpha-numeric chunk o' characters; this could be a table name,
+            // field name, reserved word, etc ...
+            } else if (isAlphaNumeric(text[pos])) {
+                int stop = pos + 1;
+                while (stop < end  &&  isAlphaNumeric(text[stop])) {
+                    stop++;
+                }
+                if (kwSet.contains(text, pos, stop-pos)) {
+                    line.add(pos-start, stop-pos, TextType.KEYWORD);
+                } else if (fnSet.contains(text, pos, stop-pos)) {
+                    line.add(pos-start, stop-pos, TextType.FUNCTION);
+                } else if (isANumber(text, pos, stop-pos)) {
+                    line.add(pos-start, stop-pos, TextType.NUMERIC);
+                } else {
+                    line.add(pos-start, stop-pos, TextType.OTHER);
+                }
+                pos = stop;
+
+            } else {
+                line.add(pos-start, 1, TextType.OTHER);
+                pos++;
             }
         }
 
-        // Return whitespace length ... if present
-        return whitespaceLen;
+        line.endState = state;
+        return line;
     }
 
 
     /**
-     * Pull a "string" from the beginning of the text, if present
+     * Find the end of a multi-line comment
+     *
+     * @param text array holding the text
+     * @param from first position that may hold the closing "*"
+     * @param end end of the text to search
+     * @return position just past the closing "*&#47;", or -1 if it's not found
      */
-    private int getStringLen(char[] text, int startPos) {
-        int stringLen = 0;
-        if (startPos < text.length) {
-            if (text[startPos] == '"'  ||  text[startPos] == '\'') {
-                boolean again = true;
-                for (int i=startPos;  again && i<text.length;  i++) {
-                    stringLen++;
-                    if (i> startPos  &&  text[i] == text[startPos]) {
-                        again = false;
-                    }
-                }
-                // If we are at the end of the text but have no trailing
-                // quote, insert a "virtual" quote so the high-lighting
-                // works correctly.
-                if (again) stringLen++;
+    private int findCommentEnd(char[] text, int from, int end) {
+        for (int i=from+1;  i<end;  i++) {
+            if (text[i] == '/'  &&  text[i-1] == '*') {
+                return i + 1;
             }
         }
-
-        // Return string length, if present
-        return stringLen;
+        return -1;
     }
 
 
     /**
-     * Pull an alpha-numeric chunk o' characters from the beginning of the
-     * text, if present; this could be a table name, field name, reserved
-     * word, etc ...
+     * Find the end of a string
+     *
+     * @param text array holding the text
+     * @param from first position that may hold the closing quote
+     * @param end end of the text to search
+     * @param quote the quote character
+     * @return position of the closing quote, or -1 if it's not found
      */
-    private int getAlphaNumericLen(char[] text, int startPos) {
-        int anLen = 0;
-        if (startPos < text.length) {
-            if (this.isAlphaNumeric(text[startPos])) {
-                boolean again = true;
-                for (int i=startPos;  again && i<text.length;  i++) {
-                    if (this.isAlphaNumeric(text[i])) {
-                        anLen++;
-                    } else {
-                        again = false;
-                    }
-                }
+    private int findQuoteEnd(char[] text, int from, int end, char quote) {
+        for (int i=from;  i<end;  i++) {
+            if (text[i] == quote) {
+                return i;
             }
         }
-
-        // Return alpha-numeric length, if present
-        return anLen;
+        return -1;
     }
 
 
     /**
-     * Once we've processed the entire document, apply the styles that we saved
+     * Apply the styles for the tokens of a single line
+     *
+     * @param lineStart offset of the start of the line
+     * @param line tokens for the line
      */
-    private void applyStyle() {
-        for (SqlChunk chunk : chunks) {
-            Style style = null;
-            int startPos = chunk.startPos;
-            int length   = chunk.length;
-
-            if (chunk.type == TextType.CHARACTER) {
-                startPos++;
-                length -= 2;
-                style = getStyle("Red");
-            } else if (chunk.type == TextType.COMMENT) {
-                style = getStyle("Green");
-            } else if (chunk.type == TextType.FUNCTION) {
-                style = getStyle("BlueBold");
-            } else if (chunk.type == TextType.KEYWORD) {
-                style = getStyle("Blue");
-            } else if (chunk.type == TextType.NUMERIC) {
-                style = getStyle("Magenta");
-            }
+    private void applyStyle(int lineStart, SqlLine line) {
+        for (SqlChunk chunk : line.chunks) {
+            Style style = getChunkStyle(chunk.type);
             if (style != null) {
-                setCharacterAttributes(startPos, length, style, true);
+                setCharacterAttributes(lineStart+chunk.startPos, chunk.length, style, true);
             }
         }
     }
-    
-    private Style getStyleAtPos(int pos) {
-        for (int i=0;  i<chunks.size();  i++) {
-            SqlChunk chunk = (SqlChunk)chunks.get(i);
-            if (pos >= chunk.startPos  &&  pos < chunk.startPos+chunk.length) {
-                Style style = null;
-
-                if (chunk.type == TextType.CHARACTER) {
-                    style = getStyle("Red");
-                } else if (chunk.type == TextType.COMMENT) {
-                    style = getStyle("Green");
-                } else if (chunk.type == TextType.FUNCTION) {
-                    style = getStyle("BlueBold");
-                } else if (chunk.type == TextType.KEYWORD) {
-                    style = getStyle("Blue");
-                } else if (chunk.type == TextType.NUMERIC) {
-                    style = getStyle("Magenta");
-                }
-                return style;
-            }
+
+    /**
+     * Return the style for a type of token, or null if it's left as BLACK
+     */
+    private Style getChunkStyle(TextType type) {
+        if (type == TextType.CHARACTER) {
+            return getStyle("Red");
+        } else if (type == TextType.COMMENT) {
+            return getStyle("Green");
+        } else if (type == TextType.FUNCTION) {
+            return getStyle("BlueBold");
+        } else if (type == TextType.KEYWORD) {
+            return getStyle("Blue");
+        } else if (type == TextType.NUMERIC) {
+            return getStyle("Magenta");
         }
         return null;
     }
@@ -659,59 +1087,38 @@ public class SqlDocument extends DefaultStyledDocument {
 
 
     /**
-     * Convenience method to determine if a word is in the list of keywords
-     * for the current database.
+     * Convenience method to determine if a word is a number: digits, with an
+     * optional exponent ("1E10"), and an optional "D" or "F" suffix.  The word
+     * is alpha-numeric, so there is no sign or decimal point to worry about.
      * 
-     * @param word String of characters to test
-     * @param ignore number of characters at the end to ignore (potential trailing junk)
-     * @return TRUE of the word is a keyword, FALSE otherwise
-     */
-    private boolean isAKeyword(String word, int ignore) {
-        String temp = word.substring(0, word.length()-ignore).trim().toUpperCase();
-        for (int i=0;  i<keywordList.length;  i++) {
-            if (keywordList[i].equals(temp)) {
-                return true;
-            }
+     * @param text array holding the word
+     * @param start start of the word
+     * @param len length of the word
+     * @return TRUE of the word is all numeric, FALSE otherwise
+     */
+    private boolean isANumber(char[] text, int start, int len) {
+        int end = start + len;
+        if (len > 1  &&  "dDfF".indexOf(text[end-1]) >= 0) {
+            end--;
         }
-        return false;
-    }
-    
 
-    /**
-     * Convenience method to determine if a word is in the list of known
-     * functions for the current database.
-     * 
-     * @param word String of characters to test
-     * @param ignore number of characters at the end to ignore (potential trailing junk)
-     * @return TRUE of the word is a keyword, FALSE otherwise
-     */
-    private boolean isAFunction(String word, int ignore) {
-        String temp = word.substring(0, word.length()-ignore).trim().toUpperCase();
-        for (int i=0;  i<functionList.length;  i++) {
-            if (functionList[i].equals(temp)) {
-                return true;
-            }
+        int pos = start;
+        while (pos < end  &&  isNumeric(text[pos])) {
+            pos++;
+        }
+        if (pos == start) {
+            return false;
         }
-        return false;
-    }
-    
 
-    /**
-     * Convenience method to determine if a word is a number (integer, float, etc)
-     * 
-     * @param word String of characters to test
-     * @param ignore number of characters at the end to ignore (potential trailing junk)
-     * @return TRUE of the word is all numeric, FALSE otherwise
-     */
-    @SuppressWarnings("unused")
-    private boolean isANumber(String word, int ignore) {
-        boolean isaNum = false;
-        String tWord = word.substring(0, word.length()-ignore).trim();
-        try {
-            double tDbl  = Double.parseDouble(tWord);
-            isaNum = true;
-        } catch (Exception ex) {
+        if (pos < end  &&  (text[pos] == 'e'  ||  text[pos] == 'E')) {
+            int expStart = ++pos;
+            while (pos < end  &&  isNumeric(text[pos])) {
+                pos++;
+            }
+            if (pos == expStart) {
+                return false;
+            }
         }
-        return isaNum;
+        return pos == end;
     }
 }
@@ -3,7 +3,7 @@ package sqltool.schema;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
-import java.io.PrintWriter;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 import javax.swing.*;
@@ -21,6 +21,7 @@ import sqltool.common.db.DbCustomModel;
 import sqltool.common.db.DbInfoModel;
 import sqltool.config.UserConfig;
 import sqltool.query.SqlDocument;
+import sqltool.server.DbDefinition;
 import sqltool.swing.extra.SqlTextPane;
 
 
@@ -40,6 +41,7 @@ public class DbCustomPanel extends JPanel implements Observer, MenuHandler {
     //	Define menu option names ...
     //	============================================================================
     static final String MENU_EXPORT_SCHEMA  = "export schema";
+    static final String MENU_REFRESH_TYPE   = "refresh data type";
 
     public static final String DETAIL_SOURCE = "SCRIPT";
     public static final String DETAIL_CREATE = "COLUMN";
@@ -48,7 +50,9 @@ public class DbCustomPanel extends JPanel implements Observer, MenuHandler {
     public static final String EMPTY_LIST = "-- NONE --";
 
     private SqlDocument   sqlDoc;
+    private DbDefinition  dbDef;
     private DbInfoModel   myModel;
+    private SchemaExportJob exportJob = null;
 
     private JLabel       infoLabel = new JLabel();
     private JLabel       schemaLabel = new JLabel();
@@ -255,9 +259,11 @@ public class DbCustomPanel extends JPanel implements Observer, MenuHandler {
      * catalogs and schemas, enabling them if they are non-empty, and pre-selecting
      * the current schema as the one to display.
      * 
+     * @param aDbDef database definition
      * @param aModel class which contains DB information
      */
-    public void setModel(DbInfoModel aModel) {
+    public void setModel(DbDefinition aDbDef, DbInfoModel aModel) {
+        dbDef = aDbDef;
         myModel = aModel;
 
         catalogLabel.setText(myModel.getCatalogTerm());
@@ -295,6 +301,8 @@ public class DbCustomPanel extends JPanel implements Observer, MenuHandler {
             JMenuItem mi = (JMenuItem)ae.getSource();
             if (mi.getText().equalsIgnoreCase(MENU_EXPORT_SCHEMA)) {
                 exportSchema();
+            } else if (mi.getText().equalsIgnoreCase(MENU_REFRESH_TYPE)) {
+                refreshDataType();
             }
         }
     }
@@ -312,6 +320,21 @@ public class DbCustomPanel extends JPanel implements Observer, MenuHandler {
      */
     protected void buildOptionPopupMenu() {
         SqlToolkit.menuManager.addMenu(this, MenuManager.POPUP_MENU, MENU_EXPORT_SCHEMA);
+        SqlToolkit.menuManager.addMenu(this, MenuManager.POPUP_MENU, MENU_REFRESH_TYPE);
+    }
+
+    /**
+     * Throw away everything cached for the current data type, so the entry list
+     * and scripts are re-read from the database
+     */
+    private void refreshDataType() {
+        String dataType = (String)datatypeListCB.getSelectedItem();
+        DbCustomModel dbCustom = (myModel == null) ? null : myModel.getCustomModel();
+        if (dbCustom != null  &&  dataType != null) {
+            dbCustom.resetCache(dataType);
+            updateEntryList();
+            updateDetailScript();
+        }
     }
 
     /**
@@ -326,6 +349,9 @@ public class DbCustomPanel extends JPanel implements Observer, MenuHandler {
             return;
         }
 
+        // Start pulling the details of the whole schema in the background
+        myModel.prefetchSchema(catalog, schema);
+
         DbCustomModel dbCustom = myModel.getCustomModel();
         if (dbCustom != null) {
             String[] entries = dbCustom.getEntries(catalog, schema, dataType);
@@ -473,41 +499,93 @@ public class DbCustomPanel extends JPanel implements Observer, MenuHandler {
     }
 
     /**
-     * Export all data from the selected table
+     * Export the source of everything in the selected schema to a file.  The
+     * export runs in the background, with a progress monitor that can cancel
+     * it, and a summary is shown when it's done.
      */
     private void exportSchema() {
         String catalog = (String)catalogListCB.getSelectedItem();
         String schema = (String)schemaListCB.getSelectedItem();
-        DbCustomModel dbCustom = myModel.getCustomModel();
+        DbCustomModel dbCustom = (myModel == null) ? null : myModel.getCustomModel();
+        if (dbCustom == null) {
+            return;
+        }
+        if (exportJob != null) {
+            JOptionPane.showMessageDialog(this, "A schema export is already running", "",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        // Bring up a file dialog to get the file path
+        String path = SqlToolkit.getFilePath(this, "Choose File", "", JFileChooser.SAVE_DIALOG, "Save");
+        if (path == null) {
+            return;
+        }
+
+        String[] datatypes = new String[datatypeListCB.getItemCount()];
+        for (int i=0;  i<datatypes.length;  i++) {
+            datatypes[i] = (String)datatypeListCB.getItemAt(i);
+        }
+
+        final SchemaExportJob job = new SchemaExportJob(dbDef, dbCustom, catalog, schema, datatypes, new File(path));
+        final ProgressMonitor monitor = new ProgressMonitor(this, "Exporting schema " + (schema == null ? catalog : schema), "", 0, 1);
+        monitor.setMillisToDecideToPopup(250);
+        monitor.setMillisToPopup(500);
+        exportJob = job;
 
-        PrintWriter pw = null;
-        try {
-            // Bring up a file dialog to get the file path
-            String path = SqlToolkit.getFilePath(this, "Choose File", "", JFileChooser.SAVE_DIALOG, "Save");
-            if (path != null  &&  dbCustom != null) {
-                pw = new PrintWriter(new File(path), "UTF-8");
-                pw.println("CATALOG: " + catalog);
-                pw.println("SCHEMA: " + schema);
-                for (int i=0;  i<datatypeListCB.getItemCount();  i++) {
-                    String datatype = (String)datatypeListCB.getItemAt(i);
-                    String[] entries = dbCustom.getEntries(catalog, schema, datatype);
-                    pw.println();
-                    pw.println("==========================================================================");
-                    pw.println("TYPE: " + datatype + ", COUNT: " + (entries == null ? 0 : entries.length));
-                    pw.println("==========================================================================");
-                    for (String entry : entries) {
-                        String source = dbCustom.getSource(catalog, schema, datatype, entry);
-                        pw.println();
-                        pw.println(">> " + entry + " <<");
-                        pw.println();
-                        pw.println(source);
-                    }
+        final long then = System.currentTimeMillis();
+        Timer progressTimer = new Timer(250, new ActionListener() {
+            public void actionPerformed(ActionEvent ae) {
+                if (monitor.isCanceled()) {
+                    job.cancel();
+                }
+                if (job.isFinished()) {
+                    ((Timer)ae.getSource()).stop();
+                    monitor.close();
+                    exportJob = null;
+                    showExportResult(job, System.currentTimeMillis() - then);
+                } else if (job.getTotalCount() > 0) {
+                    monitor.setMaximum(job.getTotalCount() + 1);
+                    monitor.setProgress(job.getDoneCount());
+                    monitor.setNote(job.getDoneCount() + " of " + job.getTotalCount() + " entries");
                 }
             }
-        } catch (Exception ex) {
-            System.out.println("EX: " + ex);
-        } finally {
-            if (pw != null) try { pw.close(); } catch (Exception ex) { }
+        });
+
+        Thread exportThread = new Thread(job, "SchemaExport");
+        exportThread.setDaemon(true);
+        exportThread.start();
+        progressTimer.start();
+    }
+
+    /**
+     * Tell the user how a schema export went
+     * @param job finished export job
+     * @param millis elapsed time [milli-seconds]
+     */
+    private void showExportResult(SchemaExportJob job, long millis) {
+        if (job.getFatalError() != null) {
+            JOptionPane.showMessageDialog(this, "Export failed: " + job.getFatalError(), "Export Schema",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        StringBuilder buff = new StringBuilder();
+        buff.append(job.isCancelled() ? "Export cancelled after " : "Exported ");
+        buff.append(job.getDoneCount()).append(" of ").append(job.getTotalCount()).append(" entries to ");
+        buff.append(job.getFile()).append(" in ").append(millis / 1000).append(" sec");
+
+        List<String> errors = job.getErrors();
+        if (! errors.isEmpty()) {
+            buff.append("\n\n").append(errors.size()).append(" entries failed; they are listed at the end of the file:");
+            for (int i=0;  i<errors.size()  &&  i<10;  i++) {
+                buff.append("\n   ").append(errors.get(i));
+            }
+            if (errors.size() > 10) {
+                buff.append("\n   ...");
+            }
         }
+        JOptionPane.showMessageDialog(this, buff.toString(), "Export Schema",
+                errors.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
     }
 }
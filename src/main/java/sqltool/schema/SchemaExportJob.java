@@ -0,0 +1,381 @@
+package sqltool.schema;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sqltool.common.ConnectionManager;
+import sqltool.common.SqlToolkit;
+import sqltool.common.db.DbCustomModel;
+import sqltool.common.db.DbRawDataType;
+import sqltool.server.DbDefinition;
+
+
+/**
+ * Export the source of every entry of every data type in a schema to a file,
+ * in the background.  Each data type is fetched by a worker with its own
+ * pooled connection, using the data type's bulk queries; whatever those miss
+ * is split into chunks of entries that are fetched in parallel, too.  The
+ * file is still written in data type and entry order: each data type is
+ * written as soon as it, and every data type before it, is complete.
+ * <p>
+ * The job can be cancelled at any time, and keeps count of the entries done
+ * for a progress display.  An entry whose source can't be retrieved doesn't
+ * stop the export; it's listed in an error report at the end of the file.
+ *
+ * @author wjohnson000
+ */
+class SchemaExportJob implements Runnable {
+
+	/** Number of entries fetched by each worker once the bulk queries are done */
+	static final int ENTRY_CHUNK = 50;
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- dbDef, dbCustom: database, and its custom model, used if no pooled
+	//      connection is available
+	//   -- catalog, schema, datatypes, file: what to export, and where
+	//   -- entries, sources, typeDone: for each data type, its entries, the
+	//      sources retrieved so far, and a latch released once it's complete
+	//   -- workers: thread pool that fetches the sources
+	//   -- doneCount, totalCount: progress
+	//   -- errors, failed: entries that failed, with the reason, and for each
+	//      data type the entries already reported
+	//   -- noPool: TRUE once a pooled connection couldn't be had
+	//   -- cancelled, finished, fatalError: job status
+	// =============================================================================
+	private DbDefinition  dbDef;
+	private DbCustomModel dbCustom;
+	private String   catalog;
+	private String   schema;
+	private String[] datatypes;
+	private File     file;
+
+	private String[][] entries;
+	private List<Map<String,String>> sources = new ArrayList<Map<String,String>>();
+	private List<CountDownLatch> typeDone = new ArrayList<CountDownLatch>();
+	private volatile ExecutorService workers = null;
+
+	private AtomicInteger doneCount = new AtomicInteger();
+	private volatile int  totalCount = 0;
+	private List<String>  errors = Collections.synchronizedList(new ArrayList<String>());
+	private List<Set<String>> failed = new ArrayList<Set<String>>();
+	private volatile boolean  noPool = false;
+
+	private volatile boolean cancelled = false;
+	private volatile boolean finished = false;
+	private volatile String  fatalError = null;
+
+
+	/**
+	 * Constructor takes what to export, and where to write it
+	 * @param dbDef database definition, for the pooled connections
+	 * @param dbCustom custom model of the database
+	 * @param catalog catalog name
+	 * @param schema schema name
+	 * @param datatypes data types to export
+	 * @param file output file
+	 */
+	SchemaExportJob(DbDefinition dbDef, DbCustomModel dbCustom, String catalog, String schema, String[] datatypes, File file) {
+		this.dbDef     = dbDef;
+		this.dbCustom  = dbCustom;
+		this.catalog   = catalog;
+		this.schema    = schema;
+		this.datatypes = datatypes;
+		this.file      = file;
+	}
+
+	int     getDoneCount()   { return doneCount.get(); }
+	int     getTotalCount()  { return totalCount; }
+	boolean isCancelled()    { return cancelled; }
+	boolean isFinished()     { return finished; }
+	String  getFatalError()  { return fatalError; }
+	File    getFile()        { return file; }
+
+	/**
+	 * @return entries that failed, each with its data type and the reason
+	 */
+	List<String> getErrors() {
+		synchronized(errors) {
+			return new ArrayList<String>(errors);
+		}
+	}
+
+	/**
+	 * Stop the export: no more sources are fetched, and the file is closed
+	 * with whatever has been written so far
+	 */
+	void cancel() {
+		cancelled = true;
+		if (workers != null) {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Run the export: list the entries of each data type, start the workers,
+	 * then write each data type once it's complete
+	 */
+	@Override
+	public void run() {
+		long then = System.currentTimeMillis();
+		PrintWriter pw = null;
+		try {
+			pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16));
+			pw.println("CATALOG: " + catalog);
+			pw.println("SCHEMA: " + schema);
+
+			// The entry lists are usually cached already
+			int total = 0;
+			entries = new String[datatypes.length][];
+			for (int i=0;  i<datatypes.length  &&  ! cancelled;  i++) {
+				synchronized(dbCustom) {
+					entries[i] = dbCustom.getEntries(catalog, schema, datatypes[i]);
+				}
+				if (entries[i] == null) {
+					entries[i] = new String[0];
+				}
+				total += entries[i].length;
+				sources.add(new ConcurrentHashMap<String,String>());
+				failed.add(Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>()));
+				typeDone.add(new CountDownLatch(1));
+			}
+			totalCount = total;
+
+			int threads = Math.max(1, Math.min(SqlToolkit.userConfig.getPoolSize(), datatypes.length));
+			workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private AtomicInteger count = new AtomicInteger();
+				public Thread newThread(Runnable runner) {
+					Thread thread = new Thread(runner, "SchemaExport-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			for (int i=0;  i<datatypes.length  &&  ! cancelled;  i++) {
+				submitDataType(i);
+			}
+
+			for (int i=0;  i<datatypes.length  &&  ! cancelled;  i++) {
+				while (! cancelled  &&  ! typeDone.get(i).await(250, TimeUnit.MILLISECONDS)) { }
+				if (! cancelled) {
+					writeDataType(pw, i);
+				}
+			}
+
+			if (cancelled) {
+				pw.println();
+				pw.println("-- EXPORT CANCELLED");
+			}
+			writeErrors(pw);
+		} catch (Exception ex) {
+			fatalError = ex.getMessage();
+			SqlToolkit.appLogger.logFatal("SchemaExportJob.run.EX: " + ex);
+		} finally {
+			if (workers != null) {
+				workers.shutdownNow();
+			}
+			if (pw != null) {
+				pw.close();
+				if (pw.checkError()  &&  fatalError == null) {
+					fatalError = "Unable to write " + file;
+				}
+			}
+			SqlToolkit.appLogger.logDebug("SchemaExportJob.run: " + doneCount.get() + " of " + totalCount +
+					" entries, " + errors.size() + " errors, " + (System.currentTimeMillis() - then) + " ms");
+			finished = true;
+		}
+	}
+
+	/**
+	 * Fetch a data type with its bulk queries, then hand out whatever they
+	 * missed in chunks
+	 * @param ndx data type index
+	 */
+	private void submitDataType(final int ndx) {
+		workers.execute(new Runnable() {
+			public void run() {
+				final Map<String,String> typeSources = sources.get(ndx);
+				Set<String> pending = null;
+				try {
+					pending = runWithModel(new ModelTask<Set<String>>() {
+						public Set<String> run(DbCustomModel model) {
+							return model.getBulkSources(catalog, schema, datatypes[ndx], new DbRawDataType.SourceHandler() {
+								public void handleSource(String entry, String source) {
+									addSource(ndx, entry, source);
+								}
+							});
+						}
+					});
+				} catch (Exception ex) {
+					SqlToolkit.appLogger.logDebug("SchemaExportJob: bulk " + datatypes[ndx] + " failed, " + ex);
+				}
+
+				// Anything the bulk queries didn't return is fetched one at a time
+				List<String> missing = new ArrayList<String>();
+				for (String entry : entries[ndx]) {
+					if (! typeSources.containsKey(entry)  &&  (pending == null  ||  pending.contains(entry))) {
+						missing.add(entry);
+					}
+				}
+				if (missing.isEmpty()  ||  cancelled) {
+					typeDone.get(ndx).countDown();
+					return;
+				}
+
+				int chunks = (missing.size() + ENTRY_CHUNK - 1) / ENTRY_CHUNK;
+				AtomicInteger remaining = new AtomicInteger(chunks);
+				try {
+					for (int i=0;  i<chunks;  i++) {
+						submitEntries(ndx, missing.subList(i*ENTRY_CHUNK, Math.min(missing.size(), (i+1)*ENTRY_CHUNK)), remaining);
+					}
+				} catch (Exception ex) {
+					// The pool was shut down: the job has been cancelled
+					typeDone.get(ndx).countDown();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Fetch a chunk of entries, one at a time
+	 * @param ndx data type index
+	 * @param chunk entries to fetch
+	 * @param remaining number of chunks of this data type still to finish
+	 */
+	private void submitEntries(final int ndx, final List<String> chunk, final AtomicInteger remaining) {
+		workers.execute(new Runnable() {
+			public void run() {
+				try {
+					runWithModel(new ModelTask<Object>() {
+						public Object run(DbCustomModel model) {
+							for (String entry : chunk) {
+								if (cancelled) {
+									break;
+								}
+								try {
+									addSource(ndx, entry, model.getSource(catalog, schema, datatypes[ndx], entry));
+								} catch (Exception ex) {
+									addError(ndx, entry, String.valueOf(ex));
+								}
+							}
+							return null;
+						}
+					});
+				} catch (Exception ex) {
+					// Only the entries that weren't already done, or reported
+					for (String entry : chunk) {
+						if (! sources.get(ndx).containsKey(entry)) {
+							addError(ndx, entry, String.valueOf(ex));
+						}
+					}
+				} finally {
+					if (remaining.decrementAndGet() == 0) {
+						typeDone.get(ndx).countDown();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Something to do with a custom model
+	 */
+	private interface ModelTask<T> {
+		public T run(DbCustomModel model);
+	}
+
+	/**
+	 * Run a task with a custom model on a pooled connection.  If no pooled
+	 * connection is available, the shared model is used instead, by one
+	 * worker at a time.  Once a borrow has failed, the remaining tasks go
+	 * straight to the shared model rather than each waiting out the pool.
+	 */
+	private <T> T runWithModel(ModelTask<T> task) {
+		Connection conn = (dbDef == null  ||  noPool) ? null : ConnectionManager.BorrowConnection(dbDef);
+		if (conn == null) {
+			noPool = true;
+		}
+		try {
+			DbCustomModel model = (conn == null) ? null : dbCustom.copyForConnection(conn);
+			if (model != null) {
+				return task.run(model);
+			}
+			synchronized(dbCustom) {
+				return task.run(dbCustom);
+			}
+		} finally {
+			ConnectionManager.ReleaseConnection(dbDef, conn);
+		}
+	}
+
+	private void addSource(int ndx, String entry, String source) {
+		if (source == null) {
+			addError(ndx, entry, "no source found");
+		} else if (sources.get(ndx).put(entry, source) == null) {
+			doneCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Report an entry that failed; each entry is reported, and counted as
+	 * done, only once
+	 */
+	private void addError(int ndx, String entry, String message) {
+		if (failed.get(ndx).add(entry)) {
+			errors.add(datatypes[ndx] + " " + entry + ": " + message);
+			doneCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Write a complete data type, in entry order, and let go of its sources
+	 */
+	private void writeDataType(PrintWriter pw, int ndx) {
+		Map<String,String> typeSources = sources.get(ndx);
+		pw.println();
+		pw.println("==========================================================================");
+		pw.println("TYPE: " + datatypes[ndx] + ", COUNT: " + entries[ndx].length);
+		pw.println("==========================================================================");
+		for (String entry : entries[ndx]) {
+			String source = typeSources.get(entry);
+			pw.println();
+			pw.println(">> " + entry + " <<");
+			pw.println();
+			pw.println((source == null) ? "-- ERROR: source not available" : source);
+		}
+		typeSources.clear();
+	}
+
+	/**
+	 * Write the error report, if there were any errors
+	 */
+	private void writeErrors(PrintWriter pw) {
+		List<String> errorList = getErrors();
+		if (errorList.isEmpty()) {
+			return;
+		}
+
+		pw.println();
+		pw.println("==========================================================================");
+		pw.println("ERRORS: " + errorList.size());
+		pw.println("==========================================================================");
+		for (String error : errorList) {
+			pw.println(error);
+		}
+	}
+}
@@ -55,6 +55,9 @@ public abstract class BaseDataType implements DbRawDataType {
     @Override
     public String getSource(String catalog, String schema, String entry) {
         String script = "";
+        if (myModel == null) {
+            myModel = DbInfoCache.GetInfoModel(conn);
+        }
         DbStructure currDbStruct = myModel.getDbStructure(catalog, schema, getDataType());
         if (currDbStruct != null  &&  entry != null  &&  ! entry.equalsIgnoreCase(EMPTY_LIST)) {
             ScriptGenerator scGen = new DefaultScriptGenerator();
@@ -66,6 +69,11 @@ public abstract class BaseDataType implements DbRawDataType {
         return script;
     }
 
+    @Override
+    public boolean getSources(String catalog, String schema, SourceHandler handler) {
+        return false;
+    }
+
     @Override
     public String getCreate(String catalog, String schema, String entry) {
         return getSource(catalog, schema, entry);
@@ -1,13 +1,14 @@
 package sqltool.schema.custom.mysql;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
 import sqltool.common.db.DbRawDataType;
+import sqltool.common.db.StatementCache;
 
 
 /**
@@ -100,6 +101,15 @@ public abstract class BaseDataType implements DbRawDataType {
 		return null;
 	}
 
+	/**
+	 * By default, there's no bulk extraction, and the sources are retrieved
+	 * one entry at a time
+	 * @return FALSE
+	 */
+	public boolean getSources(String catalog, String schema, SourceHandler handler) {
+		return false;
+	}
+
 	/**
 	 * Return the sql for doing a "DROP" on the given object ... 
 	 */
@@ -110,30 +120,37 @@ public abstract class BaseDataType implements DbRawDataType {
 	/**
 	 * Generic method for getting the results of a query.  The data is
 	 * returned as a list of "String" array.
-	 * @param query query to execute
+	 * @param query query to execute, with a "?" for each parameter
+	 * @param params parameter values
 	 * @return List of row data, each row being a "String" array
 	 */
-	protected List<String[]> runQuery(String query) {
-		return runQuery(query, false);
+	protected List<String[]> runQuery(String query, String... params) {
+		return runQuery(query, false, params);
 	}
 
 	/**
 	 * Generic method for getting the results of a query.  The data is
-	 * returned as a list of "String" array.
-	 * @param query query to execute
+	 * returned as a list of "String" array.  The query is run as a prepared
+	 * statement from the connection's statement cache, so repeated queries
+	 * are only parsed once.
+	 * @param query query to execute, with a "?" for each parameter
 	 * @param includeColNames flag to indicate of column names are to be
 	 *        returned as the first row
+	 * @param params parameter values
 	 * @return List of row data, each row being a "String" array
 	 */
-	protected List<String[]> runQuery(String query, boolean includeColNames) {
+	protected List<String[]> runQuery(String query, boolean includeColNames, String... params) {
 		List<String[]> res = new ArrayList<String[]>(100);
-		Statement stmt = null;
+		PreparedStatement stmt = null;
 		ResultSet rset = null;
 
 		sqlMessage = "";
 		try {
-			stmt = conn.createStatement();
-			rset = stmt.executeQuery(query);
+			stmt = StatementCache.Borrow(conn, query);
+			for (int i=0;  i<params.length;  i++) {
+				stmt.setString(i+1, params[i]);
+			}
+			rset = stmt.executeQuery();
 			ResultSetMetaData rsmd = rset.getMetaData();
 			int count = rsmd.getColumnCount();
 
@@ -159,7 +176,7 @@ public abstract class BaseDataType implements DbRawDataType {
 			sqlMessage = sqlex.getMessage();
 		} finally {
 			if (rset != null) try { rset.close(); } catch (Exception ex) { }
-			if (stmt != null) try { stmt.close(); } catch (Exception ex) { }
+			StatementCache.Release(conn, query, stmt);
 		}
 		return res;
 	}
@@ -173,6 +190,23 @@ public abstract class BaseDataType implements DbRawDataType {
 		return (schema == null ? "" : (schema + ".")) + entry;
 	}
 
+	/**
+	 * Quote an identifier for a "SHOW" statement, which can't take a
+	 * parameter in place of a name
+	 * @param name catalog, table or other name
+	 */
+	protected String quoteName(String name) {
+		return "`" + name.replace("`", "``") + "`";
+	}
+
+	/**
+	 * Quote a string literal for the "LIKE" clause of a "SHOW" statement
+	 * @param value literal value
+	 */
+	protected String quoteString(String value) {
+		return "'" + value.replace("\\", "\\\\").replace("'", "''") + "'";
+	}
+
 
 	/**
 	 * Output the column definitions for a table or view
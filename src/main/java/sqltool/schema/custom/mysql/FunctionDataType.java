@@ -64,7 +64,7 @@ public class FunctionDataType extends BaseDataType {
 	@Override
 	public String getSource(String catalog, String schema, String entry) {
 		String query =
-			"SHOW FUNCTION CODE " + catalog + "." + entry;
+			"SHOW FUNCTION CODE " + quoteName(catalog) + "." + quoteName(entry);
 
 		List<String[]> rows = runQuery(query);
 		if (rows.size() == 0) {
@@ -84,7 +84,7 @@ public class FunctionDataType extends BaseDataType {
 	@Override
 	public String getCreate(String catalog, String schema, String entry) {
 		String query =
-			"SHOW CREATE FUNCTION " + catalog + "." + entry;
+			"SHOW CREATE FUNCTION " + quoteName(catalog) + "." + quoteName(entry);
 		List<String[]> rows = runQuery(query);
 		if (rows.size() == 1) {
 			return rows.get(0)[2];
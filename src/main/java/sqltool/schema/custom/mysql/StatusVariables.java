@@ -58,7 +58,7 @@ public class StatusVariables extends BaseDataType {
 	public String[] getEntries(String catalog, String schema) {
 		String query =
 			"SHOW FULL TABLES " +
-			" FROM " + catalog + 
+			" FROM " + quoteName(catalog) + 
 			" WHERE TABLE_TYPE = 'BASE TABLE' ";
 
 		// Add a special "** System **" entry
@@ -127,7 +127,7 @@ public class StatusVariables extends BaseDataType {
 	 */
 	private String getSourceTable(String catalog, String schema, String entry) {
 		String query =
-			"SHOW TABLE STATUS FROM " + catalog + " LIKE '" + entry + "'";
+			"SHOW TABLE STATUS FROM " + quoteName(catalog) + " LIKE " + quoteString(entry);
 
 		int nameLen = 0;
 		List<String[]> rows = runQuery(query, true);
@@ -36,7 +36,7 @@ public class TableDataType extends BaseDataType {
 	public String[] getEntries(String catalog, String schema) {
 		String query =
 			"SHOW FULL TABLES " +
-			" FROM " + catalog + 
+			" FROM " + quoteName(catalog) + 
 			" WHERE TABLE_TYPE = 'BASE TABLE' ";
 
 		List<String[]> rows = runQuery(query);
@@ -59,7 +59,7 @@ public class TableDataType extends BaseDataType {
 		}
 
 		String query =
-			"SHOW COLUMNS FROM " + entry + " IN " + catalog;
+			"SHOW COLUMNS FROM " + quoteName(entry) + " IN " + quoteName(catalog);
 
 		List<String[]> rows = runQuery(query);
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
@@ -76,7 +76,7 @@ public class TableDataType extends BaseDataType {
 	@Override
 	public String getCreate(String catalog, String schema, String entry) {
 		String query =
-			"SHOW CREATE TABLE " + catalog + "." + entry;
+			"SHOW CREATE TABLE " + quoteName(catalog) + "." + quoteName(entry);
 		List<String[]> rows = runQuery(query);
 		if (rows.size() == 1) {
 			return rows.get(0)[1];
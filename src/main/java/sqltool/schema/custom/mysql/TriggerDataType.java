@@ -34,7 +34,7 @@ public class TriggerDataType extends BaseDataType {
 	 */
 	@Override
 	public String[] getEntries(String catalog, String schema) {
-		String query = "SHOW TRIGGERS " + " FROM " + catalog;
+		String query = "SHOW TRIGGERS " + " FROM " + quoteName(catalog);
 
 		List<String[]> rows = runQuery(query);
 		String[] entries = new String[rows.size()];
@@ -51,7 +51,7 @@ public class TriggerDataType extends BaseDataType {
 	@Override
 	public String getSource(String catalog, String schema, String entry) {
 		String query =
-			"SHOW TRIGGERS " + " FROM " + catalog + " LIKE '" + entry + "'";
+			"SHOW TRIGGERS " + " FROM " + quoteName(catalog) + " LIKE " + quoteString(entry);
 
 		int nameLen = 0;
 		List<String[]> rows = runQuery(query, true);
@@ -3,12 +3,15 @@ package sqltool.schema.custom.oracle;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
-import java.sql.Statement;
+import java.sql.PreparedStatement;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
 import sqltool.common.db.DbRawDataType;
+import sqltool.common.db.GroupedQuery;
+import sqltool.common.db.GroupedQuery.GroupHandler;
+import sqltool.common.db.StatementCache;
 
 
 /**
@@ -108,12 +111,53 @@ public abstract class BaseDataType implements DbRawDataType {
 		String query =
 			"Select Text " +
 			"  From sys.ALL_SOURCE " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(name)  = '" + entry.toUpperCase() + "'" +
-			"   And upper(type)  = '" + type.toUpperCase() + "'" +
+			" Where owner = ?" +
+			"   And name = ?" +
+			"   And type = ?" +
 			" Order By Line ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry, type.toUpperCase());
+		return joinSource(rows);
+	}
+
+	/**
+	 * By default, there's no bulk extraction, and the sources are retrieved
+	 * one entry at a time
+	 * @return FALSE
+	 */
+	public boolean getSources(String catalog, String schema, SourceHandler handler) {
+		return false;
+	}
+
+	/**
+	 * Retrieve the source of every object of a type in one pass through
+	 * "ALL_SOURCE", for the types that keep their source there
+	 * @param schema schema name
+	 * @param type type of object
+	 * @param handler receives each object and its source
+	 * @return TRUE if the query ran
+	 */
+	protected boolean getAllSources(String schema, String type, final SourceHandler handler) {
+		String query =
+			"Select name, Text " +
+			"  From sys.ALL_SOURCE " +
+			" Where owner = ?" +
+			"   And type = ?" +
+			" Order By name, Line ";
+
+		return runGroupedQuery(query, new GroupHandler() {
+			public void handleGroup(String key, List<String[]> rows) {
+				handler.handleSource(key, joinSource(rows));
+			}
+		}, schema, type.toUpperCase());
+	}
+
+	/**
+	 * Join the lines of source, as returned from "ALL_SOURCE", making sure
+	 * each one ends with a new-line
+	 * @param rows lines of source, each row having just the text
+	 */
+	protected String joinSource(List<String[]> rows) {
 		StringBuffer scriptSB = new StringBuffer(rows.size() * 80);
 		for (String[] row : rows) {
 			scriptSB.append(row[0]);
@@ -136,19 +180,25 @@ public abstract class BaseDataType implements DbRawDataType {
 
 	/**
 	 * Generic method for getting the results of a query.  The data is
-	 * returned as a list of "String" array.
-	 * @param query query to execute
+	 * returned as a list of "String" array.  The query is run as a prepared
+	 * statement from the connection's statement cache, so repeated queries
+	 * are only parsed once.
+	 * @param query query to execute, with a "?" for each parameter
+	 * @param params parameter values
 	 * @return List of row data, each row being a "String" array
 	 */
-	protected List<String[]> runQuery(String query) {
+	protected List<String[]> runQuery(String query, String... params) {
 		List<String[]> res = new ArrayList<String[]>(100);
-		Statement stmt = null;
+		PreparedStatement stmt = null;
 		ResultSet rset = null;
 
 		sqlMessage = "";
 		try {
-			stmt = conn.createStatement();
-			rset = stmt.executeQuery(query);
+			stmt = StatementCache.Borrow(conn, query);
+			for (int i=0;  i<params.length;  i++) {
+				stmt.setString(i+1, params[i]);
+			}
+			rset = stmt.executeQuery();
 			ResultSetMetaData rsmd = rset.getMetaData();
 			int count = rsmd.getColumnCount();
 			while (rset.next()) {
@@ -163,12 +213,34 @@ public abstract class BaseDataType implements DbRawDataType {
 			sqlMessage = sqlex.getMessage();
 		} finally {
 			if (rset != null) try { rset.close(); } catch (Exception ex) { }
-			if (stmt != null) try { stmt.close(); } catch (Exception ex) { }
+			StatementCache.Release(conn, query, stmt);
 		}
 		return res;
 	}
 
 
+	/**
+	 * Run a query whose rows are sorted by their first column, and hand each
+	 * run of rows with the same first column to the handler as soon as it's
+	 * complete; see {@link GroupedQuery}.  Oracle streams the rows whatever the auto-commit setting.
+	 * @param query query to execute, with a "?" for each parameter
+	 * @param handler receives each group of rows
+	 * @param params parameter values
+	 * @return TRUE if the query ran, FALSE if it failed
+	 */
+	protected boolean runGroupedQuery(String query, GroupHandler handler, String... params) {
+		sqlMessage = "";
+		try {
+			GroupedQuery.Run(conn, query, false, handler, params);
+			sqlMessage = "OK";
+			return true;
+		} catch (Exception sqlex) {
+			sqlMessage = sqlex.getMessage();
+			return false;
+		}
+	}
+
+
 	/**
 	 * Create a fully-qualified entry name, either "SCHEMA.ENTRY" or "ENTRY"
 	 * @param scheme schema name
@@ -38,10 +38,10 @@ public class DbLinkDataType extends BaseDataType {
 		String query =
 			"Select db_link " +
 			"  From sys.ALL_DB_LINKS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
+			" Where owner = ?" +
 			" Order By db_link";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema);
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -64,10 +64,10 @@ public class DbLinkDataType extends BaseDataType {
 		String query =
 			"Select db_link, username, host " +
 			"  From sys.ALL_DB_LINKS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(db_link)  = '" + entry.toUpperCase() + "'";
+			" Where owner = ?" +
+			"   And db_link = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(256);
 		scriptSB.append("CREATE DATABASE LINK " + qualifiedName(schema, entry) + " \n");
 		if (rows.size() == 1) {
@@ -43,11 +43,11 @@ public class FunctionDataType extends BaseDataType {
 		String query =
 			"Select object_name " +
 			"  From sys.ALL_OBJECTS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(object_type) = '" + getDataType() + "'" +
+			" Where owner = ?" +
+			"   And object_type = ?" +
 			" Order By object_name";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, getDataType());
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -56,6 +56,14 @@ public class FunctionDataType extends BaseDataType {
 		return entries;
 	}
 	
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getSources(java.lang.String, java.lang.String, sqltool.common.db.DbRawDataType.SourceHandler)
+	 */
+	@Override
+	public boolean getSources(String catalog, String schema, SourceHandler handler) {
+		return getAllSources(schema, getDataType(), handler);
+	}
+
 	/* (non-Javadoc)
 	 * @see sqltool.common.db.DbRawDataType#getCreate(java.lang.String, java.lang.String, java.lang.String)
 	 */
@@ -38,11 +38,11 @@ public class ObjectTypeDataType extends BaseDataType {
 		String query =
 			"Select type_name " +
 			"  From sys.ALL_TYPES " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(typecode) = 'OBJECT'" +
+			" Where owner = ?" +
+			"   And typecode = 'OBJECT'" +
 			" Order By type_name";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema);
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -65,10 +65,10 @@ public class ObjectTypeDataType extends BaseDataType {
 			"Select attr_name, attr_type_name, length, " +
 			"       precision, scale, 'Y' " +
 			"  From sys.ALL_TYPE_ATTRS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(type_name) = '" + entry.toUpperCase() + "'";
+			" Where owner = ?" +
+			"   And type_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
 		scriptSB.append("CREATE TYPE " + qualifiedName(schema, entry) + " AS OBJECT (\n");
 		writeColumnDef(rows, scriptSB);
@@ -77,6 +77,14 @@ public class ObjectTypeDataType extends BaseDataType {
 		return scriptSB.toString();
 	}
 
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getSources(java.lang.String, java.lang.String, sqltool.common.db.DbRawDataType.SourceHandler)
+	 */
+	@Override
+	public boolean getSources(String catalog, String schema, SourceHandler handler) {
+		return getAllSources(schema, "TYPE", handler);
+	}
+
 	/* (non-Javadoc)
 	 * @see sqltool.common.db.DbRawDataType#getCreate(java.lang.String, java.lang.String, java.lang.String)
 	 */
@@ -86,10 +94,10 @@ public class ObjectTypeDataType extends BaseDataType {
 			"Select attr_name, attr_type_name, length, " +
 			"       precision, scale, 'Y' " +
 			"  From sys.ALL_TYPE_ATTRS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(type_name) = '" + entry.toUpperCase() + "'";
+			" Where owner = ?" +
+			"   And type_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
 		scriptSB.append("CREATE TYPE " + qualifiedName(schema, entry) + " AS OBJECT (\n");
 		writeColumnDef(rows, scriptSB);
@@ -37,10 +37,10 @@ public class SequenceDataType extends BaseDataType {
 		String query =
 			"Select sequence_name " +
 			"  From sys.ALL_SEQUENCES " +
-			" Where upper(sequence_owner) = '" + schema.toUpperCase() + "'" +
+			" Where sequence_owner = ?" +
 			" Order By sequence_name";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema);
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -63,10 +63,10 @@ public class SequenceDataType extends BaseDataType {
 			"Select sequence_owner, sequence_name, min_value, max_value, " +
 			"       increment_by, cycle_flag, order_flag, cache_size, last_number " +
 			"  From sys.ALL_SEQUENCES " +
-			" Where upper(sequence_owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(sequence_name) = '" + entry.toUpperCase() + "'";
+			" Where sequence_owner = ?" +
+			"   And sequence_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(1024);
 		scriptSB.append("Details of sequence: " + qualifiedName(schema, entry) + ":\n");
 		if (rows.size() == 1) {
@@ -94,10 +94,10 @@ public class SequenceDataType extends BaseDataType {
 			"Select sequence_owner, sequence_name, min_value, max_value, " +
 			"       increment_by, cycle_flag, order_flag, cache_size, last_number " +
 			"  From sys.ALL_SEQUENCES " +
-			" Where upper(sequence_owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(sequence_name) = '" + entry.toUpperCase() + "'";
+			" Where sequence_owner = ?" +
+			"   And sequence_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(1024);
 		scriptSB.append("CREATE SEQUENCE " + qualifiedName(schema, entry) + "\n");
 		if (rows.size() == 1) {
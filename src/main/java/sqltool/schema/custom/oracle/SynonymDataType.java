@@ -37,11 +37,11 @@ public class SynonymDataType extends BaseDataType {
 		String query =
 			"Select synonym_name " +
 			"  From sys.ALL_SYNONYMS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
+			" Where owner = ?" +
 //			"    Or upper(owner) = '" + PUBLIC_PUBLIC + "'" +
 			" Order By synonym_name";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema);
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -63,10 +63,10 @@ public class SynonymDataType extends BaseDataType {
 		String query =
 			"Select synonym_name, table_owner, table_name " +
 			"  From sys.ALL_SYNONYMS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(synonym_name) = '" + entry.toUpperCase() + "'";
+			" Where owner = ?" +
+			"   And synonym_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(256);
 		scriptSB.append("CREATE SYNONYM " + qualifiedName(schema, entry) + " FOR ");
 		if (rows.size() == 1) {
@@ -2,6 +2,8 @@ package sqltool.schema.custom.oracle;
 
 import java.util.List;
 
+import sqltool.common.db.GroupedQuery.GroupHandler;
+
 
 /**
  * Extend {@link BaseDataType} to support "Table" data, which are the
@@ -37,10 +39,10 @@ public class TableDataType extends BaseDataType {
 		String query =
 			"Select table_name " +
 			"  From sys.ALL_TABLES " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
+			" Where owner = ?" +
 			" Order By table_name";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema);
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -64,17 +66,33 @@ public class TableDataType extends BaseDataType {
 			"Select column_name, data_type, char_length as data_length, " +
 			"       data_precision, data_scale, nullable " +
 			"  From sys.ALL_TAB_COLUMNS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(table_name) = '" + entry.toUpperCase() + "'" +
+			" Where owner = ?" +
+			"   And table_name = ?" +
 			" Order By column_id";
 
-		List<String[]> rows = runQuery(query);
-		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
-		scriptSB.append("CREATE TABLE " + qualifiedName(schema, entry) + " (\n");
-		writeColumnDef(rows, scriptSB);
-		scriptSB.append("\n);\n");
+		List<String[]> rows = runQuery(query, schema, entry);
+		return buildSource(schema, entry, rows);
+	}
 
-		return scriptSB.toString();
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getSources(java.lang.String, java.lang.String, sqltool.common.db.DbRawDataType.SourceHandler)
+	 */
+	@Override
+	public boolean getSources(String catalog, final String schema, final SourceHandler handler) {
+		String query =
+			"Select table_name, " +
+			"       column_name, data_type, char_length as data_length, " +
+			"       data_precision, data_scale, nullable " +
+			"  From sys.ALL_TAB_COLUMNS " +
+			" Where owner = ?" +
+			"   And table_name In (Select table_name From sys.ALL_TABLES Where owner = ?)" +
+			" Order By table_name, column_id";
+
+		return runGroupedQuery(query, new GroupHandler() {
+			public void handleGroup(String key, List<String[]> rows) {
+				handler.handleSource(key, buildSource(schema, key, rows));
+			}
+		}, schema, schema);
 	}
 
 	/* (non-Javadoc)
@@ -84,5 +102,19 @@ public class TableDataType extends BaseDataType {
 	public String getCreate(String catalog, String schema, String entry) {
 		return getSource(catalog, schema, entry);
 	}
-	
+
+	/**
+	 * Build the source for a table from its column definitions
+	 * @param schema schema name
+	 * @param entry table name
+	 * @param rows column definitions
+	 */
+	private String buildSource(String schema, String entry, List<String[]> rows) {
+		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
+		scriptSB.append("CREATE TABLE " + qualifiedName(schema, entry) + " (\n");
+		writeColumnDef(rows, scriptSB);
+		scriptSB.append("\n);\n");
+
+		return scriptSB.toString();
+	}
 }
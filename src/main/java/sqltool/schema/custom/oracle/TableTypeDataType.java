@@ -37,11 +37,11 @@ public class TableTypeDataType extends BaseDataType {
 		String query =
 			"Select type_name " +
 			"  From sys.ALL_TYPES " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(typecode) = 'COLLECTION'" +
+			" Where owner = ?" +
+			"   And typecode = 'COLLECTION'" +
 			" Order By type_name";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema);
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -64,10 +64,10 @@ public class TableTypeDataType extends BaseDataType {
 			"Select attr_name, attr_type_name, length, " +
 			"       precision, scale, 'Y' " +
 			"  From sys.ALL_TYPE_ATTRS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(type_name) = '" + entry.toUpperCase() + "'";
+			" Where owner = ?" +
+			"   And type_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
 		scriptSB.append("CREATE TABLE TYPE " + qualifiedName(schema, entry) + " AS OBJECT (\n");
 		writeColumnDef(rows, scriptSB);
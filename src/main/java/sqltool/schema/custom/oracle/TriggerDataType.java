@@ -37,10 +37,10 @@ public class TriggerDataType extends BaseDataType {
 		String query =
 			"Select trigger_name " +
 			"  From sys.ALL_TRIGGERS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
+			" Where owner = ?" +
 			" Order By trigger_name";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema);
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -62,10 +62,10 @@ public class TriggerDataType extends BaseDataType {
 		String query =
 			"Select column_name, column_usage " +
 			"  From sys.ALL_TRIGGER_COLS " +
-			" Where upper(trigger_owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(trigger_name) = '" + entry.toUpperCase() + "'";
+			" Where trigger_owner = ?" +
+			"   And trigger_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
 		scriptSB.append("Columns for trigger " + qualifiedName(schema, entry) + ":\n");
 		for (int i=0;  i<rows.size();  i++) {
@@ -79,6 +79,14 @@ public class TriggerDataType extends BaseDataType {
 		return scriptSB.toString();
 	}
 
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getSources(java.lang.String, java.lang.String, sqltool.common.db.DbRawDataType.SourceHandler)
+	 */
+	@Override
+	public boolean getSources(String catalog, String schema, SourceHandler handler) {
+		return getAllSources(schema, getDataType(), handler);
+	}
+
 	/* (non-Javadoc)
 	 * @see sqltool.common.db.DbRawDataType#getCreate(java.lang.String, java.lang.String, java.lang.String)
 	 */
@@ -87,10 +95,10 @@ public class TriggerDataType extends BaseDataType {
 		String query =
 			"Select description, trigger_body " +
 			"  From sys.ALL_TRIGGERS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(trigger_name) = '" + entry.toUpperCase() + "'";
+			" Where owner = ?" +
+			"   And trigger_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(1000);
 		scriptSB.append("CREATE TRIGGER \n");
 		if (rows.size() == 1) {
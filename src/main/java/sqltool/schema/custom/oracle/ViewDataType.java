@@ -2,6 +2,8 @@ package sqltool.schema.custom.oracle;
 
 import java.util.List;
 
+import sqltool.common.db.GroupedQuery.GroupHandler;
+
 
 /**
  * Extend {@link BaseDataType} to support "View" data, which are custom
@@ -37,10 +39,10 @@ public class ViewDataType extends BaseDataType {
 		String query =
 			"Select view_name " +
 			"  From sys.ALL_VIEWS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
+			" Where owner = ?" +
 			" Order By view_name";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema);
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -63,17 +65,33 @@ public class ViewDataType extends BaseDataType {
 			"Select column_name, data_type, data_length, " +
 			"       data_precision, data_scale, nullable " +
 			"  From sys.ALL_TAB_COLUMNS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(table_name) = '" + entry.toUpperCase() + "'" +
+			" Where owner = ?" +
+			"   And table_name = ?" +
 			" Order By column_id";
 
-		List<String[]> rows = runQuery(query);
-		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
-		scriptSB.append("Columns for view " + qualifiedName(schema, entry) + ":\n");
-		writeColumnDef(rows, scriptSB);
-		scriptSB.append("\n");
+		List<String[]> rows = runQuery(query, schema, entry);
+		return buildSource(schema, entry, rows);
+	}
 
-		return scriptSB.toString();
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getSources(java.lang.String, java.lang.String, sqltool.common.db.DbRawDataType.SourceHandler)
+	 */
+	@Override
+	public boolean getSources(String catalog, final String schema, final SourceHandler handler) {
+		String query =
+			"Select table_name, " +
+			"       column_name, data_type, data_length, " +
+			"       data_precision, data_scale, nullable " +
+			"  From sys.ALL_TAB_COLUMNS " +
+			" Where owner = ?" +
+			"   And table_name In (Select view_name From sys.ALL_VIEWS Where owner = ?)" +
+			" Order By table_name, column_id";
+
+		return runGroupedQuery(query, new GroupHandler() {
+			public void handleGroup(String key, List<String[]> rows) {
+				handler.handleSource(key, buildSource(schema, key, rows));
+			}
+		}, schema, schema);
 	}
 
 	/* (non-Javadoc)
@@ -84,10 +102,10 @@ public class ViewDataType extends BaseDataType {
 		String query =
 			"Select text " +
 			"  From sys.ALL_VIEWS " +
-			" Where upper(owner) = '" + schema.toUpperCase() + "'" +
-			"   And upper(view_name) = '" + entry.toUpperCase() + "'";
+			" Where owner = ?" +
+			"   And view_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, schema, entry);
 		StringBuffer scriptSB = new StringBuffer(1000);
 		scriptSB.append("CREATE VIEW " + qualifiedName(schema, entry) + " AS\n");
 		if (rows.size() == 1) {
@@ -101,4 +119,18 @@ public class ViewDataType extends BaseDataType {
 		return scriptSB.toString();
 	}
 
+	/**
+	 * Build the source for a view from its column definitions
+	 * @param schema schema name
+	 * @param entry view name
+	 * @param rows column definitions
+	 */
+	private String buildSource(String schema, String entry, List<String[]> rows) {
+		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
+		scriptSB.append("Columns for view " + qualifiedName(schema, entry) + ":\n");
+		writeColumnDef(rows, scriptSB);
+		scriptSB.append("\n");
+
+		return scriptSB.toString();
+	}
 }
@@ -1,15 +1,18 @@
 package sqltool.schema.custom.postgres;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import sqltool.common.db.DbRawDataType;
+import sqltool.common.db.GroupedQuery;
+import sqltool.common.db.GroupedQuery.GroupHandler;
+import sqltool.common.db.StatementCache;
 
 
 /**
@@ -104,6 +107,15 @@ public abstract class BaseDataType implements DbRawDataType {
 		return null;
 	}
 
+	/**
+	 * By default, there's no bulk extraction, and the sources are retrieved
+	 * one entry at a time
+	 * @return FALSE
+	 */
+	public boolean getSources(String database, String schema, SourceHandler handler) {
+		return false;
+	}
+
 	/**
 	 * Return the sql for doing a "DROP" on the given object ... 
 	 */
@@ -111,6 +123,11 @@ public abstract class BaseDataType implements DbRawDataType {
 		return DISCLAIMER + "DROP " + getDataType() + " " + qualifiedName(schema, entry) + ";";
 	}
 
+	/**
+	 * Build the "WHERE" clause that limits a query to a catalog and schema; an
+	 * empty catalog or schema matches anything.  The names are parameters, and
+	 * their values come from "catalogAndSchemaParams(...)".
+	 */
 	protected String catalogAndSchema(String catalogField, String catalog, String schemaField, String schema) {
 	    StringBuilder buff = new StringBuilder();
 
@@ -118,46 +135,72 @@ public abstract class BaseDataType implements DbRawDataType {
 	    if (catalog == null  ||  catalog.trim().isEmpty()) {
 	        buff.append(" LIKE '%' ");
 	    } else {
-	        buff.append(" = '").append(catalog).append("' ");
+	        buff.append(" = ? ");
 	    }
 
 	    buff.append(" AND ").append(schemaField);
         if (schema == null  ||  schema.trim().isEmpty()) {
             buff.append(" LIKE '%' ");
         } else {
-            buff.append(" = '").append(schema).append("' ");
+            buff.append(" = ? ");
         }
 
         return  buff.toString();
 	}
 
+	/**
+	 * Return the parameter values for a query that uses "catalogAndSchema(...)":
+	 * the catalog and schema names, unless they're empty, followed by the
+	 * query's other parameters
+	 */
+	protected String[] catalogAndSchemaParams(String catalog, String schema, String... others) {
+	    List<String> params = new ArrayList<String>(2 + others.length);
+	    if (catalog != null  &&  ! catalog.trim().isEmpty()) {
+	        params.add(catalog);
+	    }
+	    if (schema != null  &&  ! schema.trim().isEmpty()) {
+	        params.add(schema);
+	    }
+	    for (String other : others) {
+	        params.add(other);
+	    }
+	    return params.toArray(new String[params.size()]);
+	}
+
 	/**
 	 * Generic method for getting the results of a query.  The data is
 	 * returned as a list of "String" array.
-	 * @param query query to execute
+	 * @param query query to execute, with a "?" for each parameter
+	 * @param params parameter values
 	 * @return List of row data, each row being a "String" array
 	 */
-	protected List<String[]> runQuery(String query) {
-		return runQuery(query, false);
+	protected List<String[]> runQuery(String query, String... params) {
+		return runQuery(query, false, params);
 	}
 
 	/**
 	 * Generic method for getting the results of a query.  The data is
-	 * returned as a list of "String" array.
-	 * @param query query to execute
+	 * returned as a list of "String" array.  The query is run as a prepared
+	 * statement from the connection's statement cache, so repeated queries
+	 * are only parsed once.
+	 * @param query query to execute, with a "?" for each parameter
 	 * @param includeColNames flag to indicate of column names are to be
 	 *        returned as the first row
+	 * @param params parameter values
 	 * @return List of row data, each row being a "String" array
 	 */
-	protected List<String[]> runQuery(String query, boolean includeColNames) {
+	protected List<String[]> runQuery(String query, boolean includeColNames, String... params) {
 		List<String[]> res = new ArrayList<String[]>(100);
-		Statement stmt = null;
+		PreparedStatement stmt = null;
 		ResultSet rset = null;
 
 		sqlMessage = "";
 		try {
-			stmt = conn.createStatement();
-			rset = stmt.executeQuery(query);
+			stmt = StatementCache.Borrow(conn, query);
+			for (int i=0;  i<params.length;  i++) {
+				stmt.setString(i+1, params[i]);
+			}
+			rset = stmt.executeQuery();
 			ResultSetMetaData rsmd = rset.getMetaData();
 			int count = rsmd.getColumnCount();
 
@@ -183,11 +226,32 @@ public abstract class BaseDataType implements DbRawDataType {
 			sqlMessage = sqlex.getMessage();
 		} finally {
 			if (rset != null) try { rset.close(); } catch (Exception ex) { }
-			if (stmt != null) try { stmt.close(); } catch (Exception ex) { }
+			StatementCache.Release(conn, query, stmt);
 		}
 		return res;
 	}
 
+	/**
+	 * Run a query whose rows are sorted by their first column, and hand each
+	 * run of rows with the same first column to the handler as soon as it's
+	 * complete; see {@link GroupedQuery}.  Postgres only streams the rows with auto-commit off.
+	 * @param query query to execute, with a "?" for each parameter
+	 * @param handler receives each group of rows
+	 * @param params parameter values
+	 * @return TRUE if the query ran, FALSE if it failed
+	 */
+	protected boolean runGroupedQuery(String query, GroupHandler handler, String... params) {
+		sqlMessage = "";
+		try {
+			GroupedQuery.Run(conn, query, true, handler, params);
+			sqlMessage = "OK";
+			return true;
+		} catch (Exception sqlex) {
+			sqlMessage = sqlex.getMessage();
+			return false;
+		}
+	}
+
 	/**
 	 * Create a fully-qualified entry name, either "SCHEMA.ENTRY" or "ENTRY"
 	 * @param scheme schema name
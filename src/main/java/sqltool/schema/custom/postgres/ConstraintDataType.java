@@ -44,7 +44,7 @@ public class ConstraintDataType extends BaseDataType {
             catalogAndSchema("tc.constraint_catalog", catalog, "tc.constraint_schema", schema) +
             " ORDER BY tc.constraint_name ASC ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema));
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -71,10 +71,10 @@ public class ConstraintDataType extends BaseDataType {
             "  FROM information_schema.table_constraints AS tc " +
             "  JOIN pg_catalog.pg_constraint AS r ON r.conname = tc.constraint_name " +
             catalogAndSchema("tc.constraint_catalog", catalog, "tc.constraint_schema", schema) +
-            "   AND tc.constraint_name = '" + entry + "' " +
+            "   AND tc.constraint_name = ? " +
             " ORDER BY tc.constraint_name ASC ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema, entry));
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
 
 		if (rows.size() > 0) {
@@ -40,7 +40,7 @@ public class FunctionDataType extends BaseDataType {
 			catalogAndSchema("routine_catalog", catalog, "routine_schema", schema) +
 			" ORDER BY routine_name ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema));
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -68,9 +68,9 @@ public class FunctionDataType extends BaseDataType {
 		String query =
             "SELECT proname, prorettype, prosrc, 'PLPGSQL' " +
 		    "  FROM pg_catalog.pg_proc " +
-            " WHERE proname = '" + entry + "'";
+            " WHERE proname = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, entry);
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
 		scriptSB.append("CREATE OR REPLACE FUNCTION ").append(qualifiedName(schema, entry)).append("()");
 		if (rows.size() > 0) {
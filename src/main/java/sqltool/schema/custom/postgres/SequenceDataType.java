@@ -40,7 +40,7 @@ public class SequenceDataType extends BaseDataType {
 			catalogAndSchema("sequence_catalog", catalog, "sequence_schema", schema) +
 			" ORDER BY sequence_name ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema));
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -63,9 +63,9 @@ public class SequenceDataType extends BaseDataType {
             "SELECT sequence_name, data_type, start_value, increment, maximum_value, cycle_option " +
             "  FROM information_schema.sequences " +
             catalogAndSchema("sequence_catalog", catalog, "sequence_schema", schema) +
-            "   AND sequence_name = '" + entry + "'";
+            "   AND sequence_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema, entry));
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
 		scriptSB.append("SEQUENCE ").append(qualifiedName(schema, entry)).append(":\n");
 		if (rows.size() > 0) {
@@ -95,9 +95,9 @@ public class SequenceDataType extends BaseDataType {
             "SELECT sequence_name, start_value, increment, maximum_value " +
             "  FROM information_schema.sequences " +
             catalogAndSchema("sequence_catalog", catalog, "sequence_schema", schema) +
-            "   AND sequence_name = '" + entry + "'";
+            "   AND sequence_name = ?";
 
-        List<String[]> rows = runQuery(query);
+        List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema, entry));
         StringBuffer scriptSB = new StringBuffer(44 * rows.size());
         scriptSB.append("CREATE SEQUENCE ").append(qualifiedName(schema, entry));
         if (rows.size() > 0) {
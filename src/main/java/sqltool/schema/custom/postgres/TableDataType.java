@@ -1,6 +1,11 @@
 package sqltool.schema.custom.postgres;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import sqltool.common.db.GroupedQuery.GroupHandler;
 
 
 /**
@@ -41,7 +46,7 @@ public class TableDataType extends BaseDataType {
 			"   AND table_type = 'BASE TABLE' " +
 			" ORDER BY table_name ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema));
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -65,20 +70,114 @@ public class TableDataType extends BaseDataType {
 			"       is_nullable, character_maximum_length, numeric_precision " +
 			"  FROM information_schema.columns " +
             catalogAndSchema("table_catalog", catalog, "table_schema", schema) +
-			"   AND table_name = '" + entry + "' " +
+			"   AND table_name = ? " +
 			" ORDER BY ordinal_position ";
 
-		List<String[]> rows = runQuery(query);
-		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema, entry));
+		return buildSource(schema, entry, rows, getConstraints(catalog, schema, entry));
+	}
+
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getSources(java.lang.String, java.lang.String, sqltool.common.db.DbRawDataType.SourceHandler)
+	 */
+	@Override
+	public boolean getSources(String catalog, final String schema, final SourceHandler handler) {
+		// The constraints are few enough to hold, by table, while the columns
+		// are streamed
+	    String query =
+	        "SELECT tc.table_name, " +
+	        "       tc.constraint_name, " +
+	        "       tc.table_name, " +
+	        "       tc.constraint_type, " +
+	        "       pg_catalog.pg_get_constraintdef(r.oid, TRUE) AS condef " +
+	        "  FROM information_schema.table_constraints AS tc " +
+	        "  JOIN pg_catalog.pg_constraint AS r ON r.conname = tc.constraint_name " +
+            catalogAndSchema("tc.constraint_catalog", catalog, "tc.constraint_schema", schema) +
+	        " ORDER BY tc.table_name, tc.constraint_name ASC ";
+
+		final Map<String,List<String[]>> constraints = new HashMap<String,List<String[]>>();
+		boolean ok = runGroupedQuery(query, new GroupHandler() {
+			public void handleGroup(String key, List<String[]> rows) {
+				constraints.put(key, rows);
+			}
+		}, catalogAndSchemaParams(catalog, schema));
+		if (! ok) {
+			return false;
+		}
+
+		query =
+			"SELECT c.table_name, c.ordinal_position, c.column_name, c.data_type, c.udt_name," +
+			"       c.is_nullable, c.character_maximum_length, c.numeric_precision " +
+			"  FROM information_schema.columns AS c " +
+			"  JOIN information_schema.tables AS t " +
+			"    ON t.table_catalog = c.table_catalog " +
+			"   AND t.table_schema = c.table_schema " +
+			"   AND t.table_name = c.table_name " +
+            catalogAndSchema("c.table_catalog", catalog, "c.table_schema", schema) +
+			"   AND t.table_type = 'BASE TABLE' " +
+			" ORDER BY c.table_name, c.ordinal_position ";
+
+		return runGroupedQuery(query, new GroupHandler() {
+			public void handleGroup(String key, List<String[]> rows) {
+				List<String[]> conRows = constraints.get(key);
+				if (conRows == null) {
+					conRows = new ArrayList<String[]>();
+				}
+				handler.handleSource(key, buildSource(schema, key, rows, conRows));
+			}
+		}, catalogAndSchemaParams(catalog, schema));
+	}
+
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getCreate(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public String getCreate(String catalog, String schema, String entry) {
+        return getSource(catalog, schema, entry);
+	}
+
+	/**
+	 * Return all constraints for a given catalog + schema + entry.  We're primarily
+	 * interested in the PRIMARY KEY and FOREIGN KEY constraints.
+	 * 
+	 * @param catalog catalog name
+	 * @param schema schema name
+	 * @param entry entry [table] name
+	 * @return rows of data with constraint name, type, table name, column name,
+	 *         position, referenced schema, referenced table, referenced column.
+	 */
+	private List<String[]> getConstraints(String catalog, String schema, String entry) {
+	    String query =
+	        "SELECT tc.constraint_name, " +
+	        "       tc.table_name, " +
+	        "       tc.constraint_type, " +
+	        "       pg_catalog.pg_get_constraintdef(r.oid, TRUE) AS condef " +
+	        "  FROM information_schema.table_constraints AS tc " +
+	        "  JOIN pg_catalog.pg_constraint AS r ON r.conname = tc.constraint_name " +
+            catalogAndSchema("tc.constraint_catalog", catalog, "tc.constraint_schema", schema) +
+	        "   AND tc.table_name = ? " +
+	        " ORDER BY tc.constraint_name ASC ";
+	    return runQuery(query, catalogAndSchemaParams(catalog, schema, entry));
+	}
+
+	/**
+	 * Build the "CREATE TABLE" source from the column definitions and the
+	 * constraints
+	 * @param schema schema name
+	 * @param entry table name
+	 * @param colRows column definitions
+	 * @param conRows constraints, as returned by "getConstraints(...)"
+	 */
+	private String buildSource(String schema, String entry, List<String[]> colRows, List<String[]> conRows) {
+		StringBuffer scriptSB = new StringBuffer(44 * colRows.size());
 		scriptSB.append("CREATE TABLE " + qualifiedName(schema, entry) + " (\n");
-		writeColumnDef(rows, scriptSB);
+		writeColumnDef(colRows, scriptSB);
 
 		// Add the PRIMARY KEY constraints, if any -- the results of the query
 		// to get constraints will consist of the constraint name, table name,
 		// constraint type and the fully-formed constraint definition
 		boolean first = true;
-		rows = getConstraints(catalog, schema, entry);
-		for (String[] row : rows) {
+		for (String[] row : conRows) {
 		    if ("PRIMARY KEY".equals(row[2])) {
                 scriptSB.append(",");
                 if (first) {
@@ -91,7 +190,7 @@ public class TableDataType extends BaseDataType {
 		}
 
         // Add the FOREIGN KEY, CHECK, UNIQUE constraints, if any
-        for (String[] row : rows) {
+        for (String[] row : conRows) {
             if (! "PRIMARY KEY".equals(row[2])) {
                 scriptSB.append(",");
                 if (first) {
@@ -113,36 +212,4 @@ public class TableDataType extends BaseDataType {
 
 		return scriptSB.toString();
 	}
-
-	/* (non-Javadoc)
-	 * @see sqltool.common.db.DbRawDataType#getCreate(java.lang.String, java.lang.String, java.lang.String)
-	 */
-	@Override
-	public String getCreate(String catalog, String schema, String entry) {
-        return getSource(catalog, schema, entry);
-	}
-
-	/**
-	 * Return all constraints for a given catalog + schema + entry.  We're primarily
-	 * interested in the PRIMARY KEY and FOREIGN KEY constraints.
-	 * 
-	 * @param catalog catalog name
-	 * @param schema schema name
-	 * @param entry entry [table] name
-	 * @return rows of data with constraint name, type, table name, column name,
-	 *         position, referenced schema, referenced table, referenced column.
-	 */
-	private List<String[]> getConstraints(String catalog, String schema, String entry) {
-	    String query =
-	        "SELECT tc.constraint_name, " +
-	        "       tc.table_name, " +
-	        "       tc.constraint_type, " +
-	        "       pg_catalog.pg_get_constraintdef(r.oid, TRUE) AS condef " +
-	        "  FROM information_schema.table_constraints AS tc " +
-	        "  JOIN pg_catalog.pg_constraint AS r ON r.conname = tc.constraint_name " +
-            catalogAndSchema("tc.constraint_catalog", catalog, "tc.constraint_schema", schema) +
-	        "   AND tc.table_name = '" + entry + "' " +
-	        " ORDER BY tc.constraint_name ASC ";
-	    return runQuery(query);
-	}
 }
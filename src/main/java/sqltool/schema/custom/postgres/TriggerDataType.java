@@ -40,7 +40,7 @@ public class TriggerDataType extends BaseDataType {
 			catalogAndSchema("trigger_catalog", catalog, "trigger_schema", schema) +
 			" ORDER BY trigger_name ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema));
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -64,9 +64,9 @@ public class TriggerDataType extends BaseDataType {
             "       action_statement, action_orientation, action_timing " +
             "  FROM information_schema.triggers " +
             catalogAndSchema("trigger_catalog", catalog, "trigger_schema", schema) +
-            "   AND trigger_name = '" + entry + "'";
+            "   AND trigger_name = ?";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema, entry));
 		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
 		scriptSB.append("CREATE TRIGGER ").append(qualifiedName(schema, entry)).append(" ");
 		if (rows.size() > 0) {
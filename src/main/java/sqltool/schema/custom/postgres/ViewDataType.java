@@ -2,6 +2,8 @@ package sqltool.schema.custom.postgres;
 
 import java.util.List;
 
+import sqltool.common.db.GroupedQuery.GroupHandler;
+
 
 /**
  * Extend {@link BaseDataType} to support "View" data, which are the
@@ -51,7 +53,7 @@ public class ViewDataType extends BaseDataType {
 			"   AND table_type = 'VIEW' " +
 			" ORDER BY table_name ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema));
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -75,16 +77,34 @@ public class ViewDataType extends BaseDataType {
 			"       is_nullable, character_maximum_length, numeric_precision " +
 			"  FROM information_schema.columns " +
             catalogAndSchema("table_catalog", catalog, "table_schema", schema) +
-			"   AND table_name = '" + entry + "' " +
+			"   AND table_name = ? " +
 			" ORDER BY ordinal_position ";
 
-		List<String[]> rows = runQuery(query);
-		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
-		scriptSB.append("VIEW COLUMNS " + qualifiedName(schema, entry) + " (\n");
-		writeColumnDef(rows, scriptSB);
-		scriptSB.append("\n);\n");
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema, entry));
+		return buildSource(schema, entry, rows);
+	}
 
-		return scriptSB.toString();
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getSources(java.lang.String, java.lang.String, sqltool.common.db.DbRawDataType.SourceHandler)
+	 */
+	@Override
+	public boolean getSources(String catalog, final String schema, final SourceHandler handler) {
+		String query =
+			"SELECT c.table_name, c.ordinal_position, c.column_name, c.data_type, c.udt_name," +
+			"       c.is_nullable, c.character_maximum_length, c.numeric_precision " +
+			"  FROM information_schema.columns AS c " +
+			"  JOIN information_schema.views AS v " +
+			"    ON v.table_catalog = c.table_catalog " +
+			"   AND v.table_schema = c.table_schema " +
+			"   AND v.table_name = c.table_name " +
+            catalogAndSchema("c.table_catalog", catalog, "c.table_schema", schema) +
+			" ORDER BY c.table_name, c.ordinal_position ";
+
+		return runGroupedQuery(query, new GroupHandler() {
+			public void handleGroup(String key, List<String[]> rows) {
+				handler.handleSource(key, buildSource(schema, key, rows));
+			}
+		}, catalogAndSchemaParams(catalog, schema));
 	}
 
 	/* (non-Javadoc)
@@ -94,5 +114,19 @@ public class ViewDataType extends BaseDataType {
 	public String getCreate(String catalog, String schema, String entry) {
         return getSource(catalog, schema, entry);
 	}
-	
+
+	/**
+	 * Build the source for a view from its column definitions
+	 * @param schema schema name
+	 * @param entry view name
+	 * @param rows column definitions
+	 */
+	private String buildSource(String schema, String entry, List<String[]> rows) {
+		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
+		scriptSB.append("VIEW COLUMNS " + qualifiedName(schema, entry) + " (\n");
+		writeColumnDef(rows, scriptSB);
+		scriptSB.append("\n);\n");
+
+		return scriptSB.toString();
+	}
 }
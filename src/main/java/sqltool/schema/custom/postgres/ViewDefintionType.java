@@ -2,6 +2,8 @@ package sqltool.schema.custom.postgres;
 
 import java.util.List;
 
+import sqltool.common.db.GroupedQuery.GroupHandler;
+
 
 /**
  * Extend {@link BaseDataType} to support "View" data, which are the
@@ -50,7 +52,7 @@ public class ViewDefintionType extends BaseDataType {
             catalogAndSchema("table_catalog", catalog, "table_schema", schema) +
 			" ORDER BY table_name ";
 
-		List<String[]> rows = runQuery(query);
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema));
 		String[] entries = new String[rows.size()];
 		for (int i=0;  i<entries.length;  i++) {
 			String[] row = rows.get(i);
@@ -73,16 +75,28 @@ public class ViewDefintionType extends BaseDataType {
 			"SELECT view_definition " +
 			"  FROM information_schema.views " +
             catalogAndSchema("table_catalog", catalog, "table_schema", schema) +
-			"   AND table_name = '" + entry + "' ";
+			"   AND table_name = ? ";
 
-		List<String[]> rows = runQuery(query);
-		StringBuffer scriptSB = new StringBuffer(44 * rows.size());
-		scriptSB.append("VIEW DEFINITION " + qualifiedName(schema, entry) + " (\n");
-		String viewDef = rows.get(0)[0];
-		scriptSB.append(prettifySql(viewDef));
-		scriptSB.append("\n);\n");
+		List<String[]> rows = runQuery(query, catalogAndSchemaParams(catalog, schema, entry));
+		return buildSource(schema, entry, rows.get(0)[0]);
+	}
 
-		return scriptSB.toString();
+	/* (non-Javadoc)
+	 * @see sqltool.common.db.DbRawDataType#getSources(java.lang.String, java.lang.String, sqltool.common.db.DbRawDataType.SourceHandler)
+	 */
+	@Override
+	public boolean getSources(String catalog, final String schema, final SourceHandler handler) {
+		String query =
+			"SELECT table_name, view_definition " +
+			"  FROM information_schema.views " +
+            catalogAndSchema("table_catalog", catalog, "table_schema", schema) +
+			" ORDER BY table_name ";
+
+		return runGroupedQuery(query, new GroupHandler() {
+			public void handleGroup(String key, List<String[]> rows) {
+				handler.handleSource(key, buildSource(schema, key, rows.get(0)[0]));
+			}
+		}, catalogAndSchemaParams(catalog, schema));
 	}
 
 	/* (non-Javadoc)
@@ -111,4 +125,21 @@ public class ViewDefintionType extends BaseDataType {
 	    }
 	    return buff.toString();
 	}
+
+	/**
+	 * Build the source for a view from its definition
+	 * @param schema schema name
+	 * @param entry view name
+	 * @param viewDef view definition
+	 */
+	private String buildSource(String schema, String entry, String viewDef) {
+		StringBuffer scriptSB = new StringBuffer(200);
+		scriptSB.append("VIEW DEFINITION " + qualifiedName(schema, entry) + " (\n");
+		if (viewDef != null) {
+			scriptSB.append(prettifySql(viewDef));
+		}
+		scriptSB.append("\n);\n");
+
+		return scriptSB.toString();
+	}
 }
@@ -28,6 +28,11 @@ public class DbDefinition implements FolderItem {
 	private String  testQuery;
 	private boolean isActive;
 
+	// Control how query results are fetched: the fetch size (0 = driver
+	// default) and whether to stream results instead of loading them all
+	private int     fetchSize;
+	private boolean streamResults;
+
 	/**
 	 * Default constructor creates a blank definition
 	 */
@@ -52,6 +57,8 @@ public class DbDefinition implements FolderItem {
 		this.password = password;
 		this.testQuery = testQuery;
 		this.isActive = true;
+		this.fetchSize = 0;
+		this.streamResults = false;
 	}
 	
 	public String getAlias()      { return alias; }
@@ -61,6 +68,8 @@ public class DbDefinition implements FolderItem {
 	public String getPassword()   { return password; }
 	public String getTestQuery()  { return testQuery; }
 	public boolean isActive()     { return isActive; }
+	public int getFetchSize()     { return fetchSize; }
+	public boolean isStreamResults() { return streamResults; }
 
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
@@ -104,7 +113,7 @@ public class DbDefinition implements FolderItem {
 
 	/**
 	 * Method required to pull out all values needed to re-created this object
-	 * from an XML file.  We need to save five values.
+	 * from an XML file.  We need to save nine values.
 	 * 
 	 * @return Map containing keys and value for the DB server definition
 	 */
@@ -119,6 +128,8 @@ public class DbDefinition implements FolderItem {
 		myValues.put("password", password);
 		myValues.put("testQuery", testQuery);
 		myValues.put("isActive", String.valueOf(isActive));
+		myValues.put("fetchSize", String.valueOf(fetchSize));
+		myValues.put("streamResults", String.valueOf(streamResults));
 
 		return myValues;
 	}
@@ -139,6 +150,13 @@ public class DbDefinition implements FolderItem {
 		password  = values.get("password");
 		testQuery = values.get("testQuery");
 		isActive  = "true".equals(values.get("isActive"));
+		streamResults = "true".equals(values.get("streamResults"));
+
+		// Older definitions won't have a fetch size
+		fetchSize = 0;
+		try {
+			fetchSize = Math.max(0, Integer.parseInt(values.get("fetchSize").trim()));
+		} catch (Exception ex) { }
 	}
 
 	/**
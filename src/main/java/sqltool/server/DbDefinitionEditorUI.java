@@ -36,11 +36,15 @@ public class DbDefinitionEditorUI extends JDialog {
 	private JLabel jLabel7 = new JLabel();
 	private JLabel jLabel8 = new JLabel();
     private JLabel jLabel9 = new JLabel();
+    private JLabel jLabel10 = new JLabel();
+    private JLabel jLabel11 = new JLabel();
 	private JTextField userTF = new JTextField();
 	private JTextField aliasTF = new JTextField(36);
 	private JTextField testQueryTF = new JTextField(36);
 	private JPasswordField passwordTF = new JPasswordField();
 	private JCheckBox isActiveCB = new JCheckBox();
+	private JTextField fetchSizeTF = new JTextField(8);
+	private JCheckBox streamResultsCB = new JCheckBox();
 	private JComboBox driverListCB = new JComboBox();
 	private JComboBox urlListCB = new JComboBox();
 	private JPanel jPanel1 = new JPanel();
@@ -84,7 +88,7 @@ public class DbDefinitionEditorUI extends JDialog {
 				}
 			});
 			pack();
-			setSize(640,240);
+			setSize(640,290);
 		} catch(Exception ex) {
 			ex.printStackTrace();
 		}
@@ -105,6 +109,10 @@ public class DbDefinitionEditorUI extends JDialog {
 		jLabel7.setText(" ");
         jLabel8.setText("Alias:");
         jLabel9.setText("Is Active:");
+        jLabel10.setText("Fetch size:");
+        jLabel11.setText("Stream results:");
+        fetchSizeTF.setToolTipText("Rows fetched per round-trip; 0 or blank for the driver default");
+        streamResultsCB.setToolTipText("Stream large results rather than loading them all before the first row is shown");
 
         cancelBtn.setMargin(new Insets(0, 4, 0, 4));
 		cancelBtn.setText("cancel");
@@ -169,7 +177,15 @@ public class DbDefinitionEditorUI extends JDialog {
                 ,GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 6, 0, 2), 0, 0));
         panel1.add(testQueryTF,   new GridBagConstraints(1, 7, 1, 1, 1.0, 0.0
                 ,GridBagConstraints.EAST, GridBagConstraints.HORIZONTAL, new Insets(0, 2, 0, 6), 0, 0));
-		panel1.add(jPanel1,  new GridBagConstraints(1, 8, 1, 1, 0.0, 0.0
+		panel1.add(jLabel10,  new GridBagConstraints(0, 8, 1, 1, 0.0, 0.0
+                ,GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 6, 0, 2), 0, 0));
+		panel1.add(fetchSizeTF,   new GridBagConstraints(1, 8, 1, 1, 0.0, 0.0
+                ,GridBagConstraints.WEST, GridBagConstraints.NONE, new Insets(0, 2, 0, 6), 0, 0));
+		panel1.add(jLabel11,  new GridBagConstraints(0, 9, 1, 1, 0.0, 0.0
+                ,GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 6, 0, 2), 0, 0));
+		panel1.add(streamResultsCB,   new GridBagConstraints(1, 9, 1, 1, 1.0, 0.0
+                ,GridBagConstraints.EAST, GridBagConstraints.HORIZONTAL, new Insets(0, 2, 0, 6), 0, 0));
+		panel1.add(jPanel1,  new GridBagConstraints(1, 10, 1, 1, 0.0, 0.0
 				,GridBagConstraints.CENTER, GridBagConstraints.NONE, new Insets(0, 0, 0, 0), 0, 0));
 		jPanel1.add(acceptBtn, null);
 		jPanel1.add(cancelBtn, null);
@@ -211,6 +227,8 @@ public class DbDefinitionEditorUI extends JDialog {
 		myValues.put("password", new String(passwordTF.getPassword()));
 		myValues.put("testQuery", testQueryTF.getText());
 		myValues.put("isActive", String.valueOf(isActiveCB.isSelected()));
+		myValues.put("fetchSize", fetchSizeTF.getText());
+		myValues.put("streamResults", String.valueOf(streamResultsCB.isSelected()));
 
 		model.setValues(myValues);
 
@@ -280,6 +298,8 @@ public class DbDefinitionEditorUI extends JDialog {
 		passwordTF.setText(model.getPassword());
 		testQueryTF.setText(model.getTestQuery());
 		isActiveCB.setSelected(model.isActive());
+		fetchSizeTF.setText(String.valueOf(model.getFetchSize()));
+		streamResultsCB.setSelected(model.isStreamResults());
 		setPasswordToolTip();
 	}
 
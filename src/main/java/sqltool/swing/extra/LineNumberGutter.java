@@ -0,0 +1,134 @@
+package sqltool.swing.extra;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import javax.swing.JComponent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+
+import sqltool.query.LineNumberBorder;
+
+
+/**
+ * Line numbers for a text component, meant to be used as the row header of the
+ * JScrollPane holding the text.  Nothing is stored: the numbers are painted on
+ * demand, and only for the lines that fall inside the clip area, using the
+ * document's line [paragraph element] structure to find the first visible
+ * line.  Use a minimum of three characters to display a line number, with no
+ * maximum.
+ *
+ * @author wjohnson000
+ */
+public class LineNumberGutter extends JComponent {
+
+	static final long serialVersionUID = 4829131367520917541L;
+
+	/** Background and text colors */
+	private static Color BACK_COLOR = new Color(240, 240, 240);
+	private static Color TEXT_COLOR = new Color(92, 92, 92);
+
+	/** Minimum number of digits to display */
+	private static int MIN_DIGITS = 3;
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- textComp: text component whose lines are being numbered
+	//   -- digits: number of digits in the largest line number
+	// =============================================================================
+	private JTextComponent textComp;
+	private int digits = MIN_DIGITS;
+
+	/**
+	 * Create the gutter for a text component
+	 * @param textComp text component
+	 */
+	public LineNumberGutter(JTextComponent textComp) {
+		this.textComp = textComp;
+		setFont(textComp.getFont());
+		setOpaque(true);
+		setBorder(new LineNumberBorder());
+
+		// Keep the height in step with the text
+		textComp.addComponentListener(new ComponentAdapter() {
+			public void componentResized(ComponentEvent ce) {
+				revalidate();
+				repaint();
+			}
+		});
+	}
+
+	/**
+	 * Called when the number of lines in the text may have changed.  The width
+	 * only changes when the largest line number needs another digit.
+	 */
+	public void lineCountChanged() {
+		int lineCount = textComp.getDocument().getDefaultRootElement().getElementCount();
+		int newDigits = Math.max(String.valueOf(lineCount).length(), MIN_DIGITS);
+		if (newDigits != digits) {
+			digits = newDigits;
+			revalidate();
+		}
+		repaint();
+	}
+
+	/**
+	 * The width allows for the line number plus a space on either side; the
+	 * height is always that of the text.
+	 */
+	public Dimension getPreferredSize() {
+		FontMetrics fm = getFontMetrics(getFont());
+		Insets insets = getInsets();
+		int width = fm.charWidth('0') * (digits+2) + insets.left + insets.right;
+		return new Dimension(width, Math.max(textComp.getHeight(), textComp.getPreferredSize().height));
+	}
+
+	/**
+	 * Paint the line numbers for the lines inside of the clip area
+	 */
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+		g.setColor(BACK_COLOR);
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		g.setFont(getFont());
+		g.setColor(TEXT_COLOR);
+		FontMetrics fm = g.getFontMetrics();
+		Insets insets = getInsets();
+		int right = getWidth() - insets.right - fm.charWidth('0');
+
+		Element root = textComp.getDocument().getDefaultRootElement();
+		int offset = textComp.viewToModel(new Point(0, clip.y));
+		int line = root.getElementIndex(Math.max(offset, 0));
+		char[] number = new char[Math.max(digits, 10)];
+		try {
+			for ( ;  line<root.getElementCount();  line++) {
+				Rectangle rect = textComp.modelToView(root.getElement(line).getStartOffset());
+				if (rect == null  ||  rect.y > clip.y + clip.height) {
+					break;
+				}
+
+				// Zero-padded line number, built without any string garbage
+				int num = line + 1;
+				int pos = number.length;
+				while (num > 0  ||  number.length-pos < digits) {
+					number[--pos] = (char)('0' + num % 10);
+					num /= 10;
+				}
+				int len = number.length - pos;
+				int baseline = rect.y + (rect.height - fm.getHeight())/2 + fm.getAscent();
+				g.drawChars(number, pos, len, right - fm.charsWidth(number, pos, len), baseline);
+			}
+		} catch (BadLocationException ex) { }
+	}
+}
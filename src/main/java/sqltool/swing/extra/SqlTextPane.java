@@ -1,10 +1,10 @@
 package sqltool.swing.extra;
 
-import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
+import javax.swing.JComponent;
 import javax.swing.JScrollPane;
 import javax.swing.JTextPane;
 import javax.swing.JViewport;
@@ -12,9 +12,7 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.Document;
 
-//import sqltool.query.LineNumberBorder;
 import sqltool.common.SqlToolkit;
-import sqltool.query.LineNumberDocument;
 import sqltool.query.SqlDocument;
 
 
@@ -32,7 +30,7 @@ public class SqlTextPane extends JTextPane {
 	int    docLineCount  = 0;
 	String docLongestLine = "";
 	int prefSizeWidth = 0;
-	JTextPane rowPane = null;
+	LineNumberGutter rowPane = null;
 
 	/**
 	 * Default constructor remains unchanged ...
@@ -56,9 +54,9 @@ public class SqlTextPane extends JTextPane {
 	}
 
 	/**
-	 * 
+	 * Return the line-number gutter, or null if it hasn't been created yet
 	 */
-	public JTextPane getRowPane() {
+	public JComponent getRowPane() {
 		return rowPane;
 	}
 
@@ -202,10 +200,10 @@ public class SqlTextPane extends JTextPane {
 	 * the document and update the line-number pane if necessary.
 	 * 
 	 * Use the "getLongestLine() method to get the longest line in the
-	 * document.  If a change has occurred replace all TABs with four
-	 * spaces [sorta' random choice], add three characters of padding
-	 * just to be safe, and calculate the length of that line based on
-	 * the current font metrics.  That now becomes the preferred width.
+	 * document.  If a change has occurred calculate the length of that
+	 * line based on the current font metrics, with TABs expanded to the
+	 * tab spacing, and add a few characters of padding just to be safe.
+	 * That now becomes the preferred width.
 	 */
 	private void updateDocumentSize(boolean force) {
 		SqlDocument sqlDoc = (SqlDocument)getDocument();
@@ -221,7 +219,7 @@ public class SqlTextPane extends JTextPane {
 				}
 				if (rowPane != null) {
 					docLineCount = lineCount;
-					rowPane.setText(getLineNumberText());
+					rowPane.lineCountChanged();
 				}
 			}
 
@@ -233,11 +231,7 @@ public class SqlTextPane extends JTextPane {
 			if (fm != null  &&  maxLine != null  &&  maxLine.length() > 0  &&
 					(force  ||  maxLine.length() != docLongestLine.length())) {
 				docLongestLine = maxLine;
-				String padding = "";
-				for (int i=0;  i<SqlToolkit.userConfig.getTabSpacing();  i++) {
-					padding += " ";
-				}
-				int newPrefWidth = fm.stringWidth(docLongestLine.replaceAll("\t", padding)+"PADD");
+				int newPrefWidth = getLineWidth(fm, docLongestLine) + fm.stringWidth("PADD");
 				if (newPrefWidth != prefSizeWidth) {
 					prefSizeWidth = newPrefWidth;
 					setPreferredSize(new Dimension(prefSizeWidth, 1000));
@@ -247,40 +241,33 @@ public class SqlTextPane extends JTextPane {
 	}
 
 	/**
-	 * This gets called once, only after the main document has been set and this
-	 * element has been added to a JScrollPane.
+	 * Calculate the width of a line of text, with each TAB moving to the next
+	 * tab stop, without building a new string.
+	 * @param fm font metrics
+	 * @param line line of text
+	 * @return width of the line
 	 */
-	private void createRowPane() {
-		LineNumberDocument rowDoc = new LineNumberDocument();
-		rowPane = new JTextPane();
-		rowPane.setDocument(rowDoc);
-		rowPane.setFont(getFont());
-		rowPane.setEnabled(false);
-		rowPane.setBackground(new Color(240, 240, 240));
-		((JScrollPane)getParent().getParent()).setRowHeaderView(rowPane);
+	private int getLineWidth(FontMetrics fm, String line) {
+		int tabWidth = Math.max(1, SqlToolkit.userConfig.getTabSpacing() * fm.charWidth(' '));
+		int width = 0;
+		for (int i=0;  i<line.length();  i++) {
+			char ch = line.charAt(i);
+			if (ch == '\t') {
+				width = (width / tabWidth + 1) * tabWidth;
+			} else {
+				width += fm.charWidth(ch);
+			}
+		}
+		return width;
 	}
 
 	/**
-	 * Generate the contents of the line number pane.  Use a minimum of three
-	 * characters to display line number, with no maximum.
-	 * @return
+	 * This gets called once, only after the main document has been set and this
+	 * element has been added to a JScrollPane.  The line numbers are painted by
+	 * the gutter, only for the lines that are visible.
 	 */
-	private String getLineNumberText() {
-		StringBuffer sb = new StringBuffer(docLineCount*5);
-		int len = (""+docLineCount).length();
-		len = Math.max(len, 3);
-		for (int i=1;  i<=docLineCount;  i++) {
-			String lineNum = "" + i;
-			sb.append(" ");
-			for (int j=lineNum.length();  j<len;  j++) {
-				sb.append("0");
-			}
-			sb.append(lineNum);
-			sb.append(" ");
-			if (i < docLineCount) {
-				sb.append("\n");
-			}
-		}
-		return sb.toString();
+	private void createRowPane() {
+		rowPane = new LineNumberGutter(this);
+		((JScrollPane)getParent().getParent()).setRowHeaderView(rowPane);
 	}
 }
@@ -0,0 +1,269 @@
+package sqltool.table;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+
+/**
+ * Storage for the values of a single column of a {@link RowTableModel}.  Values
+ * are kept in fixed-size chunks, using primitive arrays where the column type
+ * allows it, with a separate bitmap to mark the null entries.  Chunks are only
+ * ever appended, so adding a row never copies existing data.
+ *
+ * @author wjohnson000
+ *
+ */
+abstract class ColumnData {
+
+	// =============================================================================
+	//  C H U N K    L A Y O U T
+	//   -- CHUNK_SHIFT: log2 of the number of rows in a single chunk
+	//   -- CHUNK_SIZE: number of rows in a single chunk
+	//   -- CHUNK_MASK: mask to get the offset of a row within its chunk
+	// =============================================================================
+	static final int CHUNK_SHIFT = 12;
+	static final int CHUNK_SIZE  = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK  = CHUNK_SIZE - 1;
+
+	/** Number of values in this column */
+	protected int size = 0;
+
+	/** Null bitmap, one bit per row, one long[] per chunk */
+	protected ArrayList<long[]> nullChunks = new ArrayList<long[]>();
+
+	/**
+	 * Create the storage best suited to a column of the given class type
+	 * @param type column object [class] type
+	 * @return new, empty column storage
+	 */
+	static ColumnData CreateColumn(Class<?> type) {
+		if (type == Integer.class) {
+			return new IntColumn();
+		} else if (type == Long.class) {
+			return new LongColumn();
+		} else if (type == Double.class) {
+			return new DoubleColumn();
+		} else if (type == Timestamp.class) {
+			return new TimestampColumn();
+		} else if (type == Boolean.class) {
+			return new BooleanColumn();
+		} else if (type == String.class) {
+			return new StringColumn();
+		} else {
+			return new ObjectColumn();
+		}
+	}
+
+	/**
+	 * @return number of values in this column
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Return a flag indicating if the value at the given row is null
+	 * @param row row number
+	 * @return TRUE if the value is null; FALSE otherwise
+	 */
+	boolean isNull(int row) {
+		long[] bits = nullChunks.get(row >>> CHUNK_SHIFT);
+		int ndx = row & CHUNK_MASK;
+		return (bits[ndx >>> 6] & (1L << ndx)) != 0;
+	}
+
+	/**
+	 * Append a value to the column.  The caller must first check that the value
+	 * is acceptable to this column via {@link #accepts(Object)}.
+	 * @param value new value, possibly null
+	 */
+	void add(Object value) {
+		int ndx = size & CHUNK_MASK;
+		if (ndx == 0) {
+			nullChunks.add(new long[CHUNK_SIZE >>> 6]);
+			addChunk();
+		}
+		if (value == null) {
+			nullChunks.get(size >>> CHUNK_SHIFT)[ndx >>> 6] |= (1L << ndx);
+		} else {
+			setValue(size >>> CHUNK_SHIFT, ndx, value);
+		}
+		size++;
+	}
+
+	/**
+	 * Return the value at the given row, boxed to the column's class type
+	 * @param row row number
+	 * @return value, or null
+	 */
+	Object get(int row) {
+		if (row < 0  ||  row >= size  ||  isNull(row)) {
+			return null;
+		}
+		return getValue(row >>> CHUNK_SHIFT, row & CHUNK_MASK);
+	}
+
+	/**
+	 * Copy this column into generic object storage, used when a value arrives
+	 * that the typed storage can't hold
+	 * @return column with the same values, stored as objects
+	 */
+	ColumnData toObjectColumn() {
+		ColumnData newCol = new ObjectColumn();
+		for (int i=0;  i<size;  i++) {
+			newCol.add(get(i));
+		}
+		return newCol;
+	}
+
+	/**
+	 * Let go of anything only needed while values are being added, once the
+	 * column's block is full
+	 */
+	void seal() { }
+
+	/**
+	 * Return a flag indicating if this column can store the given value
+	 * @param value non-null value
+	 * @return TRUE if the value can be stored; FALSE otherwise
+	 */
+	abstract boolean accepts(Object value);
+
+	abstract void addChunk();
+
+	abstract void setValue(int chunk, int ndx, Object value);
+
+	abstract Object getValue(int chunk, int ndx);
+
+
+	// =============================================================================
+	//  I N T E G E R    C O L U M N
+	// =============================================================================
+	static class IntColumn extends ColumnData {
+		private ArrayList<int[]> chunks = new ArrayList<int[]>();
+
+		boolean accepts(Object value) { return value instanceof Integer; }
+		void addChunk() { chunks.add(new int[CHUNK_SIZE]); }
+		void setValue(int chunk, int ndx, Object value) { chunks.get(chunk)[ndx] = ((Integer)value).intValue(); }
+		Object getValue(int chunk, int ndx) { return Integer.valueOf(chunks.get(chunk)[ndx]); }
+	}
+
+
+	// =============================================================================
+	//  L O N G    C O L U M N
+	// =============================================================================
+	static class LongColumn extends ColumnData {
+		private ArrayList<long[]> chunks = new ArrayList<long[]>();
+
+		boolean accepts(Object value) { return value instanceof Long; }
+		void addChunk() { chunks.add(new long[CHUNK_SIZE]); }
+		void setValue(int chunk, int ndx, Object value) { chunks.get(chunk)[ndx] = ((Long)value).longValue(); }
+		Object getValue(int chunk, int ndx) { return Long.valueOf(chunks.get(chunk)[ndx]); }
+	}
+
+
+	// =============================================================================
+	//  D O U B L E    C O L U M N
+	// =============================================================================
+	static class DoubleColumn extends ColumnData {
+		private ArrayList<double[]> chunks = new ArrayList<double[]>();
+
+		boolean accepts(Object value) { return value instanceof Double; }
+		void addChunk() { chunks.add(new double[CHUNK_SIZE]); }
+		void setValue(int chunk, int ndx, Object value) { chunks.get(chunk)[ndx] = ((Double)value).doubleValue(); }
+		Object getValue(int chunk, int ndx) { return Double.valueOf(chunks.get(chunk)[ndx]); }
+	}
+
+
+	// =============================================================================
+	//  T I M E S T A M P    C O L U M N
+	//   -- stored as epoch milliseconds; only a millisecond-exact value is
+	//      accepted, anything finer falls back to object storage
+	// =============================================================================
+	static class TimestampColumn extends ColumnData {
+		private ArrayList<long[]> chunks = new ArrayList<long[]>();
+
+		boolean accepts(Object value) {
+			return (value instanceof Timestamp)  &&  (((Timestamp)value).getNanos() % 1000000 == 0);
+		}
+		void addChunk() { chunks.add(new long[CHUNK_SIZE]); }
+		void setValue(int chunk, int ndx, Object value) { chunks.get(chunk)[ndx] = ((Timestamp)value).getTime(); }
+		Object getValue(int chunk, int ndx) { return new Timestamp(chunks.get(chunk)[ndx]); }
+	}
+
+
+	// =============================================================================
+	//  B O O L E A N    C O L U M N
+	//   -- one bit per row, in the same layout as the null bitmap
+	// =============================================================================
+	static class BooleanColumn extends ColumnData {
+		private ArrayList<long[]> chunks = new ArrayList<long[]>();
+
+		boolean accepts(Object value) { return value instanceof Boolean; }
+		void addChunk() { chunks.add(new long[CHUNK_SIZE >>> 6]); }
+		void setValue(int chunk, int ndx, Object value) {
+			if (((Boolean)value).booleanValue()) {
+				chunks.get(chunk)[ndx >>> 6] |= (1L << ndx);
+			}
+		}
+		Object getValue(int chunk, int ndx) {
+			return Boolean.valueOf((chunks.get(chunk)[ndx >>> 6] & (1L << ndx)) != 0);
+		}
+	}
+
+
+	// =============================================================================
+	//  S T R I N G    C O L U M N
+	//   -- dictionary-encoded: each row holds an index into a list of distinct
+	//      values.  The map from value to index is only kept while the block is
+	//      being filled.  Once more than half of the values are distinct, past
+	//      the first few hundred, a new distinct value is refused, and the
+	//      column falls back to object storage, which is smaller for them.
+	// =============================================================================
+	static class StringColumn extends ColumnData {
+		static final int MIN_SAMPLE = 256;
+
+		private ArrayList<int[]> chunks = new ArrayList<int[]>();
+		private HashMap<String,Integer> codes = new HashMap<String,Integer>();
+		private ArrayList<String> values = new ArrayList<String>();
+
+		boolean accepts(Object value) {
+			return (value instanceof String)  &&  codes != null  &&
+				(size < MIN_SAMPLE  ||  values.size()*2 <= size  ||  codes.containsKey(value));
+		}
+
+		void seal() {
+			codes = null;
+			values.trimToSize();
+		}
+
+		void addChunk() { chunks.add(new int[CHUNK_SIZE]); }
+
+		void setValue(int chunk, int ndx, Object value) {
+			Integer code = codes.get(value);
+			if (code == null) {
+				code = Integer.valueOf(values.size());
+				codes.put((String)value, code);
+				values.add((String)value);
+			}
+			chunks.get(chunk)[ndx] = code.intValue();
+		}
+
+		Object getValue(int chunk, int ndx) { return values.get(chunks.get(chunk)[ndx]); }
+	}
+
+
+	// =============================================================================
+	//  O B J E C T    C O L U M N
+	//   -- everything else: BigDecimal, Clob, UUID, mixed types, etc.
+	// =============================================================================
+	static class ObjectColumn extends ColumnData {
+		private ArrayList<Object[]> chunks = new ArrayList<Object[]>();
+
+		boolean accepts(Object value) { return true; }
+		void addChunk() { chunks.add(new Object[CHUNK_SIZE]); }
+		void setValue(int chunk, int ndx, Object value) { chunks.get(chunk)[ndx] = value; }
+		Object getValue(int chunk, int ndx) { return chunks.get(chunk)[ndx]; }
+	}
+}
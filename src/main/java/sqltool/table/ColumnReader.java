@@ -0,0 +1,155 @@
+package sqltool.table;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+
+/**
+ * Read a single column value from the current row of a {@link ResultSet}.  There
+ * is one reader per column class type, chosen once when the query's meta-data is
+ * processed, so fetching a row is a straight walk over an array of readers with
+ * no type checks.  Each reader returns null for a SQL NULL.
+ *
+ * @author wjohnson000
+ *
+ */
+abstract class ColumnReader {
+
+	/**
+	 * Read the column value
+	 * @param rset result set, positioned at a row
+	 * @param col column number, starting at one
+	 * @return column value, or null
+	 * @throws SQLException
+	 */
+	abstract Object read(ResultSet rset, int col) throws SQLException;
+
+	/**
+	 * Return the readers for a set of column types.  For a multi-query result
+	 * every column is read as a string.
+	 * @param colType column object [class] types
+	 * @param isMulti TRUE if this is a multi-query result
+	 * @return array of readers, one per column
+	 */
+	static ColumnReader[] ForTypes(Class<?>[] colType, boolean isMulti) {
+		ColumnReader[] readers = new ColumnReader[colType.length];
+		for (int i=0;  i<readers.length;  i++) {
+			readers[i] = (isMulti) ? STRING : ForType(colType[i]);
+		}
+		return readers;
+	}
+
+	/**
+	 * Return the reader for a column type; unknown types are read as strings
+	 * @param type column object [class] type
+	 * @return column reader
+	 */
+	static ColumnReader ForType(Class<?> type) {
+		if (type == Integer.class) {
+			return INTEGER;
+		} else if (type == Long.class) {
+			return LONG;
+		} else if (type == Double.class) {
+			return DOUBLE;
+		} else if (type == Timestamp.class) {
+			return TIMESTAMP;
+		} else if (type == String.class) {
+			return STRING;
+		} else if (type == BigDecimal.class) {
+			return BIG_DECIMAL;
+		} else if (type == Boolean.class) {
+			return BOOLEAN;
+		} else if (type == Clob.class) {
+			return CLOB;
+		} else if (type == UUID.class) {
+			return UUID_BYTES;
+		} else if (type == Object.class) {
+			return OBJECT;
+		} else {
+			return STRING;
+		}
+	}
+
+
+	// =============================================================================
+	//  R E A D E R S
+	// =============================================================================
+	static final ColumnReader INTEGER = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			int val = rset.getInt(col);
+			return (rset.wasNull()) ? null : Integer.valueOf(val);
+		}
+	};
+
+	static final ColumnReader LONG = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			long val = rset.getLong(col);
+			return (rset.wasNull()) ? null : Long.valueOf(val);
+		}
+	};
+
+	static final ColumnReader DOUBLE = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			double val = rset.getDouble(col);
+			return (rset.wasNull()) ? null : Double.valueOf(val);
+		}
+	};
+
+	static final ColumnReader BOOLEAN = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			boolean val = rset.getBoolean(col);
+			return (rset.wasNull()) ? null : Boolean.valueOf(val);
+		}
+	};
+
+	static final ColumnReader TIMESTAMP = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			return rset.getTimestamp(col);
+		}
+	};
+
+	static final ColumnReader BIG_DECIMAL = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			return rset.getBigDecimal(col);
+		}
+	};
+
+	static final ColumnReader CLOB = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			return rset.getClob(col);
+		}
+	};
+
+	static final ColumnReader STRING = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			String val = rset.getString(col);
+			return (val == null) ? null : val.trim();
+		}
+	};
+
+	static final ColumnReader UUID_BYTES = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			byte[] bytes = rset.getBytes(col);
+			if (bytes == null) {
+				return null;
+			}
+			ByteBuffer bb = ByteBuffer.wrap(bytes);
+			long high = bb.getLong();
+			long low = bb.getLong();
+			return new UUID(high, low);
+		}
+	};
+
+	// Unsupported types just show the class of the returned object
+	static final ColumnReader OBJECT = new ColumnReader() {
+		Object read(ResultSet rset, int col) throws SQLException {
+			Object thing = rset.getObject(col);
+			return (thing == null) ? null : ("Class: " + thing.getClass().getName());
+		}
+	};
+}
@@ -0,0 +1,241 @@
+package sqltool.table;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+
+import sqltool.common.SqlToolkit;
+
+
+/**
+ * Column-oriented storage for the rows of a {@link RowTableModel}.  Rows are
+ * held in blocks of {@link ColumnData#CHUNK_SIZE} rows, and within a block each
+ * column is held in its own {@link ColumnData}, chosen from the column's class
+ * type, so numbers, timestamps and booleans are kept as primitives and strings
+ * are dictionary-encoded.  If a value arrives that the typed storage can't hold,
+ * that one column is converted to plain object storage.
+ * <p>
+ * The heap used by the rows is estimated as they arrive.  Once it passes the
+ * budget, the oldest full blocks are moved to a {@link SpillFile} and read back
+ * from there, a page at a time, when they're needed.
+ * <p>
+ * Rows are added by the thread running the query while the table reads them on
+ * the EDT, and adding a row can replace a block's column storage or the list
+ * of blocks, so every access goes through the store's monitor.
+ *
+ * @author wjohnson000
+ *
+ */
+class ColumnStore {
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- types: storage type of each column, used for every new block
+	//   -- defaultType: storage type for untyped columns, or columns added later
+	//   -- blocks: storage for each block of rows, null if it's been spilled
+	//   -- rowCount: number of rows in the store
+	//   -- heapBudget: estimated number of bytes the rows may use on the heap
+	//   -- heapUsed: estimated number of bytes used by the blocks on the heap
+	//   -- blockBytes: estimated number of bytes used by each full block
+	//   -- tailBytes: estimated number of bytes used by the last, partial block
+	//   -- nextSpill: next block to spill; blocks are spilled oldest first
+	//   -- spill: file holding the spilled blocks, null until one is spilled
+	// =============================================================================
+	private Class<?>[]   types;
+	private Class<?>     defaultType;
+	private ArrayList<ColumnData[]> blocks = new ArrayList<ColumnData[]>();
+	private int          rowCount = 0;
+	private long         heapBudget;
+	private long         heapUsed = 0;
+	private ArrayList<Long> blockBytes = new ArrayList<Long>();
+	private long         tailBytes = 0;
+	private int          nextSpill = 0;
+	private SpillFile    spill = null;
+
+	/**
+	 * Create a new, empty store, using the heap budget from the user
+	 * configuration, but never more than half of the maximum heap
+	 * @param colType column object [class] types, or null if they aren't known
+	 * @param defaultType storage type for columns with no class type
+	 */
+	ColumnStore(Class<?>[] colType, Class<?> defaultType) {
+		this(colType, defaultType, DefaultBudget());
+	}
+
+	/**
+	 * Create a new, empty store
+	 * @param colType column object [class] types, or null if they aren't known
+	 * @param defaultType storage type for columns with no class type
+	 * @param heapBudget estimated number of bytes the rows may use on the heap
+	 */
+	ColumnStore(Class<?>[] colType, Class<?> defaultType, long heapBudget) {
+		this.defaultType = defaultType;
+		this.heapBudget  = heapBudget;
+		int count = (colType == null) ? 0 : colType.length;
+		types = new Class<?>[count];
+		for (int i=0;  i<count;  i++) {
+			types[i] = (colType[i] == null) ? defaultType : colType[i];
+		}
+	}
+
+	/**
+	 * @return heap budget from the user configuration, but never more than half
+	 *         of the maximum heap
+	 */
+	static long DefaultBudget() {
+		return Math.min(SqlToolkit.userConfig.getResultHeapMB() * 1024L * 1024L, Runtime.getRuntime().maxMemory() / 2);
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	synchronized int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Make sure there are at least "count" columns; new columns are null for
+	 * all existing rows.  Blocks that have been spilled aren't touched, since
+	 * a column past the end of a block is treated as null anyway.
+	 * @param count number of columns
+	 */
+	synchronized void ensureColumns(int count) {
+		if (types.length < count) {
+			Class<?>[] newTypes = new Class<?>[count];
+			System.arraycopy(types, 0, newTypes, 0, types.length);
+			for (int i=types.length;  i<count;  i++) {
+				newTypes[i] = defaultType;
+			}
+
+			for (int i=0;  i<blocks.size();  i++) {
+				ColumnData[] block = blocks.get(i);
+				if (block != null) {
+					int rows = Math.min(rowCount - (i << ColumnData.CHUNK_SHIFT), ColumnData.CHUNK_SIZE);
+					ColumnData[] newBlock = new ColumnData[count];
+					System.arraycopy(block, 0, newBlock, 0, block.length);
+					for (int j=block.length;  j<count;  j++) {
+						newBlock[j] = ColumnData.CreateColumn(defaultType);
+						for (int k=0;  k<rows;  k++) {
+							newBlock[j].add(null);
+						}
+						if (rows == ColumnData.CHUNK_SIZE) {
+							newBlock[j].seal();
+						}
+					}
+					blocks.set(i, newBlock);
+				}
+			}
+			types = newTypes;
+		}
+	}
+
+	/**
+	 * Add a row of data; a short row is padded with nulls
+	 * @param data row values
+	 */
+	synchronized void addRow(Object[] data) {
+		ensureColumns(data.length);
+		if ((rowCount & ColumnData.CHUNK_MASK) == 0) {
+			ColumnData[] block = new ColumnData[types.length];
+			for (int i=0;  i<block.length;  i++) {
+				block[i] = ColumnData.CreateColumn(types[i]);
+			}
+			blocks.add(block);
+		}
+
+		ColumnData[] block = blocks.get(blocks.size()-1);
+		long bytes = 0;
+		for (int i=0;  i<block.length;  i++) {
+			Object value = (i < data.length) ? data[i] : null;
+			if (value != null  &&  ! block[i].accepts(value)) {
+				block[i] = block[i].toObjectColumn();
+				types[i] = Object.class;
+			}
+			block[i].add(value);
+			bytes += EstimateSize(value);
+		}
+		rowCount++;
+		tailBytes += bytes;
+		heapUsed  += bytes;
+
+		if ((rowCount & ColumnData.CHUNK_MASK) == 0) {
+			for (ColumnData column : block) {
+				column.seal();
+			}
+			blockBytes.add(Long.valueOf(tailBytes));
+			tailBytes = 0;
+			if (heapUsed > heapBudget) {
+				spillBlocks();
+			}
+		}
+	}
+
+	/**
+	 * Return the value at the given row and column
+	 * @param row row number
+	 * @param col column number
+	 * @return value, or null
+	 */
+	synchronized Object getValueAt(int row, int col) {
+		if (col < 0  ||  row < 0  ||  row >= rowCount) {
+			return null;
+		}
+		int blockNum = row >>> ColumnData.CHUNK_SHIFT;
+		ColumnData[] block = blocks.get(blockNum);
+		if (block == null) {
+			block = spill.readPage(blockNum, types);
+		}
+		return (block == null  ||  col >= block.length) ? null : block[col].get(row & ColumnData.CHUNK_MASK);
+	}
+
+	/**
+	 * Release the rows, deleting the spill file if there is one
+	 */
+	synchronized void close() {
+		if (spill != null) {
+			spill.close();
+		}
+	}
+
+	/**
+	 * Move the oldest full blocks to the spill file until the heap used is
+	 * back under budget.  If the file can't be written the rows stay on the
+	 * heap, and we don't try again.
+	 */
+	private void spillBlocks() {
+		try {
+			if (spill == null) {
+				spill = new SpillFile();
+				SqlToolkit.appLogger.logDebug("ColumnStore: spilling rows to disk after " + rowCount + " rows");
+			}
+			while (heapUsed > heapBudget  &&  nextSpill < blockBytes.size()) {
+				spill.writePage(nextSpill, blocks.get(nextSpill), ColumnData.CHUNK_SIZE);
+				blocks.set(nextSpill, null);
+				heapUsed -= blockBytes.get(nextSpill).longValue();
+				nextSpill++;
+			}
+		} catch (IOException ioex) {
+			SqlToolkit.appLogger.logFatal("ColumnStore: unable to spill rows to disk -- " + ioex.getMessage());
+			heapBudget = Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Rough estimate of the heap needed to hold a value in column storage
+	 * @param value value, possibly null
+	 * @return estimated number of bytes
+	 */
+	private static long EstimateSize(Object value) {
+		if (value == null) {
+			return 0;
+		} else if (value instanceof String) {
+			return 48 + 2L * ((String)value).length();
+		} else if (value instanceof Integer  ||  value instanceof Boolean) {
+			return 4;
+		} else if (value instanceof Long  ||  value instanceof Double  ||  value instanceof Timestamp) {
+			return 8;
+		} else {
+			return 64;
+		}
+	}
+}
@@ -0,0 +1,394 @@
+package sqltool.table;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.sql.Clob;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Write query results straight to a file, one row at a time, as they come off
+ * the ResultSet.  Nothing is kept but the current row: each row is formatted
+ * into a re-used line buffer, encoded into a direct byte buffer, and the bytes
+ * are written to the file's channel whenever the buffer fills, optionally
+ * through a gzip stream.  The output may be:
+ *   -- CSV: the user's field delimiter, with text surrounded by the user's
+ *      field quote, and any quote in the text doubled; with no field quote,
+ *      only text containing the delimiter, a double quote or a line break is
+ *      quoted, with double quotes
+ *   -- TSV: tab-separated, with tabs and line breaks in the text turned into
+ *      spaces
+ *   -- JSON lines: one JSON object per row, keyed by column name
+ *
+ * @author wjohnson000
+ *
+ */
+public class ResultExporter {
+
+	/** Output formats */
+	public enum Format { CSV, TSV, JSON_LINES }
+
+	/** Size of the byte buffer, and of the gzip buffer */
+	static final int BUFFER_SIZE = 1 << 18;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- file: file being written
+	//   -- format: output format
+	//   -- isGzip: TRUE if the output is gzip-ed
+	//   -- delim: field delimiter
+	//   -- quote: field quote character, or zero if text isn't quoted
+	//   -- channel: where the bytes go
+	//   -- bytes: encoded bytes waiting to be written
+	//   -- encoder: UTF-8 encoder
+	//   -- line: the row being formatted
+	//   -- jsonNames: column names, JSON-escaped and ready to use as keys
+	//   -- clobChars: buffer used to read a Clob's text
+	//   -- rowCount: number of rows written
+	// =============================================================================
+	private File    file;
+	private Format  format;
+	private boolean isGzip;
+	private String  delim;
+	private char    quote;
+	private WritableByteChannel channel = null;
+	private ByteBuffer     bytes   = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private CharsetEncoder encoder = UTF8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private StringBuilder  line = new StringBuilder(1024);
+	private String[]       jsonNames = null;
+	private char[]         clobChars = null;
+	private long           rowCount = 0;
+
+	/**
+	 * Create an exporter
+	 * @param file file to write
+	 * @param format output format
+	 * @param isGzip TRUE to gzip the output
+	 * @param delim CSV field delimiter
+	 * @param quote CSV field quote, or null or empty if text isn't quoted
+	 */
+	public ResultExporter(File file, Format format, boolean isGzip, String delim, String quote) {
+		this.file   = file;
+		this.format = format;
+		this.isGzip = isGzip;
+		this.delim  = (format == Format.TSV) ? "\t" : delim;
+		this.quote  = (quote == null  ||  quote.length() == 0) ? 0 : quote.charAt(0);
+	}
+
+	/**
+	 * Create an exporter whose format is chosen from the file name: ".tsv" or
+	 * ".tab" for TSV, ".json" or ".jsonl" for JSON lines, and anything else CSV.
+	 * An extra ".gz" on the end gzips the output.
+	 * @param file file to write
+	 * @param delim CSV field delimiter
+	 * @param quote CSV field quote, or null or empty if text isn't quoted
+	 * @return new exporter
+	 */
+	public static ResultExporter ForFile(File file, String delim, String quote) {
+		String name = file.getName().toLowerCase();
+		boolean isGzip = name.endsWith(".gz");
+		if (isGzip) {
+			name = name.substring(0, name.length()-3);
+		}
+
+		Format format = Format.CSV;
+		if (name.endsWith(".tsv")  ||  name.endsWith(".tab")) {
+			format = Format.TSV;
+		} else if (name.endsWith(".json")  ||  name.endsWith(".jsonl")) {
+			format = Format.JSON_LINES;
+		}
+		return new ResultExporter(file, format, isGzip, delim, quote);
+	}
+
+	/**
+	 * @return file being written
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return output format
+	 */
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return TRUE if the output is gzip-ed
+	 */
+	public boolean isGzip() {
+		return isGzip;
+	}
+
+	/**
+	 * @return number of rows written
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Open the file, and write the column names as the first line; JSON lines
+	 * have no header, the names are used as the keys of each row instead.
+	 * @param colName column names
+	 * @throws IOException
+	 */
+	void open(String[] colName) throws IOException {
+		FileOutputStream fos = new FileOutputStream(file);
+		if (isGzip) {
+			channel = Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fos.getChannel()), BUFFER_SIZE));
+		} else {
+			channel = fos.getChannel();
+		}
+		rowCount = 0;
+
+		if (format == Format.JSON_LINES) {
+			jsonNames = new String[colName.length];
+			for (int i=0;  i<colName.length;  i++) {
+				line.setLength(0);
+				appendJson(colName[i]);
+				jsonNames[i] = line.toString();
+			}
+		} else {
+			line.setLength(0);
+			for (int i=0;  i<colName.length;  i++) {
+				if (i > 0) {
+					line.append(delim);
+				}
+				appendText(colName[i]);
+			}
+			line.append('\n');
+			writeLine();
+		}
+	}
+
+	/**
+	 * Write a row
+	 * @param row column values
+	 * @throws IOException
+	 */
+	void writeRow(Object[] row) throws IOException {
+		line.setLength(0);
+		if (format == Format.JSON_LINES) {
+			line.append('{');
+			for (int i=0;  i<row.length;  i++) {
+				if (i > 0) {
+					line.append(',');
+				}
+				line.append(jsonNames[i]).append(':');
+				appendJsonValue(row[i]);
+			}
+			line.append('}');
+		} else {
+			for (int i=0;  i<row.length;  i++) {
+				if (i > 0) {
+					line.append(delim);
+				}
+				appendValue(row[i]);
+			}
+		}
+		line.append('\n');
+		writeLine();
+		rowCount++;
+	}
+
+	/**
+	 * Write whatever is left in the buffer and close the file
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		if (channel != null) {
+			try {
+				flush();
+			} finally {
+				channel.close();
+				channel = null;
+			}
+		}
+	}
+
+	/**
+	 * Append a CSV or TSV value: numbers and timestamps as they are, everything
+	 * else as text
+	 */
+	private void appendValue(Object value) throws IOException {
+		if (value == null) {
+			return;
+		} else if (value instanceof Integer  ||  value instanceof Long) {
+			line.append(((Number)value).longValue());
+		} else if (value instanceof Double) {
+			line.append(((Double)value).doubleValue());
+		} else if (value instanceof BigDecimal) {
+			line.append(((BigDecimal)value).toPlainString());
+		} else if (value instanceof Boolean  ||  value instanceof java.util.Date) {
+			line.append(value);
+		} else if (value instanceof Clob) {
+			appendText(readClob((Clob)value));
+		} else {
+			appendText(value.toString());
+		}
+	}
+
+	/**
+	 * Append a CSV or TSV text value
+	 */
+	private void appendText(CharSequence text) {
+		if (format == Format.TSV) {
+			for (int i=0;  i<text.length();  i++) {
+				char ch = text.charAt(i);
+				line.append((ch == '\t'  ||  ch == '\n'  ||  ch == '\r') ? ' ' : ch);
+			}
+		} else if (quote != 0) {
+			appendQuoted(text, quote);
+		} else if (needsQuote(text)) {
+			appendQuoted(text, '"');
+		} else {
+			line.append(text);
+		}
+	}
+
+	/**
+	 * Append CSV text surrounded by a quote, with any quote in the text doubled
+	 */
+	private void appendQuoted(CharSequence text, char quoteChar) {
+		line.append(quoteChar);
+		for (int i=0;  i<text.length();  i++) {
+			char ch = text.charAt(i);
+			if (ch == quoteChar) {
+				line.append(quoteChar);
+			}
+			line.append(ch);
+		}
+		line.append(quoteChar);
+	}
+
+	/**
+	 * @return TRUE if unquoted CSV text would be split by the reader: it has
+	 *         the delimiter, a double quote or a line break in it
+	 */
+	private boolean needsQuote(CharSequence text) {
+		for (int i=0;  i<text.length();  i++) {
+			char ch = text.charAt(i);
+			if (ch == '"'  ||  ch == '\n'  ||  ch == '\r') {
+				return true;
+			} else if (delim.length() > 0  &&  ch == delim.charAt(0)  &&  i+delim.length() <= text.length()  &&
+					delim.contentEquals(text.subSequence(i, i+delim.length()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Append a JSON value: numbers and booleans as they are, everything else
+	 * as a string
+	 */
+	private void appendJsonValue(Object value) throws IOException {
+		if (value == null) {
+			line.append("null");
+		} else if (value instanceof Integer  ||  value instanceof Long) {
+			line.append(((Number)value).longValue());
+		} else if (value instanceof Double) {
+			double dbl = ((Double)value).doubleValue();
+			if (Double.isNaN(dbl)  ||  Double.isInfinite(dbl)) {
+				line.append("null");
+			} else {
+				line.append(dbl);
+			}
+		} else if (value instanceof BigDecimal) {
+			line.append(((BigDecimal)value).toPlainString());
+		} else if (value instanceof Boolean) {
+			line.append(((Boolean)value).booleanValue());
+		} else if (value instanceof Clob) {
+			appendJson(readClob((Clob)value));
+		} else {
+			appendJson(value.toString());
+		}
+	}
+
+	/**
+	 * Append a JSON string, with the quotes
+	 */
+	private void appendJson(CharSequence text) {
+		line.append('"');
+		for (int i=0;  i<text.length();  i++) {
+			char ch = text.charAt(i);
+			switch (ch) {
+				case '"':  line.append("\\\""); break;
+				case '\\': line.append("\\\\"); break;
+				case '\n': line.append("\\n");  break;
+				case '\r': line.append("\\r");  break;
+				case '\t': line.append("\\t");  break;
+				case '\b': line.append("\\b");  break;
+				case '\f': line.append("\\f");  break;
+				default:
+					if (ch < 0x20) {
+						line.append("\\u00").append(Character.forDigit(ch >> 4, 16)).append(Character.forDigit(ch & 0xF, 16));
+					} else {
+						line.append(ch);
+					}
+			}
+		}
+		line.append('"');
+	}
+
+	/**
+	 * Read the full text of a Clob
+	 */
+	private CharSequence readClob(Clob clob) throws IOException {
+		if (clobChars == null) {
+			clobChars = new char[8192];
+		}
+		StringBuilder text = new StringBuilder();
+		Reader reader = null;
+		try {
+			reader = clob.getCharacterStream();
+			int count;
+			while ((count = reader.read(clobChars)) > 0) {
+				text.append(clobChars, 0, count);
+			}
+		} catch (java.sql.SQLException sqlex) {
+			throw new IOException("Unable to read CLOB: " + sqlex.getMessage());
+		} finally {
+			try { if (reader != null) reader.close(); } catch (Exception ex) { }
+		}
+		return text;
+	}
+
+	/**
+	 * Encode the current line into the byte buffer, writing the buffer out
+	 * each time it fills
+	 */
+	private void writeLine() throws IOException {
+		CharBuffer chars = CharBuffer.wrap(line);
+		while (encoder.encode(chars, bytes, false).isOverflow()) {
+			flush();
+		}
+	}
+
+	/**
+	 * Write the byte buffer to the channel
+	 */
+	private void flush() throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+}
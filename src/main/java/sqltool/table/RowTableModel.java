@@ -1,10 +1,10 @@
 package sqltool.table;
 
 import java.math.BigDecimal;
-import java.sql.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
 import javax.swing.table.*;
 
 
@@ -19,6 +19,19 @@ public class RowTableModel extends AbstractTableModel {
 
 	static final long serialVersionUID = 5841462711193959570L;
 
+	/** Publish new rows once this many have arrived ... */
+	static final int  PUBLISH_BLOCK = 1000;
+
+	/** ... or once this many nano-seconds have passed since the last publish */
+	static final long PUBLISH_NANOS = 100L * 1000L * 1000L;
+
+	/** Widest a column is ever displayed, in characters; wider values aren't measured */
+	static final int MAX_DISPLAY_WIDTH = 80;
+
+	/** Measure every row up to here, and then only one row in WIDTH_SAMPLE */
+	static final int WIDTH_ALL_ROWS = 10000;
+	static final int WIDTH_SAMPLE   = 100;
+
 	// =============================================================================
 	//  I N S T A N C E    V A R I A B L E S
 	//   -- sortColumn: Column by which data is sorted (default = 0 [ROW #])
@@ -28,7 +41,13 @@ public class RowTableModel extends AbstractTableModel {
 	//   -- colEmpty: Indicates if there is data in any row for that column
 	//   -- colType: Array of Class types, based on the java.sql.Types of the
 	//               column data, retrieved from the ResultSetMetaData
-	//   -- rowData: Table data, an ArrayList of Object[] arrays
+	//   -- rowData: Table data, stored column-by-column (see ColumnStore)
+	//   -- sortOrder: Row numbers in ascending order of the sort column, walked
+	//                 backwards when sorted descending; null if not sorted
+	//   -- shownRows: Number of rows the table has been told about; rows past
+	//                 this are loaded but not yet published to the EDT
+	//   -- publishPending: TRUE if a publish is queued on the EDT
+	//   -- lastPublish: time [nano-seconds] of the last publish request
 	// =============================================================================
 	protected int     sortColumn = -1;
 	protected boolean isAscend = false;
@@ -38,7 +57,12 @@ public class RowTableModel extends AbstractTableModel {
 	protected String[]  colName = null;
 	protected boolean[] colEmpty = null;
 	protected Class<?>[]   colType = null;
-	protected ArrayList<Object> rowData = null;
+	protected volatile ColumnStore rowData = null;
+	protected int[]       sortOrder = null;
+
+	protected volatile int shownRows = 0;
+	private AtomicBoolean  publishPending = new AtomicBoolean(false);
+	private long           lastPublish = 0;
 
 	/**
 	 * Constructor don't do nothing other than set the initial state ...
@@ -66,7 +90,7 @@ public class RowTableModel extends AbstractTableModel {
 		this.colName = colName;
 		this.colType = colType;
 		resetTableData();
-		fireTableStructureChanged();
+		fireStructureChanged();
 	}
 	
 	/**
@@ -76,7 +100,12 @@ public class RowTableModel extends AbstractTableModel {
 	public void resetTableData() {
 		sortColumn = -1;
 		isAscend = true;
-		rowData = new ArrayList<Object>(10);
+		if (rowData != null) {
+			rowData.close();
+		}
+		rowData = new ColumnStore(colType, getDefaultStorageType());
+		sortOrder = null;
+		shownRows = 0;
 		colEmpty = null;
 		colWidth = null;
 		if (colName != null) {
@@ -94,7 +123,8 @@ public class RowTableModel extends AbstractTableModel {
 	 *   -- If this is the first row, set up the model
 	 *   -- Add the data
 	 *   -- Check to see if any of the previous empty columns now have data
-	 *   -- Update the display to show the new row
+	 *   -- Update the display to show the new rows, once a full block has arrived
+	 *      or enough time has passed since the last update
 	 * 
 	 * @param data new row passed back from the database query
 	 * @param isData TRUE if this a really data, and FALSE if this is a secondary header
@@ -104,16 +134,153 @@ public class RowTableModel extends AbstractTableModel {
 			resetTableData();
 		}
 		
-		rowData.add(data);
+		int rowNum = rowData.getRowCount();
+		rowData.addRow(data);
+		boolean doWidth = (rowNum < WIDTH_ALL_ROWS)  ||  (rowNum % WIDTH_SAMPLE == 0);
 		int limit = Math.min(data.length, (colWidth == null ? 0 : colWidth.length));
 		for (int i=0;  i<limit;  i++) {
-			colWidth[i] = Math.max(colWidth[i], (data[i] == null ? 0 : data[i].toString().length()));
-			if (colEmpty[i]  &&  isData) {
-				colEmpty[i] = (data[i] == null)  ||  (data[i].toString().trim().length() == 0);
+			if (data[i] != null) {
+				if (doWidth  &&  colWidth[i] < MAX_DISPLAY_WIDTH) {
+					colWidth[i] = Math.max(colWidth[i], Math.min(DisplayWidth(data[i]), MAX_DISPLAY_WIDTH));
+				}
+				if (colEmpty[i]  &&  isData) {
+					colEmpty[i] = IsBlank(data[i]);
+				}
+			}
+		}
+		if (rowData.getRowCount() - shownRows >= PUBLISH_BLOCK  ||
+				System.nanoTime() - lastPublish >= PUBLISH_NANOS) {
+			publishRows();
+		}
+	}
+
+	/**
+	 * Estimate how many characters a value needs when it's displayed, without
+	 * turning it into a string where that can be avoided: digits for numbers
+	 * [doubles show up to six decimal places], a fixed width for timestamps,
+	 * booleans and UUIDs, and the length for text.
+	 * @param value non-null value
+	 * @return width, in characters
+	 */
+	static int DisplayWidth(Object value) {
+		if (value instanceof String) {
+			return ((String)value).length();
+		} else if (value instanceof Integer  ||  value instanceof Long) {
+			long num = ((Number)value).longValue();
+			return (num < 0) ? Digits(num) + 1 : Digits(num);
+		} else if (value instanceof Double) {
+			double dbl = ((Double)value).doubleValue();
+			if (Double.isNaN(dbl)  ||  Double.isInfinite(dbl)) {
+				return 9;
+			}
+			double abs = Math.abs(dbl);
+			int whole = (abs < 10) ? 1 : (int)Math.floor(Math.log10(abs)) + 1;
+			return whole + 7 + (dbl < 0 ? 1 : 0);
+		} else if (value instanceof BigDecimal) {
+			BigDecimal dec = (BigDecimal)value;
+			int width = (dec.scale() <= 0) ? dec.precision() - dec.scale() : Math.max(dec.precision(), dec.scale()+1) + 1;
+			return (dec.signum() < 0) ? width + 1 : width;
+		} else if (value instanceof Timestamp) {
+			return 23;
+		} else if (value instanceof Boolean) {
+			return 5;
+		} else if (value instanceof UUID) {
+			return 36;
+		} else {
+			return value.toString().length();
+		}
+	}
+
+	/**
+	 * Check if a value has nothing worth showing, i.e., it's text that is empty
+	 * or all white-space
+	 * @param value non-null value
+	 * @return TRUE if the value is blank; FALSE otherwise
+	 */
+	static boolean IsBlank(Object value) {
+		if (value instanceof String) {
+			String text = (String)value;
+			for (int i=0;  i<text.length();  i++) {
+				if (text.charAt(i) > ' ') {
+					return false;
+				}
+			}
+			return true;
+		} else if (value instanceof Number  ||  value instanceof java.util.Date  ||
+				value instanceof Boolean  ||  value instanceof UUID) {
+			return false;
+		} else {
+			return value.toString().trim().length() == 0;
+		}
+	}
+
+	/**
+	 * Number of decimal digits in a number, ignoring the sign
+	 */
+	private static int Digits(long num) {
+		int digits = 1;
+		while (num >= 10  ||  num <= -10) {
+			num /= 10;
+			digits++;
+		}
+		return digits;
+	}
+
+	/**
+	 * Tell the table about any rows which have been loaded but not yet shown.
+	 * This may be called from any thread: at most one update is queued on the
+	 * EDT at a time, and it publishes every row that has arrived by the time it
+	 * runs, in a single "rows inserted" event.  The thread loading the data must
+	 * call this after the last row.
+	 */
+	public void publishRows() {
+		lastPublish = System.nanoTime();
+		if (publishPending.compareAndSet(false, true)) {
+			runOnEDT(new Runnable() {
+				public void run() {
+					publishPending.set(false);
+					int first = shownRows;
+					int last  = (rowData == null) ? 0 : rowData.getRowCount();
+					if (last > first) {
+						shownRows = last;
+						fireTableRowsInserted(first, last - 1);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Return the number of rows loaded, including any the table hasn't been
+	 * told about yet
+	 * @return number of rows loaded
+	 */
+	public int getLoadedRowCount() {
+		return (rowData == null) ? 0 : rowData.getRowCount();
+	}
+
+	/**
+	 * Fire a "structure changed" event on the EDT
+	 */
+	protected void fireStructureChanged() {
+		runOnEDT(new Runnable() {
+			public void run() {
+				fireTableStructureChanged();
 			}
+		});
+	}
+
+	/**
+	 * Run a model update on the EDT: now, if we're already there, or later if
+	 * we're on the thread loading the data
+	 * @param task model update
+	 */
+	private void runOnEDT(Runnable task) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			task.run();
+		} else {
+			SwingUtilities.invokeLater(task);
 		}
-		int rows = rowData.size();
-		fireTableRowsInserted(rows - 1, rows - 1);
 	}
 
 	/* (non-Javadoc)
@@ -186,7 +353,7 @@ public class RowTableModel extends AbstractTableModel {
 		if (rowData == null) {
 			return 0;
 		} else {
-			return rowData.size();
+			return shownRows;
 		}
 	}
 	
@@ -195,17 +362,29 @@ public class RowTableModel extends AbstractTableModel {
 	 */
 	@Override
 	public Object getValueAt(int rowN, int colN) {
-		if (rowData != null  &&  rowN < rowData.size()) {
+		if (rowData != null  &&  rowN < shownRows) {
 			if (colName == null) {
 				return new Integer(rowN + 1);
 			} else {
-				Object[] row = (Object[]) rowData.get(rowN);
-				return (colN < row.length) ? row[colN] : null;
+				int[] order = sortOrder;
+				if (order != null  &&  rowN < order.length) {
+					rowN = order[isAscend ? rowN : order.length-1-rowN];
+				}
+				return rowData.getValueAt(rowN, colN);
 			}
 		}
 		return "";
 	}
 	
+	/**
+	 * Return the storage type for columns that have no class type, or that are
+	 * added after the data has started arriving
+	 * @return storage class type
+	 */
+	protected Class<?> getDefaultStorageType() {
+		return Object.class;
+	}
+
 	/**
 	 * Return a flag indicating if the given row is a secondary header, which will
 	 * always be FALSE for this class.
@@ -233,9 +412,10 @@ public class RowTableModel extends AbstractTableModel {
 	}
 
 	/**
-	 * Sort the data by the given column number.  Note: if the column is the
-	 * same as the current sort column, we re-sort it after reversing the 
-	 * ascending/descending criteria.
+	 * Sort the data by the given column number.  If the column is the same as
+	 * the current sort column, the ascending/descending criteria is reversed,
+	 * which just walks the existing row order backwards; the rows are only
+	 * sorted again if more rows have arrived since.
 	 * 
 	 * @param column column number
 	 */
@@ -246,72 +426,27 @@ public class RowTableModel extends AbstractTableModel {
 			} else {
 				isAscend = true;
 				sortColumn = column;
+				sortOrder = null;
 			}
-			sortData();
+			// A paused query may still add a row, so sort the rows there are now;
+			// any that arrive later are shown after them, and sorted next time
+			int rowCount = rowData.getRowCount();
+			if (sortOrder == null  ||  sortOrder.length != rowCount) {
+				sortRows(rowCount);
+			}
+			shownRows = Math.max(shownRows, rowCount);
 			fireTableDataChanged();
 		}
 	}
 	
-	// Sort the data for real; we need to handle data of the following type:
-	//   integer, long, double, timestamp, big-decimal or string
-	private void sortData() {
-		Collections.sort(rowData, new Comparator<Object>() {
-			public int compare(Object obj1, Object obj2) {
-				Object[] row1 = (Object[]) obj1;
-				Object[] row2 = (Object[]) obj2;
-				
-				Class<?> type = colType[sortColumn];
-				Object val1 = row1[sortColumn];
-				Object val2 = row2[sortColumn];
-				
-				// Make nulls less than anything
-				if (val1 == null  &&  val2 == null) {
-					return 0;
-				} else if (val1 == null) {
-					return (isAscend) ? -1 : 1;
-				} else if (val2 == null) {
-					return (isAscend) ? 1 : -1;
-				}
-				
-				// Do the appropriate comparison, based on the column object
-				// type
-				if (type == Integer.class) {
-					Integer int1 = (Integer) val1;
-					Integer int2 = (Integer) val2;
-					return (isAscend) ? int1.compareTo(int2) : int2.compareTo(int1);
-				} else if (type == Long.class) {
-					Long long1 = (Long) val1;
-					Long long2 = (Long) val2;
-					return (isAscend) ? long1.compareTo(long2) : long2.compareTo(long1);
-				} else if (type == Double.class) {
-					Double dbl1 = (Double) val1;
-					Double dbl2 = (Double) val2;
-					return (isAscend) ? dbl1.compareTo(dbl2) : dbl2.compareTo(dbl1);
-				} else if (type == Timestamp.class) {
-					Timestamp tmp1 = (Timestamp) val1;
-					Timestamp tmp2 = (Timestamp) val2;
-					return (isAscend) ? tmp1.compareTo(tmp2) : tmp2.compareTo(tmp1);
-				} else if (type == BigDecimal.class) {
-					BigDecimal tmp1 = (BigDecimal) val1;
-					BigDecimal tmp2 = (BigDecimal) val2;
-					return (isAscend) ? tmp1.compareTo(tmp2) : tmp2.compareTo(tmp1);
-				} else if (type == Boolean.class) {
-					Boolean tmp1 = (Boolean) val1;
-					Boolean tmp2 = (Boolean) val2;
-					int comp = (tmp1.booleanValue() == tmp2.booleanValue()) ? 0 : (tmp1.booleanValue() ? 1 : -1);
-					return (isAscend) ? comp : -1 * comp;
-				} else if (type == String.class) {
-					String str1 = (val1 == null) ? "" : val1.toString();
-					String str2 = (val2 == null) ? "" : val2.toString();
-					return (isAscend) ? str1.compareToIgnoreCase(str2) :
-						str2.compareToIgnoreCase(str1);
-				} else {
-					String str1 = (val1 == null) ? "" : val1.toString();
-					String str2 = (val2 == null) ? "" : val2.toString();
-					return (isAscend) ? str1.compareToIgnoreCase(str2) :
-						str2.compareToIgnoreCase(str1);
-				}
-			}
-		});
+	/**
+	 * Sort the data for real: build the ascending row order for the sort column
+	 * (see {@link SortKeys}).  The rows themselves never move.
+	 * @param rowCount number of rows to sort
+	 */
+	protected void sortRows(int rowCount) {
+		if (colType != null  &&  sortColumn >= 0  &&  sortColumn < colType.length) {
+			sortOrder = SortKeys.Sort(rowData, rowCount, sortColumn, colType[sortColumn]);
+		}
 	}
-}
\ No newline at end of file
+}
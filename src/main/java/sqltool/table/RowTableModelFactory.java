@@ -1,8 +1,8 @@
 package sqltool.table;
 
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.ByteBuffer;
 import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -12,10 +12,25 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+import sqltool.common.ConnectionManager;
+import sqltool.common.SqlScriptReader;
 import sqltool.common.SqlToolkit;
+import sqltool.server.DbDefinition;
 
 
 /**
@@ -27,6 +42,49 @@ public class RowTableModelFactory implements Runnable {
 	/** Look for NBS since they aren't recognized by most database engines */
 	static final char NON_BREAKING_SPACE = 160;
 
+	/**
+	 * A line that's nothing but this comment -- "-- @barrier" -- in a set of
+	 * multiple queries run in parallel: every query before it must finish
+	 * before any query after it starts
+	 */
+	static final Pattern BARRIER = Pattern.compile("^[ \\t]*--[ \\t]*@barrier[ \\t]*$", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+	/**
+	 * Start of a statement that only reads, after any leading comments; with
+	 * auto-commit off, only these are run in parallel, on pooled connections
+	 */
+	static final Pattern READ_ONLY = Pattern.compile("^(\\s|--[^\\n]*(\\n|$)|/\\*.*?\\*/)*(SELECT|WITH|SHOW|DESCRIBE|DESC|EXPLAIN|VALUES)\\b",
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	/**
+	 * Words that mean a statement, even one that starts like a query, may
+	 * change the database [or take locks], such as "SELECT ... INTO" or
+	 * "SELECT ... FOR UPDATE"
+	 */
+	static final Pattern WRITES = Pattern.compile("\\b(INSERT|UPDATE|DELETE|MERGE|UPSERT|CREATE|DROP|ALTER|TRUNCATE|GRANT|REVOKE|CALL|EXEC|EXECUTE|LOCK|INTO)\\b",
+			Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * Start of a script statement that can go in a batch: DML, which returns
+	 * nothing but an update count.  Anything else, such as a query or a
+	 * procedure call, is run on its own.
+	 */
+	static final Pattern BATCHABLE = Pattern.compile("^\\s*(INSERT|UPDATE|DELETE|MERGE|UPSERT|REPLACE)\\b",
+			Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * Start of a script statement that's DDL, which some databases, Oracle and
+	 * MySQL among them, commit implicitly, along with anything before it
+	 */
+	static final Pattern DDL = Pattern.compile("^\\s*(CREATE|DROP|ALTER|TRUNCATE|RENAME|COMMENT|GRANT|REVOKE)\\b",
+			Pattern.CASE_INSENSITIVE);
+
+	/** How long [seconds] to wait for the parallel queries to give back their connections once stopped */
+	static final int STOP_WAIT_SECONDS = 10;
+
+	/** Fetch size used when streaming results with no explicit fetch size */
+	static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+
 	/** Map between JDBC types and DDL types */
 	static java.util.Map<Integer,String> JDBCType;
 	
@@ -87,6 +145,15 @@ public class RowTableModelFactory implements Runnable {
 //	-- message:  Exception message, or other database warning
 //	-- conn:     Database connection
 //	-- sqlModel: SimpleTableModel instance that is being created
+//  -- fetchSize: rows per round-trip to the database (0=driver default)
+//  -- streamResults: TRUE to use a forward-only, streaming cursor
+//  -- exporter: where the rows go when a query is exported to a file, rather
+//     than loaded into the model
+//  -- progress: how far a script has got, while it's running
+//  -- dbDef, connCount: database, and the number of its pooled connections
+//     multiple queries are run on at once (1=one after another on "conn")
+//  -- children: factories running the individual queries in parallel
+//  -- running: statement being run by "execute(...)", so it can be cancelled
 //	=============================================================================
 	private boolean isActive = false;
 	private boolean beActive = false;
@@ -100,6 +167,14 @@ public class RowTableModelFactory implements Runnable {
 	private String sqlDelim  = null;
 	private Connection conn  = null;
 	private RowTableModel      sqlModel = null;
+	private int     fetchSize = 0;
+	private boolean streamResults = false;
+	private ResultExporter exporter = null;
+	private volatile String progress = null;
+	private DbDefinition dbDef = null;
+	private int     connCount = 1;
+	private List<RowTableModelFactory> children = Collections.synchronizedList(new ArrayList<RowTableModelFactory>());
+	private volatile Statement running = null;
 	
 	/**
 	 * Constructor don't do nothing other than set the initial state ...
@@ -127,6 +202,14 @@ public class RowTableModelFactory implements Runnable {
 		return message;
 	}
 
+	/**
+	 * Retrieve how far a script has got, while it's running
+	 * @return progress, or null if no script is running
+	 */
+	public String  getProgress() {
+		return progress;
+	}
+
 	/**
 	 * Retrieve the error message from the query, if any
 	 * @return database error
@@ -135,6 +218,34 @@ public class RowTableModelFactory implements Runnable {
 		return errorMessage;
 	}
 
+	/**
+	 * Set how the results of subsequent queries are fetched, normally from the
+	 * settings on the database definition.
+	 * @param fetchSize rows per round-trip to the database (0=driver default)
+	 * @param streamResults TRUE to stream results through a forward-only cursor
+	 */
+	public void setFetchMode(int fetchSize, boolean streamResults) {
+		this.fetchSize = fetchSize;
+		this.streamResults = streamResults;
+	}
+
+	/**
+	 * Run multiple queries on several pooled connections at once, rather
+	 * than one after another.  The results are still shown in query order.
+	 * Queries that depend on earlier ones can be kept apart with a barrier
+	 * line, "-- @barrier".  Each statement is committed on its own pooled
+	 * connection as soon as it's run, so if the connection has auto-commit off
+	 * this only applies if every statement is a query; otherwise all of the
+	 * statements run one after another on the connection as usual, in its
+	 * transaction, and the message says so.
+	 * @param dbDef database the connections are borrowed for
+	 * @param connCount number of connections to use at once (1=not parallel)
+	 */
+	public void setParallelMode(DbDefinition dbDef, int connCount) {
+		this.dbDef = dbDef;
+		this.connCount = Math.max(connCount, 1);
+	}
+
 	/**
 	 * Request a "halt" on the database query; the query can later be re-started
 	 */
@@ -144,6 +255,12 @@ public class RowTableModelFactory implements Runnable {
 		beActive = false;
 		if (sqlModel != null) {
 			sqlModel.canSort = true;
+			sqlModel.publishRows();
+		}
+		synchronized(children) {
+			for (RowTableModelFactory child : children) {
+				child.beActive = false;
+			}
 		}
 	}
 
@@ -157,6 +274,11 @@ public class RowTableModelFactory implements Runnable {
 		if (sqlModel != null) {
 			sqlModel.canSort = false;
 		}
+		synchronized(children) {
+			for (RowTableModelFactory child : children) {
+				child.beActive = true;
+			}
+		}
 	}
 
 	/**
@@ -169,6 +291,12 @@ public class RowTableModelFactory implements Runnable {
 		stopNow = true;
 		if (sqlModel != null) {
 			sqlModel.canSort = true;
+			sqlModel.publishRows();
+		}
+		synchronized(children) {
+			for (RowTableModelFactory child : children) {
+				child.stopNow = true;
+			}
 		}
 	}
 
@@ -201,6 +329,29 @@ public class RowTableModelFactory implements Runnable {
 	 */
 	public RowTableModel createModelData(Connection conn, String query, String sqlDelim, boolean isMulti, int rowLimit) {
 		SqlToolkit.appLogger.logDebug("RowTableModelFactory.CreateModelData: " + this);
+		return startQuery(conn, query, sqlDelim, isMulti, rowLimit, null);
+	}
+
+	/**
+	 * Run a single query, writing the rows straight to a file instead of loading
+	 * them into the model.  The results are always streamed through a forward-only
+	 * cursor, so the memory used doesn't depend on the number of rows; the model
+	 * returned gets a single row summarizing the export once it's done.
+	 * 
+	 * @param conn database connection
+	 * @param query query string
+	 * @param exporter where to write the rows
+	 * @return generated {@link RowTableModel}
+	 */
+	public RowTableModel exportModelData(Connection conn, String query, ResultExporter exporter) {
+		SqlToolkit.appLogger.logDebug("RowTableModelFactory.ExportModelData: " + this);
+		return startQuery(conn, query, null, false, 0, exporter);
+	}
+
+	/**
+	 * Set up the state for a new query, and start it running in its own thread
+	 */
+	private RowTableModel startQuery(Connection conn, String query, String sqlDelim, boolean isMulti, int rowLimit, ResultExporter exporter) {
 
 		stopNow       = false;
 		beActive      = true;
@@ -212,6 +363,7 @@ public class RowTableModelFactory implements Runnable {
 		this.rowCount = 0;
 		this.rowLimit = rowLimit;
 		this.sqlDelim = sqlDelim;
+		this.exporter = exporter;
 		
 		query = query.trim();
 		this.query = query.replace(NON_BREAKING_SPACE, ' ');  // Replace non-breaking spaces [ASCII(160)]
@@ -237,34 +389,54 @@ public class RowTableModelFactory implements Runnable {
 		}
 		SqlToolkit.appLogger.logDebug("    RTMF.run: " + this + ";  DbmdOK: " + dbmdOK);
 
-		String queryAll = query;
-		String queryOne = null;
-		while (queryAll.length() > 0) {
-			int pos  = -1;
-			if (sqlDelim != null) {
-				pos = queryAll.indexOf(sqlDelim);
-			}
-			if (pos == -1) {
-				queryOne = queryAll.trim();
-				queryAll = "";
-			} else {
-				int dLen = sqlDelim.length() + 1;
-				queryOne = queryAll.substring(0, pos).trim();
-				queryAll = (pos+dLen < queryAll.length()) ? queryAll.substring(pos+dLen) : "";
+		List<String> parallel = null;
+		if (isMulti  &&  connCount > 1  &&  dbDef != null) {
+			boolean autoCommit = false;
+			try {
+				autoCommit = conn.getAutoCommit();
+			} catch (SQLException sqlex) { }
+
+			parallel = splitParallel();
+			if (! autoCommit  &&  ! IsReadOnly(parallel)) {
+				SqlToolkit.appLogger.logDebug("    RTMF.run: " + this + ";  Not read-only, and auto-commit is off, so not run in parallel");
+				message += "\n\nThe statements were run one after another, rather than in parallel: auto-commit is off, " +
+						"and not all of them are queries.  Turn auto-commit on to run them in parallel, each committed as it finishes.";
+				parallel = null;
 			}
-			SqlToolkit.appLogger.logDebug("    RTMF.run: " + this + ";  QueryLen: " + queryOne.length());
-
-			if (queryOne.length() > 0) {
-				message += "\n\n\n============================================================";
-				message += "\n\nQuery:";
-				message += "\n\n" + queryOne;
-				message += "\n\n";
-				execute(queryOne, dbmdOK);
-				if (! isMulti) {
+		}
+
+		if (parallel != null) {
+			executeParallel(parallel, dbmdOK);
+		} else {
+			String queryAll = query;
+			String queryOne = null;
+			while (queryAll.length() > 0) {
+				int pos  = -1;
+				if (sqlDelim != null) {
+					pos = queryAll.indexOf(sqlDelim);
+				}
+				if (pos == -1) {
+					queryOne = queryAll.trim();
 					queryAll = "";
+				} else {
+					int dLen = sqlDelim.length() + 1;
+					queryOne = queryAll.substring(0, pos).trim();
+					queryAll = (pos+dLen < queryAll.length()) ? queryAll.substring(pos+dLen) : "";
 				}
+				SqlToolkit.appLogger.logDebug("    RTMF.run: " + this + ";  QueryLen: " + queryOne.length());
+
+				if (queryOne.length() > 0) {
+					message += "\n\n\n============================================================";
+					message += "\n\nQuery:";
+					message += "\n\n" + queryOne;
+					message += "\n\n";
+					execute(queryOne, dbmdOK);
+					if (! isMulti) {
+						queryAll = "";
+					}
+				}
+				SqlToolkit.appLogger.logDebug("    RTMF.again? " + this + ";  QueryAll: " + queryAll.length());
 			}
-			SqlToolkit.appLogger.logDebug("    RTMF.again? " + this + ";  QueryAll: " + queryAll.length());
 		}
 
 		getOut();
@@ -275,24 +447,306 @@ public class RowTableModelFactory implements Runnable {
 		stopNow  = true;
 	}
 
-	public RowTableModel createModelData(Connection conn, final List<String> queries) {
-        stopNow       = false;
-        beActive      = true;
-        isActive      = true;
-        message       = "";
-        errorMessage  = "";
-        this.conn     = conn;
-
-        sqlModel = new RowTableModel();
-        Thread myThread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                executeBatchQueries(queries);
-            }
-        });
-        myThread.start();
-        return sqlModel;
-    }
+	/**
+	 * Create a "RowTableModel" from running a script, a statement at a time
+	 * as it's read.  The statements are sent in batches and committed every
+	 * so often, as set in the user configuration, with one row in the model
+	 * for each batch.  While it's running, "getProgress()" reports how far
+	 * it has got.
+	 * 
+	 * @param conn database connection
+	 * @param script script, which is closed once it's been run
+	 * @return generated {@link RowTableModel}
+	 */
+	public RowTableModel createModelData(Connection conn, final SqlScriptReader script) {
+		SqlToolkit.appLogger.logDebug("RowTableModelFactory.CreateModelData[script]: " + this);
+
+		stopNow       = false;
+		beActive      = true;
+		isActive      = true;
+		message       = "";
+		errorMessage  = "";
+		progress      = null;
+		this.conn     = conn;
+		this.exporter = null;
+
+		sqlModel = new RowTableModelMulti();
+		Thread myThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				executeScript(script);
+			}
+		});
+		myThread.start();
+		return sqlModel;
+	}
+
+	/**
+	 * Run multiple queries on pooled connections, several at once.  Each query
+	 * is run by a factory of its own, with its results buffered; as each one
+	 * finishes, in query order, its results are added to the model.  At a
+	 * barrier, every query before it is finished before the next one starts.
+	 * If no pooled connection is available a query is run on this factory's
+	 * connection, one at a time.  The results of each query are buffered in
+	 * a column store with its share of the heap budget.
+	 * <p>
+	 * If the queries are stopped, the statements still running are cancelled
+	 * and we wait, for a while, for them to give back their connections.
+	 * @param queries queries, with a null for each barrier
+	 */
+	private void executeParallel(final List<String> queries, final boolean dbmdOK) {
+		final int total = queries.size() - Collections.frequency(queries, null);
+		final AtomicInteger done = new AtomicInteger();
+		final Connection sharedConn = conn;
+
+		int threads = Math.max(1, Math.min(connCount, SqlToolkit.userConfig.getPoolSize()));
+		final long childBudget = ColumnStore.DefaultBudget() / threads;
+		SqlToolkit.appLogger.logDebug("    RTMF.executeParallel: " + this + ";  Queries: " + total + ";  Threads: " + threads);
+		ExecutorService workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private AtomicInteger count = new AtomicInteger();
+			public Thread newThread(Runnable runner) {
+				Thread thread = new Thread(runner, "MultiQuery-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		List<String> groupQuery = new ArrayList<String>();
+		List<Future<RowTableModelFactory>> groupRun = new ArrayList<Future<RowTableModelFactory>>();
+		try {
+			for (int i=0;  i<=queries.size()  &&  ! stopNow;  i++) {
+				final String queryOne = (i < queries.size()) ? queries.get(i) : null;
+				if (queryOne != null) {
+					groupQuery.add(queryOne);
+					groupRun.add(workers.submit(new Callable<RowTableModelFactory>() {
+						public RowTableModelFactory call() {
+							RowTableModelFactory child = newChild(childBudget);
+							Connection pooled = null;
+							try {
+								if (! stopNow) {
+									pooled = ConnectionManager.BorrowConnection(dbDef);
+									if (pooled != null) {
+										child.conn = pooled;
+										child.execute(queryOne, dbmdOK);
+									} else {
+										synchronized(sharedConn) {
+											child.conn = sharedConn;
+											child.execute(queryOne, dbmdOK);
+										}
+									}
+								}
+							} finally {
+								ConnectionManager.ReleaseConnection(dbDef, pooled);
+								children.remove(child);
+								child.conn = null;
+								progress = "Queries run: " + done.incrementAndGet() + " of " + total;
+							}
+							return child;
+						}
+					}));
+					continue;
+				}
+
+				// A barrier, or the end: wait for the group, adding its results in order
+				for (int j=0;  j<groupRun.size();  j++) {
+					message += "\n\n\n============================================================";
+					message += "\n\nQuery:";
+					message += "\n\n" + groupQuery.get(j);
+					message += "\n\n";
+					try {
+						RowTableModelFactory child = null;
+						while (child == null  &&  ! stopNow) {
+							try {
+								child = groupRun.get(j).get(250, TimeUnit.MILLISECONDS);
+							} catch (TimeoutException ex) { }
+						}
+						if (child == null) {
+							return;
+						}
+						message += child.message;
+						errorMessage += child.errorMessage;
+						((BufferedModel)child.sqlModel).copyTo(sqlModel);
+					} catch (ExecutionException ex) {
+						SqlToolkit.appLogger.logFatal("   RTMF.executeParallel.EX: " + ex.getCause());
+						message += ex.getCause();
+						errorMessage += "\n\n============================================================";
+						errorMessage += "\nQuery:";
+						errorMessage += "\n    " + groupQuery.get(j);
+						errorMessage += "\n" + ex.getCause();
+					}
+				}
+				groupQuery.clear();
+				groupRun.clear();
+			}
+		} catch (InterruptedException ex) {
+			SqlToolkit.appLogger.logFatal("   RTMF.executeParallel.EX: " + ex);
+			Thread.currentThread().interrupt();
+		} finally {
+			synchronized(children) {
+				for (RowTableModelFactory child : children) {
+					child.cancelRunning();
+				}
+			}
+			workers.shutdownNow();
+			try {
+				workers.awaitTermination(STOP_WAIT_SECONDS, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			progress = null;
+
+			// Let go of the results that were never copied, if we stopped early
+			for (Future<RowTableModelFactory> run : groupRun) {
+				if (run.isDone()) {
+					try { ((BufferedModel)run.get().sqlModel).close(); } catch (Exception ex2) { }
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cancel the statement being run, if there is one
+	 */
+	private void cancelRunning() {
+		Statement stmt = running;
+		if (stmt != null) {
+			try { stmt.cancel(); } catch (Exception ex) { }
+		}
+	}
+
+	/**
+	 * Check whether every statement only reads from the database
+	 * @param queries statements, with a null for each barrier
+	 * @return TRUE if they're all queries; FALSE otherwise
+	 */
+	static boolean IsReadOnly(List<String> queries) {
+		for (String queryOne : queries) {
+			if (queryOne != null  &&  (! READ_ONLY.matcher(queryOne).lookingAt()  ||  WRITES.matcher(queryOne).find())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Split the queries for "executeParallel(...)", with a null for each
+	 * barrier
+	 * @return queries and barriers, in order
+	 */
+	private List<String> splitParallel() {
+		List<String> queries = new ArrayList<String>();
+		String queryAll = query;
+		while (queryAll.length() > 0) {
+			int pos = (sqlDelim == null) ? -1 : queryAll.indexOf(sqlDelim);
+			String queryPart = queryAll;
+			if (pos == -1) {
+				queryAll = "";
+			} else {
+				queryPart = queryAll.substring(0, pos);
+				queryAll  = queryAll.substring(pos + sqlDelim.length());
+			}
+
+			String[] parts = BARRIER.split(queryPart, -1);
+			for (int i=0;  i<parts.length;  i++) {
+				if (i > 0) {
+					queries.add(null);
+				}
+				if (parts[i].trim().length() > 0) {
+					queries.add(parts[i].trim());
+				}
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Create a factory to run one of the queries for "executeParallel(...)",
+	 * with the same settings as this one
+	 * @param heapBudget estimated number of bytes its results may use on the heap
+	 */
+	private RowTableModelFactory newChild(long heapBudget) {
+		RowTableModelFactory child = new RowTableModelFactory();
+		child.isMulti  = true;
+		child.beActive = beActive;
+		child.stopNow  = stopNow;
+		child.message  = "";
+		child.errorMessage  = "";
+		child.fetchSize     = fetchSize;
+		child.streamResults = streamResults;
+		child.sqlModel = new BufferedModel(heapBudget);
+		children.add(child);
+		return child;
+	}
+
+	/**
+	 * Model that keeps the column data and rows of one query until they can be
+	 * copied to the real model.  The rows go into a column store of their own,
+	 * so they're held as compactly as in the real model, and spilled to disk
+	 * once they pass their heap budget.
+	 */
+	private static class BufferedModel extends RowTableModel {
+		static final long serialVersionUID = 5082746183907115297L;
+
+		// Each header is the column names, the column types, and the first row
+		private List<Object[]> headers = new ArrayList<Object[]>();
+		private ColumnStore rows;
+
+		BufferedModel(long heapBudget) {
+			super();
+			rows = new ColumnStore(null, String.class, heapBudget);
+		}
+
+		@Override
+		public void setColumnData(String[] colName, Class<?>[] colType) {
+			// The super-class constructor calls this before "headers" is set
+			if (colName != null) {
+				headers.add(new Object[] { colName, colType, Integer.valueOf(rows.getRowCount()) });
+			}
+		}
+
+		@Override
+		public void addRow(Object[] data, boolean isData) {
+			rows.addRow(data);
+		}
+
+		@Override
+		public void publishRows() { }
+
+		@Override
+		public int getLoadedRowCount() {
+			return rows.getRowCount();
+		}
+
+		/**
+		 * Copy the column data and rows to another model, then let go of them
+		 */
+		void copyTo(RowTableModel model) {
+			int rowCount = rows.getRowCount();
+			for (int i=0;  i<headers.size();  i++) {
+				String[] colName = (String[])headers.get(i)[0];
+				model.setColumnData(colName, (Class<?>[])headers.get(i)[1]);
+
+				int first = ((Integer)headers.get(i)[2]).intValue();
+				int last  = (i+1 < headers.size()) ? ((Integer)headers.get(i+1)[2]).intValue() : rowCount;
+				Object[] row = new Object[colName.length];
+				for (int j=first;  j<last;  j++) {
+					for (int k=0;  k<row.length;  k++) {
+						row[k] = rows.getValueAt(j, k);
+					}
+					model.addRow(row, true);
+				}
+			}
+			close();
+		}
+
+		/**
+		 * Let go of the rows, deleting the spill file if there is one
+		 */
+		void close() {
+			rows.close();
+			headers.clear();
+		}
+	}
 
 	/**
 	 * Run the query, checking the return code to see if it was an update
@@ -306,6 +760,9 @@ public class RowTableModelFactory implements Runnable {
 		// First part ... create a statement and try and retrieve the data
 		int       updCnt = -1;
 		boolean   doUpd = false;
+		boolean   resetAutoCommit = false;
+		boolean   isStreaming = false;
+		boolean   isDrained = false;
 		Statement stmt = null;
 		ResultSet rset = null;
 		
@@ -313,7 +770,17 @@ public class RowTableModelFactory implements Runnable {
 			// If "execute(...)" returns TRUE, this there is a result-set, meaning
 			// it was a query; otherwise it's an update (delete/insert/update)
 			// command and we just get the number of rows affected
-			stmt = conn.createStatement();
+			if (streamResults  ||  exporter != null) {
+				stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				resetAutoCommit = setStreaming(stmt);
+				isStreaming = true;
+			} else {
+				stmt = conn.createStatement();
+				if (fetchSize > 0) {
+					stmt.setFetchSize(fetchSize);
+				}
+			}
+			running = stmt;
 			boolean isRSet = stmt.execute(queryOne);
 			if (isRSet) {
 				rset = stmt.getResultSet();
@@ -331,6 +798,9 @@ public class RowTableModelFactory implements Runnable {
 			errorMessage += "\nQuery:";
 			errorMessage += "\n    " + queryOne;
 			errorMessage += "\n" + sqlex.getMessage();
+			running = null;
+			try { if (stmt != null) stmt.close(); } catch (Exception ex2) { }
+			try { if (resetAutoCommit) conn.setAutoCommit(true); } catch (Exception ex2) { }
 			return;
 		} catch (NullPointerException nex) {
 			SqlToolkit.appLogger.logFatal("   RTMF.execute.EX: " + nex);
@@ -353,7 +823,6 @@ public class RowTableModelFactory implements Runnable {
 				sqlModel.addRow(rowData, true);
 				message += "Rows updated: " + updCnt;
 			} else {
-				Object thing = null;
 				String[] colName = null;
 				Class<?>[] colType  = null;
 				
@@ -431,7 +900,9 @@ public class RowTableModelFactory implements Runnable {
 							cNullLen = Math.max(cNullLen, (""+rsmd.isNullable(i+1)).length());
 						}
 
-						sqlModel.setColumnData(colName, colType);
+						if (exporter == null) {
+							sqlModel.setColumnData(colName, colType);
+						}
 						StringBuffer sb = new StringBuffer();
 						addPadding("COLUMN NAME", cNameLen+3, sb);
 						addPadding("DATA TYPE", cTypeLen+3, sb);
@@ -471,54 +942,26 @@ public class RowTableModelFactory implements Runnable {
 				SqlToolkit.appLogger.logDebug("      RTMF.execute: Meta-data processing complete ... " + this);
 
 				// Keep retrieving records unless we receive a command to cease and
-				// desist (stopNow) or a request to pause temporarily (beActive)
+				// desist (stopNow) or a request to pause temporarily (beActive).  The
+				// readers are resolved once, and the row buffer is re-used since the
+				// model copies the values into its own storage.
+				ColumnReader[] readers = (stopNow) ? null : ColumnReader.ForTypes(colType, isMulti);
+				Object[] row = (stopNow) ? null : new Object[readers.length];
+				if (exporter != null  &&  ! stopNow) {
+					exporter.open(colName);
+				}
 				boolean hasMore = true;
 				while (! stopNow  &&  hasMore) {
 					if (beActive) {
 						if (rset.next()) {
-							Object[] row = new Object[colName.length];
 							for (int i = 0; i < row.length; i++) {
-								SqlToolkit.appLogger.logDebug("i: " + i + " --> " + colType[i]);
-								if (isMulti) {
-									row[i] = ("" + rset.getString(i + 1)).trim();
-								} else if (colType[i] == Integer.class) {
-									row[i] = new Integer(rset.getInt(i + 1));
-								} else if (colType[i] == Long.class) {
-									row[i] = new Long(rset.getLong(i + 1));
-								} else if (colType[i] == Double.class) {
-									row[i] = new Double(rset.getDouble(i + 1));
-								} else if (colType[i] == Timestamp.class) {
-									row[i] = rset.getTimestamp(i + 1);
-								} else if (colType[i] == String.class) {
-									row[i] = ("" + rset.getString(i + 1)).trim();
-								} else if (colType[i] == BigDecimal.class) {
-									row[i] = rset.getBigDecimal(i + 1);
-								} else if (colType[i] == Boolean.class) {
-									row[i] = new Boolean(rset.getBoolean(i + 1));
-								} else if (colType[i] == Clob.class) {
-									row[i] = rset.getClob(i + 1);
-                                } else if (colType[i] == UUID.class) {
-                                    byte[] bytes = rset.getBytes(i + 1);
-                                    if (rset.wasNull()) {
-                                        row[i] = null;
-                                    } else {
-                                        ByteBuffer bb = ByteBuffer.wrap(bytes);
-                                        long high = bb.getLong();
-                                        long low = bb.getLong();
-                                        row[i] = new UUID(high, low);
-                                    }
-								} else if (colType[i] == Object.class) {
-									thing = rset.getObject(i + 1);
-									row[i] = (thing == null) ? null : ("Class: " + thing.getClass().getName());
-									thing = null;
-								} else {
-									row[i] = ("" + rset.getString(i + 1)).trim();
-								}
-								if (rset.wasNull()) {
-									row[i] = null;   
-								}
+								row[i] = readers[i].read(rset, i + 1);
+							}
+							if (exporter == null) {
+								sqlModel.addRow(row, true);
+							} else {
+								exporter.writeRow(row);
 							}
-							sqlModel.addRow(row, true);
 
 							// If we've reached the maximum number of rows we want/need, force
 							// a stop in the action and return
@@ -528,13 +971,17 @@ public class RowTableModelFactory implements Runnable {
 							}
 						} else {
 							hasMore = false;
+							isDrained = true;
 						}
 					} else {
 						try { Thread.sleep(250); } catch (Exception ex2) { }
 					}
 				}
-				SqlToolkit.appLogger.logDebug("      RTMF.execute: Row data retrieval complete, rows: " + sqlModel.getRowCount());
+				SqlToolkit.appLogger.logDebug("      RTMF.execute: Row data retrieval complete, rows: " + sqlModel.getLoadedRowCount());
 
+				if (exporter != null) {
+					finishExport();
+				}
 			}
 		} catch (SQLException sqlex) {
 			SqlToolkit.appLogger.logFatal("   RTMF.execute.SQLEX: " + sqlex);
@@ -552,50 +999,241 @@ public class RowTableModelFactory implements Runnable {
 			errorMessage += "\nQuery:";
 			errorMessage += "\n    " + queryOne;
 			errorMessage += "\n" + nex.getMessage();
+		} catch (IOException ioex) {
+			SqlToolkit.appLogger.logFatal("   RTMF.execute.IOEX: " + ioex);
+			SqlToolkit.appLogger.logFatal("               Query: " + queryOne);
+			message += "\n\nUnable to write " + exporter.getFile() + " -- " + ioex.getMessage();
+			errorMessage += "\n\n============================================================";
+			errorMessage += "\nQuery:";
+			errorMessage += "\n    " + queryOne;
+			errorMessage += "\nUnable to write " + exporter.getFile() + " -- " + ioex.getMessage();
 		} finally {
+			try { if (exporter != null) exporter.close(); } catch (Exception ex2) { }
+
+			// Closing a streaming result set that wasn't read to the end makes
+			// some drivers, MySQL in particular, read and discard the rest of it;
+			// cancel the statement first so a stop or row limit takes effect now
+			try { if (isStreaming  &&  rset != null  &&  ! isDrained) stmt.cancel(); } catch (Exception ex2) { }
 			try { if (rset != null) rset.close(); } catch (Exception ex2) { }
+			running = null;
 			try { if (stmt != null) stmt.close(); } catch (Exception ex2) { }
+			try { if (resetAutoCommit) conn.setAutoCommit(true); } catch (Exception ex2) { }
+		}
+	}
+
+	/**
+	 * Close the export file, and summarize the export in the model
+	 * @throws IOException
+	 */
+	private void finishExport() throws IOException {
+		exporter.close();
+		String[] colName = { "Rows Exported", "Format", "File" };
+		Class<?>[] colType = { Long.class, String.class, String.class };
+		Object[] rowData = {
+			Long.valueOf(exporter.getRowCount()),
+			exporter.getFormat() + (exporter.isGzip() ? " [gzip]" : ""),
+			exporter.getFile().getAbsolutePath() };
+		sqlModel.setColumnData(colName, colType);
+		sqlModel.addRow(rowData, true);
+		message += "\n\nRows exported: " + exporter.getRowCount() + " to " + exporter.getFile().getAbsolutePath() +
+			" [" + exporter.getFile().length() + " bytes]";
+	}
+
+	/**
+	 * Set up a statement to stream its results.  MySQL only streams with a fetch
+	 * size of Integer.MIN_VALUE.  Other drivers, PostgreSQL in particular, only
+	 * use a cursor when there's a fetch size and auto-commit is off; auto-commit
+	 * is turned off here and must be turned back on, which also commits, once
+	 * the statement is closed.
+	 * 
+	 * @param stmt forward-only, read-only statement
+	 * @return TRUE if auto-commit was turned off; FALSE otherwise
+	 * @throws SQLException
+	 */
+	private boolean setStreaming(Statement stmt) throws SQLException {
+		String dbName = "";
+		try {
+			dbName = conn.getMetaData().getDatabaseProductName();
+		} catch (SQLException sqlex) { }
+
+		if ("MySQL".equalsIgnoreCase(dbName)) {
+			stmt.setFetchSize(Integer.MIN_VALUE);
+			return false;
+		} else {
+			stmt.setFetchSize((fetchSize > 0) ? fetchSize : DEFAULT_STREAM_FETCH_SIZE);
+			if (conn.getAutoCommit()) {
+				conn.setAutoCommit(false);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Run a script, sending the statements in batches and committing every so
+	 * often.  A statement that can't go in a batch, such as a query, is run on
+	 * its own once the batch ahead of it has been sent.  DDL is run on its own
+	 * too, with a commit before and after it, since some databases commit it
+	 * implicitly anyway.  If a statement fails,
+	 * or the script is stopped, whatever hasn't been committed is rolled back
+	 * and the script stops there.
+	 * <p>
+	 * Since the script commits as it goes, it's only run if the connection
+	 * has auto-commit on; otherwise it would commit [or roll back] whatever
+	 * transaction the user has open.
+	 */
+	private void executeScript(SqlScriptReader script) {
+		int batchSize   = SqlToolkit.userConfig.getScriptBatchSize();
+		int commitEvery = SqlToolkit.userConfig.getScriptCommitStatements();
+		long then = System.currentTimeMillis();
+
+		String[] colName = { "Line", "Statements", "Rows Updated" };
+		Class<?>[] colType =  { Integer.class, Integer.class, Integer.class };
+		sqlModel.setColumnData(colName, colType);
+
+		long stmtCount = 0;
+		long rowsUpdated = 0;
+		long committed = 0;
+		int  batchCount = 0;
+		int  batchLine = 0;
+		boolean isStarted = false;
+		Statement stmt = null;
+		try {
+			if (! conn.getAutoCommit()) {
+				errorMessage += "\n\nThe script wasn't run: auto-commit is off, so there may be an open transaction." +
+						"\nCommit or roll back, and turn auto-commit on, before running a script.";
+				return;
+			}
+			conn.setAutoCommit(false);
+			isStarted = true;
+			stmt = conn.createStatement();
+
+			String query = script.nextStatement();
+			while (query != null  &&  ! stopNow) {
+				while (! beActive  &&  ! stopNow) {
+					try { Thread.sleep(250); } catch (Exception ex) { }
+				}
+				if (stopNow) {
+					break;
+				}
+
+				int queryLine = script.getLineNumber();
+				String queryOne = query.replace(NON_BREAKING_SPACE, ' ');
+				boolean isBatch = BATCHABLE.matcher(queryOne).lookingAt();
+				if (isBatch) {
+					if (batchCount == 0) {
+						batchLine = queryLine;
+					}
+					stmt.addBatch(queryOne);
+					batchCount++;
+				}
+				query = script.nextStatement();
+
+				// Send the batch when it's full, at the end, or ahead of a
+				// statement that has to run on its own
+				if (batchCount > 0  &&  (batchCount >= batchSize  ||  query == null  ||  ! isBatch)) {
+					int updated = 0;
+					for (int result : stmt.executeBatch()) {
+						updated += Math.max(result, 0);
+					}
+					stmt.clearBatch();
+					stmtCount   += batchCount;
+					rowsUpdated += updated;
+					Object[] rowData = { Integer.valueOf(batchLine), Integer.valueOf(batchCount), Integer.valueOf(updated) };
+					sqlModel.addRow(rowData, true);
+					batchCount = 0;
+				}
+				if (! isBatch) {
+					boolean isDDL = DDL.matcher(queryOne).lookingAt();
+					if (isDDL  &&  stmtCount > committed) {
+						conn.commit();
+						committed = stmtCount;
+					}
+					batchLine = queryLine;
+					int updated = runScriptStatement(stmt, queryOne);
+					stmtCount++;
+					rowsUpdated += updated;
+					Object[] rowData = { Integer.valueOf(queryLine), Integer.valueOf(1), Integer.valueOf(updated) };
+					sqlModel.addRow(rowData, true);
+					if (isDDL) {
+						conn.commit();
+						committed = stmtCount;
+					}
+				}
+
+				if (batchCount == 0  &&  stmtCount > committed  &&  (stmtCount - committed >= commitEvery  ||  query == null)) {
+					conn.commit();
+					committed = stmtCount;
+				}
+				progress = getScriptProgress(stmtCount, rowsUpdated, then, script.getLineNumber());
+			}
+			if (stopNow  &&  stmtCount > committed) {
+				conn.rollback();
+				errorMessage += "\n\nThe script was stopped: " + (stmtCount - committed) +
+						" statements since the last commit were rolled back";
+			}
+		} catch (SQLException | IOException ex) {
+			SqlToolkit.appLogger.logFatal("   RTMF.executeScript.EX: " + ex);
+			try { conn.rollback(); } catch (Exception ex2) { }
+			errorMessage += "\n\n============================================================";
+			errorMessage += "\nStatement or batch starting at line " + batchLine + ":";
+			errorMessage += "\n" + ex.getMessage();
+			errorMessage += "\n\n" + committed + " statements were committed; the rest were rolled back";
+		} finally {
+			if (stmt != null) try { stmt.close(); } catch (Exception ex) { }
+			if (isStarted) {
+				// Anything that wasn't committed by now is rolled back
+				try { conn.rollback(); } catch (Exception ex) { }
+				try { conn.setAutoCommit(true); } catch (Exception ex) { }
+			}
+			try { script.close(); } catch (Exception ex) { }
+
+			message = "\n\n" + getScriptProgress(stmtCount, rowsUpdated, then, script.getLineNumber()) +
+					"\nStatements committed: " + committed;
+			progress = null;
+
+			getOut();
+			conn  = null;
+			query = null;
+			isActive = false;
+			beActive = false;
+			stopNow  = true;
+		}
+	}
+
+	/**
+	 * Run a script statement that can't go in a batch, skipping over any
+	 * results it returns
+	 * @return number of rows updated
+	 * @throws SQLException
+	 */
+	private int runScriptStatement(Statement stmt, String queryOne) throws SQLException {
+		int updated = 0;
+		boolean isRSet = stmt.execute(queryOne);
+		while (true) {
+			if (isRSet) {
+				stmt.getResultSet().close();
+			} else {
+				int count = stmt.getUpdateCount();
+				if (count == -1) {
+					break;
+				}
+				updated += count;
+			}
+			isRSet = stmt.getMoreResults();
 		}
+		return updated;
 	}
 
-    private void executeBatchQueries(List<String> queries) {
-        sqlModel = new RowTableModelMulti();
-        
-        String[] colName = { "Rows Updated" };
-        Class<?>[] colType =  { String.class };
-        sqlModel.setColumnData(colName, colType);
-        try(Statement stmt = conn.createStatement()) {
-            conn.setAutoCommit(false);
-            for (int cnt=0;  cnt<queries.size();  cnt++) {
-                String query = queries.get(cnt);
-                if (! query.startsWith("--") && query.trim().length() > 0) {
-                    stmt.addBatch(query);
-                }
-                if (cnt % 100 == 99  ||  cnt == queries.size()-1) {
-                    int[] results = stmt.executeBatch();
-                    for (int result : results) {
-                        Object[] rowData = { new Integer(result) };
-                        sqlModel.addRow(rowData, true);
-                        message += "\nRows updated: " + result;
-                    }
-                    conn.commit();
-                }
-            }
-        } catch (SQLException sqlex) {
-            SqlToolkit.appLogger.logFatal("   RTMF.execute.SQLEX: " + sqlex);
-            message += "\n\n" + sqlex.getMessage();
-            errorMessage += "\n\n============================================================";
-            errorMessage += "\nQuery:";
-            errorMessage += "\n" + sqlex.getMessage();
-        }
-
-        getOut();
-        conn  = null;
-        query = null;
-        isActive = false;
-        beActive = false;
-        stopNow  = true;
-    }
+	/**
+	 * @return a summary of how far a script has got, and how fast
+	 */
+	private String getScriptProgress(long stmtCount, long rowsUpdated, long then, int lineNum) {
+		long millis = Math.max(1, System.currentTimeMillis() - then);
+		return "Statements run: " + stmtCount + "  (" + (stmtCount * 1000 / millis) + " per second)" +
+			"\nRows updated: " + rowsUpdated +
+			"\nLine: " + lineNum;
+	}
 
 	/**
 	 * Add padding to the end of some text to make it a specific length
@@ -1,5 +1,6 @@
 package sqltool.table;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -15,8 +16,8 @@ public class RowTableModelMulti extends RowTableModel {
 
 	static final long serialVersionUID = -3930880096135867133L;
 
-	/** Set containing the header rows for subsequent queries */
-	private Set<String> headerRowSet = new HashSet<String>();
+	/** Set containing the header rows for subsequent queries; added to while the table reads it */
+	private Set<String> headerRowSet = Collections.synchronizedSet(new HashSet<String>());
 
 	/**
 	 * Default constructor
@@ -35,11 +36,12 @@ public class RowTableModelMulti extends RowTableModel {
 		if (this.colName == null) {
 			super.setColumnData(colName, colType);
 			this.colType = null;
+			resetTableData();
 		} else {
 			adjustColumns(colName.length);
 			addRow(new String[] { null }, false);
 			addRow(colName, false);
-			headerRowSet.add("" + (rowData.size()-1));
+			headerRowSet.add("" + (getLoadedRowCount()-1));
 		}
 	}
 	
@@ -72,7 +74,7 @@ public class RowTableModelMulti extends RowTableModel {
 			colName  = cName;
 			colWidth = cWdth;
 			colEmpty = cEmty;
-			this.fireTableStructureChanged();
+			fireStructureChanged();
 		}
 	}
 	
@@ -86,6 +88,15 @@ public class RowTableModelMulti extends RowTableModel {
 		return (colName == null) ? Integer.class : String.class;
 	}
 
+	/**
+	 * All values are strings (the data, plus the headers of subsequent queries),
+	 * so store every column as a string column.
+	 * @return String class
+	 */
+	protected Class<?> getDefaultStorageType() {
+		return String.class;
+	}
+
 	/**
 	 * Return whether the given row is a secondary header, i.e., the column
 	 * names of a second or subsequent set of query results.
@@ -100,7 +111,7 @@ public class RowTableModelMulti extends RowTableModel {
 	 * each with a different number of columns and we don't want to intermix the
 	 * data from different queries.
 	 */
-	protected void sortData() {
+	protected void sortRows(int rowCount) {
 		
 	}
 	
@@ -0,0 +1,186 @@
+package sqltool.table;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+
+/**
+ * Build the ascending sort order of the rows of a {@link ColumnStore} by one
+ * column.  Each value is read once and turned into a sort key: a primitive
+ * long for integers, longs, booleans and doubles, or a comparable object for
+ * timestamps, big-decimals and text, where text is case-folded up front so it
+ * sorts the same as "compareToIgnoreCase".  The distinct keys are sorted and
+ * each row given the rank of its key, with nulls ranking lowest.  The rank and
+ * row number are packed into a single long, so the final sort is of a primitive
+ * array, done with "Arrays.parallelSort", and rows with equal keys stay in
+ * their original order.
+ *
+ * @author wjohnson000
+ *
+ */
+class SortKeys {
+
+	/**
+	 * Return the rows in ascending order of a column's values
+	 * @param store row storage
+	 * @param rowCount number of rows to sort
+	 * @param col column number
+	 * @param type column object [class] type
+	 * @return row numbers, in ascending order
+	 */
+	static int[] Sort(ColumnStore store, int rowCount, int col, Class<?> type) {
+		int[] ranks = null;
+		if (type == Integer.class  ||  type == Long.class  ||  type == Boolean.class  ||  type == Double.class) {
+			ranks = RankLongs(store, rowCount, col);
+		}
+		if (ranks == null  &&  (type == Timestamp.class  ||  type == BigDecimal.class)) {
+			ranks = RankObjects(store, rowCount, col, type);
+		}
+		if (ranks == null) {
+			ranks = RankObjects(store, rowCount, col, String.class);
+		}
+
+		long[] packed = new long[rowCount];
+		for (int row=0;  row<rowCount;  row++) {
+			packed[row] = ((long)ranks[row] << 32) | row;
+		}
+		Arrays.parallelSort(packed);
+
+		int[] order = new int[rowCount];
+		for (int i=0;  i<rowCount;  i++) {
+			order[i] = (int)packed[i];
+		}
+		return order;
+	}
+
+	/**
+	 * Rank the rows of a column holding integers, longs, booleans or doubles
+	 * @return rank of each row, zero for null, or null if some value isn't of
+	 *         the expected type
+	 */
+	private static int[] RankLongs(ColumnStore store, int rowCount, int col) {
+		long[]    keys   = new long[rowCount];
+		boolean[] isNull = new boolean[rowCount];
+		int       count  = 0;
+		for (int row=0;  row<rowCount;  row++) {
+			Object value = store.getValueAt(row, col);
+			if (value == null) {
+				isNull[row] = true;
+				continue;
+			} else if (value instanceof Integer  ||  value instanceof Long) {
+				keys[row] = ((Number)value).longValue();
+			} else if (value instanceof Boolean) {
+				keys[row] = ((Boolean)value).booleanValue() ? 1 : 0;
+			} else if (value instanceof Double) {
+				// Flip the bits of a negative double, so the longs sort the same
+				// way as "Double.compare"
+				long bits = Double.doubleToLongBits(((Double)value).doubleValue());
+				keys[row] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+			} else {
+				return null;
+			}
+			count++;
+		}
+
+		long[] distinct = new long[count];
+		for (int row=0, ndx=0;  row<rowCount;  row++) {
+			if (! isNull[row]) {
+				distinct[ndx++] = keys[row];
+			}
+		}
+		Arrays.parallelSort(distinct);
+		count = Dedupe(distinct);
+
+		int[] ranks = new int[rowCount];
+		for (int row=0;  row<rowCount;  row++) {
+			ranks[row] = isNull[row] ? 0 : Arrays.binarySearch(distinct, 0, count, keys[row]) + 1;
+		}
+		return ranks;
+	}
+
+	/**
+	 * Rank the rows of a column by comparable keys: the values themselves for
+	 * timestamps and big-decimals, or the case-folded text of the values
+	 * @param type Timestamp, BigDecimal, or String for text
+	 * @return rank of each row, zero for null, or null if some value isn't of
+	 *         the expected type
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static int[] RankObjects(ColumnStore store, int rowCount, int col, Class<?> type) {
+		Comparable[] keys = new Comparable[rowCount];
+		int count = 0;
+		for (int row=0;  row<rowCount;  row++) {
+			Object value = store.getValueAt(row, col);
+			if (value == null) {
+				continue;
+			} else if (type == String.class) {
+				keys[row] = Fold(value.toString());
+			} else if (type.isInstance(value)) {
+				keys[row] = (Comparable)value;
+			} else {
+				return null;
+			}
+			count++;
+		}
+
+		Comparable[] distinct = new Comparable[count];
+		for (int row=0, ndx=0;  row<rowCount;  row++) {
+			if (keys[row] != null) {
+				distinct[ndx++] = keys[row];
+			}
+		}
+		Arrays.parallelSort(distinct);
+		count = Dedupe(distinct);
+
+		int[] ranks = new int[rowCount];
+		for (int row=0;  row<rowCount;  row++) {
+			ranks[row] = (keys[row] == null) ? 0 : Arrays.binarySearch(distinct, 0, count, keys[row]) + 1;
+		}
+		return ranks;
+	}
+
+	/**
+	 * Squeeze out the duplicates of a sorted array
+	 * @return number of distinct values, now at the front of the array
+	 */
+	private static int Dedupe(long[] sorted) {
+		int count = 0;
+		for (int i=0;  i<sorted.length;  i++) {
+			if (count == 0  ||  sorted[i] != sorted[count-1]) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return count;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static int Dedupe(Comparable[] sorted) {
+		int count = 0;
+		for (int i=0;  i<sorted.length;  i++) {
+			if (count == 0  ||  sorted[i].compareTo(sorted[count-1]) != 0) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Case-fold text the same way that "compareToIgnoreCase" does, character
+	 * by character, so the folded strings can be compared directly
+	 */
+	private static String Fold(String text) {
+		char[] chars = null;
+		for (int i=0;  i<text.length();  i++) {
+			char ch = text.charAt(i);
+			char fold = Character.toLowerCase(Character.toUpperCase(ch));
+			if (fold != ch) {
+				if (chars == null) {
+					chars = text.toCharArray();
+				}
+				chars[i] = fold;
+			}
+		}
+		return (chars == null) ? text : new String(chars);
+	}
+}
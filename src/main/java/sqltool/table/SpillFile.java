@@ -0,0 +1,299 @@
+package sqltool.table;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * A temporary file holding blocks of rows that have been moved out of the heap
+ * by a {@link ColumnStore}.  Each block is written as one page, in a compact
+ * binary row format: for every row, for every column, a one-byte tag followed
+ * by the value.  The file is memory-mapped in large regions, and a page never
+ * crosses a region boundary, so reading a page back is a straight walk over a
+ * mapped buffer.  The last few pages read are kept, decoded, in a small LRU
+ * cache, so scrolling through a table doesn't keep decoding the same rows.
+ * <p>
+ * Values that can't be written in the binary format, such as a Clob locator,
+ * stay on the heap with their page and are referenced by position.
+ *
+ * @author wjohnson000
+ *
+ */
+class SpillFile {
+
+	/** Size of a mapped region; a larger page gets a region to itself */
+	static final int REGION_SIZE = 64 << 20;
+
+	/** Number of decoded pages to keep on the heap */
+	static final int CACHE_PAGES = 16;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// =============================================================================
+	//  V A L U E    T A G S
+	// =============================================================================
+	static final byte TAG_NULL      = 0;
+	static final byte TAG_INT       = 1;
+	static final byte TAG_LONG      = 2;
+	static final byte TAG_DOUBLE    = 3;
+	static final byte TAG_TIMESTAMP = 4;
+	static final byte TAG_TRUE      = 5;
+	static final byte TAG_FALSE     = 6;
+	static final byte TAG_STRING    = 7;
+	static final byte TAG_DECIMAL   = 8;
+	static final byte TAG_UUID      = 9;
+	static final byte TAG_PINNED    = 10;
+
+	/**
+	 * Where a page lives in the file, plus the values that couldn't be written
+	 */
+	static class Page {
+		int region;
+		int offset;
+		int rows;
+		int columns;
+		ArrayList<Object> pinned;
+	}
+
+	// =============================================================================
+	//  I N S T A N C E    V A R I A B L E S
+	//   -- file: the temporary file
+	//   -- raf: the file, opened for read and write
+	//   -- regions: mapped regions of the file, in file order
+	//   -- regionUsed: number of bytes written to the last region
+	//   -- fileEnd: file position where the next region will start
+	//   -- pages: page for each block number, null if the block isn't here
+	//   -- cache: recently-read pages, decoded, least-recently-used first
+	//   -- bytes: buffer used to encode a page
+	//   -- isClosed: TRUE once the file has been closed and deleted
+	// =============================================================================
+	private File             file;
+	private RandomAccessFile raf;
+	private ArrayList<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+	private int              regionUsed = 0;
+	private long             fileEnd = 0;
+	private ArrayList<Page>  pages = new ArrayList<Page>();
+	private ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+	private boolean          isClosed = false;
+
+	private LinkedHashMap<Integer,ColumnData[]> cache = new LinkedHashMap<Integer,ColumnData[]>(32, 0.75f, true) {
+		static final long serialVersionUID = 6093218750612947340L;
+
+		protected boolean removeEldestEntry(Map.Entry<Integer,ColumnData[]> eldest) {
+			return size() > CACHE_PAGES;
+		}
+	};
+
+	/**
+	 * Create a new, empty temporary file
+	 * @throws IOException
+	 */
+	SpillFile() throws IOException {
+		file = File.createTempFile("sqltool-", ".rows");
+		file.deleteOnExit();
+		raf = new RandomAccessFile(file, "rw");
+	}
+
+	/**
+	 * @return number of bytes of the file in use
+	 */
+	synchronized long getSize() {
+		return (regions.size() == 0) ? 0 : fileEnd - regions.get(regions.size()-1).capacity() + regionUsed;
+	}
+
+	/**
+	 * Write a block of rows as a new page
+	 * @param block block number
+	 * @param columns column storage for the block
+	 * @param rows number of rows in the block
+	 * @throws IOException
+	 */
+	synchronized void writePage(int block, ColumnData[] columns, int rows) throws IOException {
+		if (isClosed) {
+			throw new IOException("Spill file has been closed");
+		}
+
+		Page page = new Page();
+		page.rows = rows;
+		page.columns = columns.length;
+		bytes.reset();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (int row=0;  row<rows;  row++) {
+			for (int col=0;  col<columns.length;  col++) {
+				writeValue(out, columns[col].get(row), page);
+			}
+		}
+		out.flush();
+
+		// Start a new region if the page won't fit in what's left of this one
+		int length = bytes.size();
+		if (regions.size() == 0  ||  regionUsed + length > regions.get(regions.size()-1).capacity()) {
+			int size = Math.max(REGION_SIZE, length);
+			regions.add(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, fileEnd, size));
+			fileEnd += size;
+			regionUsed = 0;
+		}
+		ByteBuffer target = regions.get(regions.size()-1).duplicate();
+		target.position(regionUsed);
+		target.put(bytes.toByteArray(), 0, length);
+
+		page.region = regions.size() - 1;
+		page.offset = regionUsed;
+		regionUsed += length;
+		while (pages.size() <= block) {
+			pages.add(null);
+		}
+		pages.set(block, page);
+	}
+
+	/**
+	 * Read a page back, decoding it into column storage of the given types
+	 * @param block block number
+	 * @param types storage [class] type of each column
+	 * @return column storage for the block, or null if the block isn't here
+	 */
+	synchronized ColumnData[] readPage(int block, Class<?>[] types) {
+		Integer key = Integer.valueOf(block);
+		ColumnData[] columns = cache.get(key);
+		if (columns != null  ||  isClosed  ||  block >= pages.size()  ||  pages.get(block) == null) {
+			return columns;
+		}
+
+		Page page = pages.get(block);
+		ByteBuffer in = regions.get(page.region).duplicate();
+		in.position(page.offset);
+		columns = new ColumnData[page.columns];
+		for (int col=0;  col<columns.length;  col++) {
+			columns[col] = ColumnData.CreateColumn(col < types.length ? types[col] : Object.class);
+		}
+		for (int row=0;  row<page.rows;  row++) {
+			for (int col=0;  col<columns.length;  col++) {
+				Object value = readValue(in, page);
+				if (value != null  &&  ! columns[col].accepts(value)) {
+					columns[col] = columns[col].toObjectColumn();
+				}
+				columns[col].add(value);
+			}
+		}
+		for (ColumnData column : columns) {
+			column.seal();
+		}
+		cache.put(key, columns);
+		return columns;
+	}
+
+	/**
+	 * Close the file and delete it.  The mapped regions are released once
+	 * they're garbage-collected, so the file may linger until then.
+	 */
+	synchronized void close() {
+		if (! isClosed) {
+			isClosed = true;
+			regions.clear();
+			pages.clear();
+			cache.clear();
+			try {
+				raf.close();
+			} catch (Exception ex) { }
+			file.delete();
+		}
+	}
+
+	/**
+	 * Write a single value: a tag byte, then the value in binary form
+	 */
+	private static void writeValue(DataOutputStream out, Object value, Page page) throws IOException {
+		if (value == null) {
+			out.writeByte(TAG_NULL);
+		} else if (value instanceof Integer) {
+			out.writeByte(TAG_INT);
+			out.writeInt(((Integer)value).intValue());
+		} else if (value instanceof Long) {
+			out.writeByte(TAG_LONG);
+			out.writeLong(((Long)value).longValue());
+		} else if (value instanceof Double) {
+			out.writeByte(TAG_DOUBLE);
+			out.writeDouble(((Double)value).doubleValue());
+		} else if (value instanceof Timestamp) {
+			out.writeByte(TAG_TIMESTAMP);
+			out.writeLong(((Timestamp)value).getTime());
+			out.writeInt(((Timestamp)value).getNanos());
+		} else if (value instanceof Boolean) {
+			out.writeByte(((Boolean)value).booleanValue() ? TAG_TRUE : TAG_FALSE);
+		} else if (value instanceof String) {
+			byte[] utf = ((String)value).getBytes(UTF8);
+			out.writeByte(TAG_STRING);
+			out.writeInt(utf.length);
+			out.write(utf);
+		} else if (value instanceof BigDecimal) {
+			byte[] unscaled = ((BigDecimal)value).unscaledValue().toByteArray();
+			out.writeByte(TAG_DECIMAL);
+			out.writeInt(((BigDecimal)value).scale());
+			out.writeInt(unscaled.length);
+			out.write(unscaled);
+		} else if (value instanceof UUID) {
+			out.writeByte(TAG_UUID);
+			out.writeLong(((UUID)value).getMostSignificantBits());
+			out.writeLong(((UUID)value).getLeastSignificantBits());
+		} else {
+			if (page.pinned == null) {
+				page.pinned = new ArrayList<Object>();
+			}
+			out.writeByte(TAG_PINNED);
+			out.writeInt(page.pinned.size());
+			page.pinned.add(value);
+		}
+	}
+
+	/**
+	 * Read a single value written by {@link #writeValue}
+	 */
+	private static Object readValue(ByteBuffer in, Page page) {
+		byte tag = in.get();
+		switch (tag) {
+			case TAG_INT:
+				return Integer.valueOf(in.getInt());
+			case TAG_LONG:
+				return Long.valueOf(in.getLong());
+			case TAG_DOUBLE:
+				return Double.valueOf(in.getDouble());
+			case TAG_TIMESTAMP:
+				Timestamp stamp = new Timestamp(in.getLong());
+				stamp.setNanos(in.getInt());
+				return stamp;
+			case TAG_TRUE:
+				return Boolean.TRUE;
+			case TAG_FALSE:
+				return Boolean.FALSE;
+			case TAG_STRING:
+				byte[] utf = new byte[in.getInt()];
+				in.get(utf);
+				return new String(utf, UTF8);
+			case TAG_DECIMAL:
+				int scale = in.getInt();
+				byte[] unscaled = new byte[in.getInt()];
+				in.get(unscaled);
+				return new BigDecimal(new BigInteger(unscaled), scale);
+			case TAG_UUID:
+				return new UUID(in.getLong(), in.getLong());
+			case TAG_PINNED:
+				return page.pinned.get(in.getInt());
+			default:
+				return null;
+		}
+	}
+}